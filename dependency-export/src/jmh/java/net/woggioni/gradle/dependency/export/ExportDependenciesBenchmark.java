@@ -0,0 +1,136 @@
+package net.woggioni.gradle.dependency.export;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportDependenciesBenchmark {
+
+    @Param({"10000", "50000"})
+    public int nodes;
+
+    @Param({"false", "true"})
+    public boolean showArtifacts;
+
+    private SyntheticGraph graph;
+    private ComponentIdentifier[] components;
+    private int[][] dependencies;
+    private Map<ComponentIdentifier, List<ArtifactInfo>> artifacts;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        graph = SyntheticGraph.generate(nodes, 101325);
+        components = graph.getComponents();
+        dependencies = graph.getDependencies();
+        artifacts = new HashMap<>();
+        for (int i = 0; i < nodes; i++) {
+            artifacts.put(components[i], Collections.singletonList(
+                    new ArtifactInfo("jar", i % 5 == 0 ? "sources" : null, "jar")));
+        }
+    }
+
+    @Benchmark
+    public long streamingWriter() throws IOException {
+        SyntheticGraph.CountingWriter sink = new SyntheticGraph.CountingWriter();
+        try (DotWriter dotWriter = new DotWriter(sink)) {
+            dotWriter.write(graph.toDependencyGraph(showArtifacts ? artifacts : null));
+        }
+        return sink.count;
+    }
+
+    @Benchmark
+    public long legacyWriter() throws IOException {
+        SyntheticGraph.CountingWriter writer = new SyntheticGraph.CountingWriter();
+        Map<ComponentIdentifier, Integer> map = new HashMap<>();
+        writer.write("digraph G {");
+        writer.write('\n');
+        writer.write("    #rankdir=\"LR\";");
+        writer.write('\n');
+        final int[] sequence = new int[1];
+        for (int i = 0; i < nodes; i++) {
+            ComponentIdentifier id = components[i];
+            map.computeIfAbsent(id, it -> sequence[0]++);
+            Optional<List<ArtifactInfo>> artifactList = showArtifacts ?
+                    Optional.ofNullable(artifacts.get(id)) : Optional.empty();
+            String label = artifactList.map(it -> {
+                String rows = it.stream().map(resolvedArtifact -> {
+                    String artifactDescription = Stream.of(
+                            new AbstractMap.SimpleEntry<>("type", resolvedArtifact.getType()),
+                            new AbstractMap.SimpleEntry<>("classifier", resolvedArtifact.getClassifier()),
+                            new AbstractMap.SimpleEntry<>("extension",
+                                    !Objects.equals(resolvedArtifact.getExtension(), resolvedArtifact.getType()) ?
+                                            resolvedArtifact.getExtension() : null)
+                    ).map(entry -> {
+                        if (entry.getValue() == null || entry.getValue().isEmpty()) return null;
+                        else return entry.getKey() + ": " + entry.getValue();
+                    }).collect(Collectors.joining(", "));
+                    return "<TR><TD BGCOLOR=\"lightgrey\">" + artifactDescription + "</TD></TR>";
+                }).collect(Collectors.joining());
+                return "<<TABLE BORDER=\"0\" CELLBORDER=\"1\" CELLSPACING=\"0\" CELLPADDING=\"2\">" +
+                        "    <TR>" +
+                        "        <TD>" + id.getDisplayName() + "</TD>" +
+                        "    </TR>" +
+                        "    " + rows +
+                        "</TABLE>>";
+            }).orElse("\"" + id.getDisplayName() + "\"");
+            Map<String, String> attrs = Stream.of(
+                    new AbstractMap.SimpleEntry<>("label", label),
+                    new AbstractMap.SimpleEntry<>("shape", "\"" + (artifactList.isPresent() ? "none" : "oval") + "\""),
+                    new AbstractMap.SimpleEntry<>("style", "\"filled\""),
+                    artifactList.map(it -> new AbstractMap.SimpleEntry<>("margin", "\"0\"")).orElse(null),
+                    new AbstractMap.SimpleEntry<>("fillcolor", "\"#ffff88\"")
+            ).filter(Objects::nonNull).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            writer.write("    node_" + map.get(id) + " [" +
+                    attrs.entrySet().stream()
+                            .map(it -> it.getKey() + '=' + it.getValue())
+                            .collect(Collectors.joining(", ")) +
+                    "];");
+            writer.write('\n');
+        }
+
+        Set<Map.Entry<ComponentIdentifier, ComponentIdentifier>> linkCache = new HashSet<>();
+        for (int i = 0; i < nodes; i++) {
+            ComponentIdentifier id = components[i];
+            for (int child : dependencies[i]) {
+                ComponentIdentifier childId = components[child];
+                if (linkCache.add(new AbstractMap.SimpleEntry<>(id, childId))) {
+                    writer.write("    node_" + map.get(id) + " -> node_" + map.get(childId) + ";");
+                    writer.write('\n');
+                }
+            }
+        }
+        writer.write('}');
+        writer.write('\n');
+        return writer.count;
+    }
+}
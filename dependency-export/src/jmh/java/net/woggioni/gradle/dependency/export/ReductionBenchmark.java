@@ -0,0 +1,58 @@
+package net.woggioni.gradle.dependency.export;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReductionBenchmark {
+
+    @Param({"10000", "50000"})
+    public int nodes;
+
+    private DependencyGraph graph;
+
+    private GraphReduction collapse;
+
+    private String deepestModule;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        graph = SyntheticGraph.generate(nodes, 101325).toDependencyGraph(null);
+        collapse = new GraphReduction(null, null, Collections.singletonList("org\\.example\\.group1.*"),
+                null, false);
+        deepestModule = graph.getModuleKey(graph.getNodeCount() - 1);
+    }
+
+    @Benchmark
+    public int transitiveReduction() {
+        return GraphReduction.transitiveReduction(graph).getEdgeCount();
+    }
+
+    @Benchmark
+    public int collapseGroups() {
+        return collapse.reduce(graph).getEdgeCount();
+    }
+
+    @Benchmark
+    public int shortestPaths() {
+        return GraphReduction.shortestPaths(graph, deepestModule).getEdgeCount();
+    }
+}
@@ -0,0 +1,81 @@
+package net.woggioni.gradle.dependency.export;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compares the builtin renderer with Graphviz on exported graphs,
+ * the 'graphviz' benchmark requires the 'dot' executable to be available in the PATH
+ * (or its location to be passed with the 'graphviz.executable' system property).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"1000", "5000", "20000"})
+    public int nodes;
+
+    private Path dotFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dotFile = Files.createTempFile("dependencies", ".dot");
+        try (Writer writer = Files.newBufferedWriter(dotFile)) {
+            SyntheticGraph.generate(nodes, 101325).writeDot(writer);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(dotFile);
+    }
+
+    @Benchmark
+    public long builtin() throws IOException {
+        DotGraph graph = DotParser.parse(dotFile);
+        LayeredLayout layout = LayeredLayout.compute(graph);
+        SyntheticGraph.CountingWriter writer = new SyntheticGraph.CountingWriter();
+        SvgWriter.write(graph, layout, writer);
+        return writer.count;
+    }
+
+    @Benchmark
+    public int graphviz() throws IOException, InterruptedException {
+        String executable = System.getProperty("graphviz.executable", "dot");
+        Process process = new ProcessBuilder(executable, "-Tsvg", dotFile.toString())
+                .redirectOutput(ProcessBuilder.Redirect.to(new File(isWindows() ? "NUL" : "/dev/null")))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        int returnCode = process.waitFor();
+        if (returnCode != 0) {
+            throw new IllegalStateException("Graphviz exited with code " + returnCode);
+        }
+        return returnCode;
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name").toLowerCase().startsWith("windows");
+    }
+}
@@ -0,0 +1,152 @@
+package net.woggioni.gradle.dependency.export;
+
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+final class SyntheticGraph {
+
+    private final ComponentIdentifier[] components;
+    private final int[][] dependencies;
+
+    private SyntheticGraph(ComponentIdentifier[] components, int[][] dependencies) {
+        this.components = components;
+        this.dependencies = dependencies;
+    }
+
+    ComponentIdentifier[] getComponents() {
+        return components;
+    }
+
+    int[][] getDependencies() {
+        return dependencies;
+    }
+
+    static SyntheticGraph generate(int nodes, long seed) {
+        Random random = new Random(seed);
+        ComponentIdentifier[] components = new ComponentIdentifier[nodes];
+        int[][] dependencies = new int[nodes][];
+        for (int i = 0; i < nodes; i++) {
+            components[i] = new SyntheticModuleComponentIdentifier(
+                    "org.example.group" + (i % 97), "module-" + i, "1." + (i % 13) + ".0");
+            int edges = i == 0 ? 0 : 1 + random.nextInt(Math.min(i, 8));
+            int[] children = new int[edges];
+            for (int j = 0; j < edges; j++) {
+                // children always have a lower index so the synthetic graph is a DAG,
+                // duplicated entries exercise edge deduplication
+                children[j] = random.nextInt(i);
+            }
+            dependencies[i] = children;
+        }
+        return new SyntheticGraph(components, dependencies);
+    }
+
+    DependencyGraph toDependencyGraph(Map<ComponentIdentifier, List<ArtifactInfo>> artifacts) {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(components.length);
+        for (int i = 0; i < components.length; i++) {
+            int node = builder.node(components[i]);
+            if (artifacts != null) {
+                builder.artifacts(node, artifacts.get(components[i]));
+            }
+            for (int child : dependencies[i]) {
+                builder.edge(node, builder.node(components[child]));
+            }
+        }
+        return builder.build();
+    }
+
+    void writeDot(Writer writer) throws IOException {
+        try (DotWriter dotWriter = new DotWriter(writer)) {
+            dotWriter.write(toDependencyGraph(null));
+        }
+    }
+
+    static final class SyntheticModuleComponentIdentifier implements ModuleComponentIdentifier, ModuleIdentifier {
+        private final String group;
+        private final String module;
+        private final String version;
+        private final String displayName;
+
+        SyntheticModuleComponentIdentifier(String group, String module, String version) {
+            this.group = group;
+            this.module = module;
+            this.version = version;
+            this.displayName = group + ':' + module + ':' + version;
+        }
+
+        @Override
+        public String getGroup() {
+            return group;
+        }
+
+        @Override
+        public String getName() {
+            return module;
+        }
+
+        @Override
+        public String getModule() {
+            return module;
+        }
+
+        @Override
+        public String getVersion() {
+            return version;
+        }
+
+        @Override
+        public ModuleIdentifier getModuleIdentifier() {
+            return this;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SyntheticModuleComponentIdentifier)) return false;
+            return displayName.equals(((SyntheticModuleComponentIdentifier) o).displayName);
+        }
+
+        @Override
+        public int hashCode() {
+            return displayName.hashCode();
+        }
+    }
+
+    static final class CountingWriter extends Writer {
+        long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(int c) {
+            ++count;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
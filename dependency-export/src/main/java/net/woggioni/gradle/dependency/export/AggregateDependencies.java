@@ -0,0 +1,144 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static net.woggioni.gradle.dependency.export.DependencyExportPlugin.DEPENDENCY_EXPORT_GROUP;
+
+@CacheableTask
+public class AggregateDependencies extends DefaultTask {
+
+    @Getter(onMethod_ = { @Input })
+    private final Property<ExportFormat> exportFormat;
+
+    @Getter(onMethod_ = { @InputFiles, @PathSensitive(PathSensitivity.NONE) })
+    private final ConfigurableFileCollection partialGraphs;
+
+    @Getter(onMethod_ = { @InputFiles, @PathSensitive(PathSensitivity.NONE) })
+    private final ConfigurableFileCollection partialTimings;
+
+    @Getter(onMethod_ = { @OutputFile })
+    private final RegularFileProperty outputFile;
+
+    @Getter(onMethod_ = { @OutputFile })
+    private final RegularFileProperty timingReport;
+
+    @Option(option = "format", description = "Set the export format")
+    public void setFormat(ExportFormat value) {
+        exportFormat.set(value);
+    }
+
+    @Inject
+    public AggregateDependencies(ObjectFactory objects) {
+        setGroup(DEPENDENCY_EXPORT_GROUP);
+        setDescription("Merges the dependency graphs of all the projects in a single graph");
+        exportFormat = objects.property(ExportFormat.class).convention(ExportFormat.DOT);
+        partialGraphs = objects.fileCollection();
+        partialTimings = objects.fileCollection();
+        final JavaPluginExtension javaPluginExtension = getProject().getExtensions().findByType(JavaPluginExtension.class);
+        final Provider<RegularFile> defaultOutputFileProvider = javaPluginExtension.getDocsDir()
+                .file(exportFormat.map(format -> "aggregatedDependencies." + format.getFileExtension()));
+        outputFile = objects.fileProperty().convention(defaultOutputFileProvider);
+        timingReport = objects.fileProperty().convention(javaPluginExtension.getDocsDir()
+                .file("aggregatedDependencies-timings.txt"));
+    }
+
+    @TaskAction
+    @SneakyThrows
+    public void run() {
+        Set<File> partials = partialGraphs.getFiles();
+        DependencyGraph graph = merge(partials);
+        GraphWriter.write(graph, exportFormat.get(), outputFile.get().getAsFile().toPath(), true);
+        getLogger().info("Merged {} project dependency graphs into {} nodes and {} edges",
+                partials.size(), graph.getNodeCount(), graph.getEdgeCount());
+        writeTimingReport();
+    }
+
+    // the partial graphs are merged in the order of their root project, so that the result does not depend
+    // on the order of the files
+    static DependencyGraph merge(Set<File> partialGraphs) throws IOException {
+        List<DependencyGraph> partials = new ArrayList<>();
+        int expectedNodes = 0;
+        for (File partialGraph : partialGraphs) {
+            DependencyGraph graph = BinaryGraphReader.read(partialGraph.toPath());
+            partials.add(graph);
+            expectedNodes += graph.getNodeCount();
+        }
+        partials.sort(Comparator.comparing(graph -> graph.getNodeCount() > 0 ? graph.getName(0) : ""));
+
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(expectedNodes);
+        for (DependencyGraph partial : partials) {
+            int nodeCount = partial.getNodeCount();
+            int[] ids = new int[nodeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                ids[node] = builder.node(partial.getName(node), partial.getKind(node));
+                builder.artifacts(ids[node], partial.getArtifacts(node));
+                builder.weight(ids[node], partial.getWeight(node));
+            }
+            int edge = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                int end = partial.getOffset(node + 1);
+                for (; edge < end; edge++) {
+                    builder.edge(ids[node], ids[partial.getTarget(edge)], partial.getRequestedVersion(edge));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    @SneakyThrows
+    private void writeTimingReport() {
+        List<String[]> rows = new ArrayList<>();
+        for (File timingFile : partialTimings.getFiles()) {
+            for (String line : Files.readAllLines(timingFile.toPath())) {
+                String[] fields = line.split("\t");
+                if (fields.length == 3) {
+                    rows.add(fields);
+                }
+            }
+        }
+        rows.sort(Comparator.<String[]>comparingLong(row ->
+                Long.parseLong(row[1]) + Long.parseLong(row[2])).reversed());
+        Path destination = timingReport.get().getAsFile().toPath();
+        Files.createDirectories(destination.getParent());
+        try (Writer writer = Files.newBufferedWriter(destination)) {
+            String header = String.format("%-40s %15s %15s", "project", "resolution (ms)", "export (ms)");
+            writer.write(header);
+            writer.write('\n');
+            getLogger().lifecycle(header);
+            for (String[] row : rows) {
+                String line = String.format("%-40s %15s %15s", row[0], row[1], row[2]);
+                writer.write(line);
+                writer.write('\n');
+                getLogger().lifecycle(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import javax.inject.Inject;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static net.woggioni.gradle.dependency.export.DependencyExportPlugin.DEPENDENCY_EXPORT_GROUP;
+
+@CacheableTask
+public class AnalyzeProjectParallelism extends DefaultTask {
+
+    @Getter(onMethod_ = { @InputFiles, @PathSensitive(PathSensitivity.NONE) })
+    private final ConfigurableFileCollection partialGraphs;
+
+    @Getter(onMethod_ = { @OutputFile })
+    private final RegularFileProperty reportFile;
+
+    @Inject
+    public AnalyzeProjectParallelism(ObjectFactory objects) {
+        setGroup(DEPENDENCY_EXPORT_GROUP);
+        setDescription("Reports the critical path and the width of the graph of the dependencies between projects");
+        partialGraphs = objects.fileCollection();
+        final JavaPluginExtension javaPluginExtension = getProject().getExtensions().findByType(JavaPluginExtension.class);
+        reportFile = objects.fileProperty().convention(javaPluginExtension.getDocsDir().file("project-parallelism.txt"));
+    }
+
+    @TaskAction
+    @SneakyThrows
+    public void run() {
+        ProjectParallelism parallelism = ProjectParallelism.compute(AggregateDependencies.merge(partialGraphs.getFiles()));
+        Path destination = reportFile.get().getAsFile().toPath();
+        Files.createDirectories(destination.getParent());
+        try (Writer writer = Files.newBufferedWriter(destination)) {
+            parallelism.writeReport(writer);
+        }
+        getLogger().lifecycle("{} projects with {} dependencies between them: the critical path is {} projects long " +
+                        "and at most {} projects can be built at the same time, see {}",
+                parallelism.getProjectCount(), parallelism.getDependencyCount(), parallelism.getCriticalPathLength(),
+                parallelism.getWidth(), destination);
+    }
+}
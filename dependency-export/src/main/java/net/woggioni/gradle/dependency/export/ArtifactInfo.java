@@ -0,0 +1,40 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
+
+@Getter
+@EqualsAndHashCode
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public final class ArtifactInfo {
+    private final String type;
+    private final String classifier;
+    private final String extension;
+
+    // ResolvedArtifactResult has no type, classifier and extension: the type comes from the 'artifactType'
+    // attribute of the variant, the extension and the classifier from the file name
+    static ArtifactInfo of(ResolvedArtifactResult resolvedArtifact) {
+        String fileName = resolvedArtifact.getFile().getName();
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot + 1);
+        String baseName = dot < 0 ? fileName : fileName.substring(0, dot);
+        String type = resolvedArtifact.getVariant().getAttributes()
+                .getAttribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE);
+        String classifier = null;
+        ComponentIdentifier componentId = resolvedArtifact.getId().getComponentIdentifier();
+        if (componentId instanceof ModuleComponentIdentifier) {
+            ModuleComponentIdentifier moduleId = (ModuleComponentIdentifier) componentId;
+            String prefix = moduleId.getModule() + '-' + moduleId.getVersion() + '-';
+            if (baseName.startsWith(prefix)) {
+                classifier = baseName.substring(prefix.length());
+            }
+        }
+        return new ArtifactInfo(type == null ? extension : type, classifier, extension);
+    }
+}
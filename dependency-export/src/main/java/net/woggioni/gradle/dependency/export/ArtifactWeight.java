@@ -0,0 +1,58 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Locale;
+
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public final class ArtifactWeight {
+
+    static final ArtifactWeight EMPTY = new ArtifactWeight(0, 0, 0);
+
+    private static final String[] UNITS = {"B", "KiB", "MiB", "GiB"};
+
+    private final long size;
+    private final int classCount;
+    private final int resourceCount;
+    // the number of classes loaded at runtime according to the class usage logs, -1 when not measured
+    private final int loadedClassCount;
+
+    ArtifactWeight(long size, int classCount, int resourceCount) {
+        this(size, classCount, resourceCount, -1);
+    }
+
+    ArtifactWeight plus(ArtifactWeight other) {
+        return new ArtifactWeight(size + other.size,
+                classCount + other.classCount,
+                resourceCount + other.resourceCount,
+                loadedClassCount < 0 && other.loadedClassCount < 0 ? -1 :
+                        Math.max(0, loadedClassCount) + Math.max(0, other.loadedClassCount));
+    }
+
+    ArtifactWeight withLoadedClasses(int loadedClassCount) {
+        return new ArtifactWeight(size, classCount, resourceCount, loadedClassCount);
+    }
+
+    public boolean hasClassUsage() {
+        return loadedClassCount >= 0;
+    }
+
+    // generated classes (e.g. proxies) living in the packages of a jar are attributed to it as well,
+    // hence the ratio is capped
+    public double getLoadedClassRatio() {
+        return classCount == 0 ? 0 : Math.min(1.0, (double) loadedClassCount / classCount);
+    }
+
+    static String formatSize(long bytes) {
+        double value = bytes;
+        int unit = 0;
+        while (value >= 1024 && unit < UNITS.length - 1) {
+            value /= 1024;
+            ++unit;
+        }
+        return unit == 0 ? bytes + " B" : String.format(Locale.ROOT, "%.1f %s", value, UNITS[unit]);
+    }
+}
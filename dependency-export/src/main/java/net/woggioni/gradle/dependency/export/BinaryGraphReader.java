@@ -0,0 +1,108 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+final class BinaryGraphReader {
+
+    private BinaryGraphReader() {
+    }
+
+    static DependencyGraph read(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return read(buffer);
+    }
+
+    static DependencyGraph read(ByteBuffer buffer) {
+        if (buffer.getInt() != BinaryGraphWriter.MAGIC) {
+            throw new IllegalArgumentException("Not a binary dependency graph");
+        }
+        int version = buffer.getInt();
+        if (version != BinaryGraphWriter.VERSION) {
+            throw new IllegalArgumentException(
+                    String.format("Unsupported binary dependency graph version %d", version));
+        }
+        int stringCount = buffer.getInt();
+        String[] strings = new String[stringCount];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < stringCount; i++) {
+            int length = buffer.getInt();
+            if (scratch.length < length) {
+                scratch = new byte[length];
+            }
+            buffer.get(scratch, 0, length);
+            strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        int nodeCount = buffer.getInt();
+        String[] names = new String[nodeCount];
+        byte[] kinds = new byte[nodeCount];
+        ArtifactInfo[][] artifacts = new ArtifactInfo[nodeCount][];
+        for (int node = 0; node < nodeCount; node++) {
+            names[node] = string(strings, buffer.getInt());
+            kinds[node] = buffer.get();
+            int artifactCount = buffer.getInt();
+            if (artifactCount > 0) {
+                ArtifactInfo[] nodeArtifacts = new ArtifactInfo[artifactCount];
+                for (int i = 0; i < artifactCount; i++) {
+                    nodeArtifacts[i] = new ArtifactInfo(
+                            string(strings, buffer.getInt()),
+                            string(strings, buffer.getInt()),
+                            string(strings, buffer.getInt()));
+                }
+                artifacts[node] = nodeArtifacts;
+            }
+        }
+        int edgeCount = buffer.getInt();
+        int[] offsets = new int[nodeCount + 1];
+        buffer.asIntBuffer().get(offsets);
+        buffer.position(buffer.position() + offsets.length * 4);
+        int[] targets = new int[edgeCount];
+        buffer.asIntBuffer().get(targets);
+        buffer.position(buffer.position() + targets.length * 4);
+        ArtifactWeight[] weights = null;
+        if (buffer.get() != 0) {
+            weights = new ArtifactWeight[nodeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                weights[node] = new ArtifactWeight(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+            }
+        }
+        String[] requestedVersions = null;
+        int conflictCount = buffer.getInt();
+        if (conflictCount > 0) {
+            requestedVersions = new String[edgeCount];
+            for (int i = 0; i < conflictCount; i++) {
+                int edge = buffer.getInt();
+                requestedVersions[edge] = string(strings, buffer.getInt());
+            }
+        }
+        String[] tags = null;
+        int[] nodeTags = null;
+        int[] edgeTags = null;
+        int tagCount = buffer.getInt();
+        if (tagCount > 0) {
+            tags = new String[tagCount];
+            for (int i = 0; i < tagCount; i++) {
+                tags[i] = string(strings, buffer.getInt());
+            }
+            nodeTags = new int[nodeCount];
+            buffer.asIntBuffer().get(nodeTags);
+            buffer.position(buffer.position() + nodeTags.length * 4);
+            edgeTags = new int[edgeCount];
+            buffer.asIntBuffer().get(edgeTags);
+            buffer.position(buffer.position() + edgeTags.length * 4);
+        }
+        return new DependencyGraph(names, kinds, artifacts, weights, offsets, targets, requestedVersions,
+                tags, nodeTags, edgeTags);
+    }
+
+    private static String string(String[] strings, int index) {
+        return index < 0 ? null : strings[index];
+    }
+}
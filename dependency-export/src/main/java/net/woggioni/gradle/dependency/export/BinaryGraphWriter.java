@@ -0,0 +1,125 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class BinaryGraphWriter extends GraphWriter {
+
+    static final int MAGIC = 0x44455047;
+    static final int VERSION = 1;
+
+    private final DataOutputStream output;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final List<String> stringTable = new ArrayList<>();
+
+    BinaryGraphWriter(OutputStream outputStream) {
+        output = new DataOutputStream(outputStream);
+    }
+
+    private int string(String value) {
+        if (value == null) return -1;
+        Integer result = strings.get(value);
+        if (result == null) {
+            result = stringTable.size();
+            strings.put(value, result);
+            stringTable.add(value);
+        }
+        return result;
+    }
+
+    @Override
+    void write(DependencyGraph graph) throws IOException {
+        int nodeCount = graph.getNodeCount();
+        int[][] nodeRecords = new int[nodeCount][];
+        for (int node = 0; node < nodeCount; node++) {
+            ArtifactInfo[] artifacts = graph.getArtifacts(node);
+            int artifactCount = artifacts == null ? 0 : artifacts.length;
+            int[] record = new int[1 + artifactCount * 3];
+            record[0] = string(graph.getName(node));
+            for (int i = 0; i < artifactCount; i++) {
+                record[1 + i * 3] = string(artifacts[i].getType());
+                record[2 + i * 3] = string(artifacts[i].getClassifier());
+                record[3 + i * 3] = string(artifacts[i].getExtension());
+            }
+            nodeRecords[node] = record;
+        }
+        int edgeCount = graph.getEdgeCount();
+        String[] tags = graph.hasTags() ? graph.getTags() : new String[0];
+        int[] tagIndexes = new int[tags.length];
+        for (int i = 0; i < tags.length; i++) {
+            tagIndexes[i] = string(tags[i]);
+        }
+        IntList requestedVersions = new IntList();
+        for (int edge = 0; edge < edgeCount; edge++) {
+            String requested = graph.getRequestedVersion(edge);
+            if (requested != null) {
+                requestedVersions.add(edge);
+                requestedVersions.add(string(requested));
+            }
+        }
+
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(stringTable.size());
+        for (String s : stringTable) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+        output.writeInt(nodeCount);
+        for (int node = 0; node < nodeCount; node++) {
+            int[] record = nodeRecords[node];
+            output.writeInt(record[0]);
+            output.writeByte(graph.getKind(node));
+            output.writeInt((record.length - 1) / 3);
+            for (int i = 1; i < record.length; i++) {
+                output.writeInt(record[i]);
+            }
+        }
+        output.writeInt(edgeCount);
+        for (int node = 0; node <= nodeCount; node++) {
+            output.writeInt(graph.getOffset(node));
+        }
+        for (int edge = 0; edge < edgeCount; edge++) {
+            output.writeInt(graph.getTarget(edge));
+        }
+        output.writeBoolean(graph.hasWeights());
+        if (graph.hasWeights()) {
+            for (int node = 0; node < nodeCount; node++) {
+                ArtifactWeight weight = graph.getWeight(node);
+                if (weight == null) weight = ArtifactWeight.EMPTY;
+                output.writeLong(weight.getSize());
+                output.writeInt(weight.getClassCount());
+                output.writeInt(weight.getResourceCount());
+                output.writeInt(weight.getLoadedClassCount());
+            }
+        }
+        output.writeInt(requestedVersions.size() / 2);
+        for (int i = 0; i < requestedVersions.size(); i++) {
+            output.writeInt(requestedVersions.get(i));
+        }
+        output.writeInt(tags.length);
+        if (tags.length > 0) {
+            for (int tagIndex : tagIndexes) {
+                output.writeInt(tagIndex);
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                output.writeInt(graph.getNodeTags(node));
+            }
+            for (int edge = 0; edge < edgeCount; edge++) {
+                output.writeInt(graph.getEdgeTags(edge));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
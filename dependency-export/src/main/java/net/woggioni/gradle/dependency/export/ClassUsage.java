@@ -0,0 +1,190 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.SneakyThrows;
+import org.gradle.api.GradleException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Attributes the classes loaded at runtime to the components whose jars contain them. Loaded classes are read from
+// class loading logs ('-Xlog:class+load' since Java 9, '-verbose:class' on Java 8) or from JFR recordings
+// (their 'jdk.ClassLoad' and 'jdk.ClassDefine' events). Every class is attributed through an index from package
+// to component, only the packages split across several components are looked up class by class
+final class ClassUsage {
+
+    private static final Object SPLIT = new Object();
+    private static final byte[] JFR_MAGIC = {'F', 'L', 'R', 0};
+
+    private ClassUsage() {
+    }
+
+    // the number of distinct classes loaded from the jars of each component
+    @SuppressWarnings("unchecked")
+    static <K> Map<K, Integer> count(Map<K, List<File>> files, Collection<File> logs) {
+        Map<String, Object> packages = new HashMap<>();
+        Set<K> splitOwners = new HashSet<>();
+        for (Map.Entry<K, List<File>> entry : files.entrySet()) {
+            K owner = entry.getKey();
+            for (File file : entry.getValue()) {
+                JarScanner.listClasses(file.toPath(), className -> {
+                    Object previous = packages.putIfAbsent(packageOf(className), owner);
+                    if (previous != null && previous != owner) {
+                        if (previous != SPLIT) splitOwners.add((K) previous);
+                        splitOwners.add(owner);
+                        packages.put(packageOf(className), SPLIT);
+                    }
+                });
+            }
+        }
+        Map<String, K> splitClasses = new HashMap<>();
+        for (K owner : splitOwners) {
+            for (File file : files.get(owner)) {
+                JarScanner.listClasses(file.toPath(), className -> {
+                    if (packages.get(packageOf(className)) == SPLIT) splitClasses.putIfAbsent(className, owner);
+                });
+            }
+        }
+
+        Map<K, Integer> result = new HashMap<>();
+        for (K owner : files.keySet()) {
+            result.put(owner, 0);
+        }
+        // a class is loaded again by every class loader that defines it, it is only counted once
+        Set<String> seen = new HashSet<>();
+        Consumer<String> attribution = className -> {
+            // hidden and anonymous classes (lambdas, 'Unsafe.defineAnonymousClass') are never part of a jar
+            if (className.indexOf('/') >= 0 || !seen.add(className)) return;
+            Object owner = packages.get(packageOf(className));
+            if (owner == SPLIT) owner = splitClasses.get(className);
+            if (owner != null) result.merge((K) owner, 1, Integer::sum);
+        };
+        for (File log : logs) {
+            read(log.toPath(), attribution);
+        }
+        return result;
+    }
+
+    private static String packageOf(String className) {
+        int dot = className.lastIndexOf('.');
+        return dot < 0 ? "" : className.substring(0, dot);
+    }
+
+    @SneakyThrows
+    private static void read(Path path, Consumer<String> consumer) {
+        byte[] magic = new byte[JFR_MAGIC.length];
+        int read;
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            read = inputStream.read(magic);
+        }
+        if (read == magic.length && Arrays.equals(magic, JFR_MAGIC)) {
+            readRecording(path, consumer);
+        } else {
+            readLog(path, consumer);
+        }
+    }
+
+    private static void readLog(Path path, Consumer<String> consumer) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(path),
+                StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)), 0x10000)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String className = parseLine(line);
+                if (className != null) consumer.accept(className);
+            }
+        }
+    }
+
+    // '[0.015s][info][class,load] java.lang.Object source: jrt:/java.base' with any decoration,
+    // or '[Loaded java.lang.Object from /usr/lib/jvm/java-8/jre/lib/rt.jar]' on Java 8
+    static String parseLine(String line) {
+        if (line.startsWith("[Loaded ")) {
+            int end = line.indexOf(' ', 8);
+            return end < 0 ? null : line.substring(8, end);
+        }
+        if (!line.startsWith("[") || !line.contains("class,load") || !line.contains(" source: ")) return null;
+        int position = 0;
+        while (position < line.length() && line.charAt(position) == '[') {
+            int end = line.indexOf(']', position);
+            if (end < 0) return null;
+            position = end + 1;
+            while (position < line.length() && line.charAt(position) == ' ') ++position;
+        }
+        int end = line.indexOf(' ', position);
+        return end <= position ? null : line.substring(position, end);
+    }
+
+    // the JFR consumer API is only available since Java 11 while this plugin targets Java 8, hence reflection
+    private static void readRecording(Path path, Consumer<String> consumer) throws ReflectiveOperationException,
+            IOException {
+        Class<?> recordingFileClass;
+        try {
+            recordingFileClass = Class.forName("jdk.jfr.consumer.RecordingFile");
+        } catch (ClassNotFoundException e) {
+            throw new GradleException(String.format(
+                    "Reading the JFR recording '%s' requires Gradle to run on Java 11 or later", path), e);
+        }
+        Class<?> recordedEventClass = Class.forName("jdk.jfr.consumer.RecordedEvent");
+        Method hasMoreEvents = recordingFileClass.getMethod("hasMoreEvents");
+        Method readEvent = recordingFileClass.getMethod("readEvent");
+        Method getEventType = recordedEventClass.getMethod("getEventType");
+        Method getTypeName = Class.forName("jdk.jfr.EventType").getMethod("getName");
+        Method getClassField = recordedEventClass.getMethod("getClass", String.class);
+        Method getClassName = Class.forName("jdk.jfr.consumer.RecordedClass").getMethod("getName");
+        try (Closeable recording = (Closeable) recordingFileClass.getConstructor(Path.class).newInstance(path)) {
+            while ((Boolean) hasMoreEvents.invoke(recording)) {
+                Object event = readEvent.invoke(recording);
+                String type = (String) getTypeName.invoke(getEventType.invoke(event));
+                String field = "jdk.ClassLoad".equals(type) ? "loadedClass" :
+                        "jdk.ClassDefine".equals(type) ? "definedClass" : null;
+                if (field == null) continue;
+                Object loadedClass = getClassField.invoke(event, field);
+                if (loadedClass != null) consumer.accept((String) getClassName.invoke(loadedClass));
+            }
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw e;
+        }
+    }
+
+    // the modules sorted from the least used to the most used, the largest first among the unused ones
+    static void writeReport(DependencyGraph graph, Writer writer) throws IOException {
+        List<Integer> nodes = new ArrayList<>();
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            ArtifactWeight weight = graph.getWeight(node);
+            if (!graph.isProject(node) && weight != null && weight.hasClassUsage() && weight.getClassCount() > 0) {
+                nodes.add(node);
+            }
+        }
+        nodes.sort(Comparator.<Integer>comparingDouble(node -> graph.getWeight(node).getLoadedClassRatio())
+                .thenComparing(Comparator.<Integer>comparingLong(node -> graph.getWeight(node).getSize()).reversed()));
+        String format = "%-70s %10s %10s %8s %12s\n";
+        writer.write(String.format(format, "module", "classes", "loaded", "ratio", "size"));
+        for (int node : nodes) {
+            ArtifactWeight weight = graph.getWeight(node);
+            writer.write(String.format(format, graph.getName(node), weight.getClassCount(),
+                    weight.getLoadedClassCount(), String.format("%.1f%%", weight.getLoadedClassRatio() * 100),
+                    ArtifactWeight.formatSize(weight.getSize())));
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compares two dependency graphs matching components by 'group:module' (or project path),
+// every component is interned to an integer key so that the whole comparison is linear in the size of the graphs
+final class DependencyDiff {
+
+    static final byte UNCHANGED = 0;
+    static final byte ADDED = 1;
+    static final byte REMOVED = 2;
+    static final byte VERSION_CHANGED = 3;
+
+    // the union of both graphs, nodes and edges of the current graph come first
+    @Getter
+    private final DependencyGraph graph;
+    private final byte[] nodeStatus;
+    private final String[] previousNames;
+    private final byte[] edgeStatus;
+    private final long baselineSize;
+    private final long currentSize;
+    private final boolean weighted;
+
+    private DependencyDiff(DependencyGraph graph, byte[] nodeStatus, String[] previousNames, byte[] edgeStatus,
+                           long baselineSize, long currentSize, boolean weighted) {
+        this.graph = graph;
+        this.nodeStatus = nodeStatus;
+        this.previousNames = previousNames;
+        this.edgeStatus = edgeStatus;
+        this.baselineSize = baselineSize;
+        this.currentSize = currentSize;
+        this.weighted = weighted;
+    }
+
+    byte getNodeStatus(int node) {
+        return nodeStatus[node];
+    }
+
+    String getPreviousName(int node) {
+        return previousNames[node];
+    }
+
+    byte getEdgeStatus(int edge) {
+        return edgeStatus[edge];
+    }
+
+    boolean isEmpty() {
+        for (byte status : nodeStatus) {
+            if (status != UNCHANGED) return false;
+        }
+        for (byte status : edgeStatus) {
+            if (status != UNCHANGED) return false;
+        }
+        return true;
+    }
+
+    static DependencyDiff compute(DependencyGraph baseline, DependencyGraph current) {
+        Map<String, Integer> keys = new HashMap<>((baseline.getNodeCount() + current.getNodeCount()) * 2);
+        int[] baselineKeys = intern(baseline, keys);
+        int[] currentKeys = intern(current, keys);
+        int[] baselineByKey = nodesByKey(baselineKeys, keys.size());
+        int[] currentByKey = nodesByKey(currentKeys, keys.size());
+        LongHashSet baselineEdges = edgeKeys(baseline, baselineKeys);
+        LongHashSet currentEdges = edgeKeys(current, currentKeys);
+
+        int capacity = current.getNodeCount() + baseline.getNodeCount();
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(capacity);
+        byte[] nodeStatus = new byte[capacity];
+        String[] previousNames = new String[capacity];
+        IntList unionKeys = new IntList(capacity);
+        int[] currentIds = new int[current.getNodeCount()];
+        for (int node = 0; node < current.getNodeCount(); node++) {
+            int id = builder.node(current.getName(node), current.getKind(node));
+            builder.artifacts(id, current.getArtifacts(node));
+            builder.weight(id, current.getWeight(node));
+            currentIds[node] = id;
+            unionKeys.add(currentKeys[node]);
+            int previous = baselineByKey[currentKeys[node]];
+            if (previous < 0) {
+                nodeStatus[id] = ADDED;
+            } else if (!baseline.getName(previous).equals(current.getName(node))) {
+                nodeStatus[id] = VERSION_CHANGED;
+                previousNames[id] = baseline.getName(previous);
+            }
+        }
+        int[] baselineIds = new int[baseline.getNodeCount()];
+        for (int node = 0; node < baseline.getNodeCount(); node++) {
+            int match = currentByKey[baselineKeys[node]];
+            if (match < 0) {
+                int id = builder.node(baseline.getName(node), baseline.getKind(node));
+                builder.artifacts(id, baseline.getArtifacts(node));
+                builder.weight(id, baseline.getWeight(node));
+                nodeStatus[id] = REMOVED;
+                unionKeys.add(baselineKeys[node]);
+                baselineIds[node] = id;
+            } else {
+                baselineIds[node] = currentIds[match];
+            }
+        }
+        addEdges(builder, current, currentIds);
+        addEdges(builder, baseline, baselineIds);
+        DependencyGraph union = builder.build();
+
+        byte[] edgeStatus = new byte[union.getEdgeCount()];
+        for (int node = 0; node < union.getNodeCount(); node++) {
+            for (int edge = union.getOffset(node); edge < union.getOffset(node + 1); edge++) {
+                long key = LongHashSet.pack(unionKeys.get(node), unionKeys.get(union.getTarget(edge)));
+                if (!baselineEdges.contains(key)) {
+                    edgeStatus[edge] = ADDED;
+                } else if (!currentEdges.contains(key)) {
+                    edgeStatus[edge] = REMOVED;
+                }
+            }
+        }
+        return new DependencyDiff(union,
+                Arrays.copyOf(nodeStatus, union.getNodeCount()),
+                Arrays.copyOf(previousNames, union.getNodeCount()),
+                edgeStatus,
+                totalSize(baseline), totalSize(current),
+                baseline.hasWeights() && current.hasWeights());
+    }
+
+    private static int[] intern(DependencyGraph graph, Map<String, Integer> keys) {
+        int[] result = new int[graph.getNodeCount()];
+        for (int node = 0; node < result.length; node++) {
+            String key = graph.getModuleKey(node);
+            Integer id = keys.get(key);
+            if (id == null) {
+                id = keys.size();
+                keys.put(key, id);
+            }
+            result[node] = id;
+        }
+        return result;
+    }
+
+    private static int[] nodesByKey(int[] nodeKeys, int keyCount) {
+        int[] result = new int[keyCount];
+        Arrays.fill(result, -1);
+        for (int node = 0; node < nodeKeys.length; node++) {
+            if (result[nodeKeys[node]] < 0) result[nodeKeys[node]] = node;
+        }
+        return result;
+    }
+
+    private static LongHashSet edgeKeys(DependencyGraph graph, int[] nodeKeys) {
+        LongHashSet result = new LongHashSet(graph.getEdgeCount());
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1); edge++) {
+                result.add(LongHashSet.pack(nodeKeys[node], nodeKeys[graph.getTarget(edge)]));
+            }
+        }
+        return result;
+    }
+
+    private static void addEdges(DependencyGraph.Builder builder, DependencyGraph graph, int[] ids) {
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1); edge++) {
+                builder.edge(ids[node], ids[graph.getTarget(edge)]);
+            }
+        }
+    }
+
+    private static long totalSize(DependencyGraph graph) {
+        long result = 0;
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            ArtifactWeight weight = graph.getWeight(node);
+            if (weight != null) result += weight.getSize();
+        }
+        return result;
+    }
+
+    void writeReport(Writer writer) throws IOException {
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            switch (nodeStatus[node]) {
+                case ADDED:
+                    added.add(describe(node));
+                    break;
+                case REMOVED:
+                    removed.add(describe(node));
+                    break;
+                case VERSION_CHANGED:
+                    changed.add(graph.getModuleKey(node) + ' ' +
+                            versionOf(previousNames[node]) + " -> " + graph.getVersion(node));
+                    break;
+            }
+        }
+        List<String> addedEdges = new ArrayList<>();
+        List<String> removedEdges = new ArrayList<>();
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1); edge++) {
+                if (edgeStatus[edge] == UNCHANGED) continue;
+                String description = graph.getName(node) + " -> " + graph.getName(graph.getTarget(edge));
+                (edgeStatus[edge] == ADDED ? addedEdges : removedEdges).add(description);
+            }
+        }
+        writeSection(writer, "Added components", '+', added);
+        writeSection(writer, "Removed components", '-', removed);
+        writeSection(writer, "Version changes", '~', changed);
+        writeSection(writer, "New edges", '+', addedEdges);
+        writeSection(writer, "Removed edges", '-', removedEdges);
+        if (weighted) {
+            long delta = currentSize - baselineSize;
+            writer.write(String.format("Total artifact size: %s -> %s (%s%s)\n",
+                    ArtifactWeight.formatSize(baselineSize),
+                    ArtifactWeight.formatSize(currentSize),
+                    delta < 0 ? "-" : "+",
+                    ArtifactWeight.formatSize(Math.abs(delta))));
+        } else {
+            writer.write("Total artifact size: unknown, both graphs must be exported with weights\n");
+        }
+    }
+
+    private String describe(int node) {
+        ArtifactWeight weight = graph.getWeight(node);
+        return weight == null || graph.isProject(node) ? graph.getName(node) :
+                graph.getName(node) + " (" + ArtifactWeight.formatSize(weight.getSize()) + ')';
+    }
+
+    private static String versionOf(String name) {
+        int separator = name.lastIndexOf(':');
+        return separator < 0 ? name : name.substring(separator + 1);
+    }
+
+    private static void writeSection(Writer writer, String title, char marker, List<String> lines) throws IOException {
+        writer.write(String.format("%s (%d)\n", title, lines.size()));
+        Collections.sort(lines);
+        for (String line : lines) {
+            writer.write("    ");
+            writer.write(marker);
+            writer.write(' ');
+            writer.write(line);
+            writer.write('\n');
+        }
+    }
+}
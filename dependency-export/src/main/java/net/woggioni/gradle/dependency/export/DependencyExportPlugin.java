@@ -1,15 +1,51 @@
 package net.woggioni.gradle.dependency.export;
 
 import org.gradle.api.Action;
+import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.attributes.Category;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.plugins.JavaBasePlugin;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.plugins.ObjectConfigurationAction;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.build.event.BuildEventsListenerRegistry;
+
+import javax.inject.Inject;
+import java.util.Collections;
 
 public class DependencyExportPlugin implements Plugin<Project> {
 
     public static final String DEPENDENCY_EXPORT_GROUP = "dependency-export";
+    public static final String AGGREGATE_DEPENDENCIES_TASK_NAME = "aggregateDependencies";
+    public static final String ANALYZE_PROJECT_PARALLELISM_TASK_NAME = "analyzeProjectParallelism";
+    static final String PARTIAL_EXPORT_TASK_NAME = "exportDependenciesForAggregation";
+    static final String PARTIAL_EXPORT_ELEMENTS_CONFIGURATION_NAME = "dependencyExportElements";
+    static final String PARTIAL_EXPORTS_CONFIGURATION_NAME = "aggregatedDependencyExports";
+    public static final String AGGREGATED_CONFIGURATION_PROPERTY = "dependencyExport.aggregatedConfiguration";
+    static final String PARTIAL_EXPORT_CATEGORY = "dependency-export";
+    static final Attribute<String> PARTIAL_EXPORT_CONTENT_ATTRIBUTE =
+            Attribute.of("net.woggioni.gradle.dependency-export.content", String.class);
+    static final String PARTIAL_GRAPH = "graph";
+    static final String PARTIAL_TIMINGS = "timings";
+    static final String DIFF_EXPORT_TASK_NAME = "exportDependenciesForDiff";
+    static final String PROFILE_RESOLUTION_TASK_NAME = "profileResolution";
+    public static final String EXPORT_TASK_GRAPH_TASK_NAME = "exportTaskGraph";
+
+    private final BuildEventsListenerRegistry listenerRegistry;
+
+    @Inject
+    public DependencyExportPlugin(BuildEventsListenerRegistry listenerRegistry) {
+        this.listenerRegistry = listenerRegistry;
+    }
 
     @Override
     public void apply(Project project) {
@@ -20,12 +56,135 @@ public class DependencyExportPlugin implements Plugin<Project> {
             }
         });
         Provider<ExportDependencies> exportDependenciesTask =
-                project.getTasks().register("exportDependencies", ExportDependencies.class);
+                project.getTasks().register("exportDependencies", ExportDependencies.class, exportDependencies -> {
+                    JavaPluginExtension javaPluginExtension = project.getExtensions().getByType(JavaPluginExtension.class);
+                    exportDependencies.getConflictReportFile().convention(
+                            javaPluginExtension.getDocsDir().file("dependencies-conflicts.txt"));
+                    exportDependencies.getClassUsageReportFile().convention(
+                            javaPluginExtension.getDocsDir().file("dependencies-class-usage.txt"));
+                });
         Provider<RenderDependencies> renderDependenciesTask =
             project.getTasks().register("renderDependencies", RenderDependencies.class,
                     renderDependencies -> renderDependencies.setExportTask(exportDependenciesTask));
 
         project.getExtensions().getExtraProperties().set(ExportDependencies.class.getSimpleName(), ExportDependencies.class);
         project.getExtensions().getExtraProperties().set(RenderDependencies.class.getSimpleName(), RenderDependencies.class);
+        project.getExtensions().getExtraProperties().set(AggregateDependencies.class.getSimpleName(), AggregateDependencies.class);
+        project.getExtensions().getExtraProperties().set(DiffDependencies.class.getSimpleName(), DiffDependencies.class);
+        project.getExtensions().getExtraProperties().set(
+                AnalyzeProjectParallelism.class.getSimpleName(), AnalyzeProjectParallelism.class);
+
+        project.getExtensions().getExtraProperties().set(ProfileResolution.class.getSimpleName(), ProfileResolution.class);
+        project.getExtensions().getExtraProperties().set(ExportTaskGraph.class.getSimpleName(), ExportTaskGraph.class);
+
+        project.getTasks().register(PROFILE_RESOLUTION_TASK_NAME, ProfileResolution.class);
+
+        TaskProvider<DiffDependencies> diffDependenciesTask =
+                project.getTasks().register("diffDependencies", DiffDependencies.class);
+        TaskProvider<ExportDependencies> diffExportTask = project.getTasks().register(
+                DIFF_EXPORT_TASK_NAME, ExportDependencies.class, exportDependencies -> {
+                    exportDependencies.setGroup(null);
+                    exportDependencies.getConfigurationName().set(
+                            diffDependenciesTask.flatMap(DiffDependencies::getConfigurationName));
+                    exportDependencies.getExportFormat().set(ExportFormat.BINARY);
+                    exportDependencies.getShowWeights().set(true);
+                    exportDependencies.getPublishGraph().set(false);
+                    exportDependencies.getOutputFile().set(project.getLayout().getBuildDirectory()
+                            .file("tmp/diffDependencies/dependencies.depg"));
+                });
+        diffDependenciesTask.configure(diffDependencies -> {
+            diffDependencies.getCurrentFile().set(diffExportTask.flatMap(ExportDependencies::getOutputFile));
+            diffDependencies.dependsOn(diffExportTask);
+        });
+
+        project.getPlugins().withType(JavaPlugin.class, javaPlugin -> registerPartialExport(project));
+
+        if (project == project.getRootProject()) {
+            // the task execution listener is registered once per build, by the root project
+            Provider<TaskGraphRecorder> taskGraphRecorder = TaskGraphRecorder.register(project.getGradle());
+            project.getTasks().register(
+                    EXPORT_TASK_GRAPH_TASK_NAME, ExportTaskGraph.class, exportTaskGraph -> {
+                        exportTaskGraph.getRecorder().set(taskGraphRecorder);
+                        exportTaskGraph.usesService(taskGraphRecorder);
+                    });
+            // the tasks of the other projects are only read and their executions only recorded when the task graph
+            // is exported, the listener registration is stored in the configuration cache entry of the build
+            project.getGradle().getTaskGraph().whenReady(graph -> {
+                boolean record = false;
+                for (ExportTaskGraph task : project.getTasks().withType(ExportTaskGraph.class)) {
+                    if (graph.hasTask(task)) {
+                        task.readTaskGraph(graph);
+                        record = true;
+                    }
+                }
+                if (record) listenerRegistry.onTaskCompletion(taskGraphRecorder);
+            });
+            // the partial exports of every project are resolved as project dependencies, rather than wiring the
+            // tasks of the other projects, so that the projects can be configured in isolation; the projects
+            // that do not apply the java plugin have no partial export and are skipped by the lenient views
+            NamedDomainObjectProvider<Configuration> partialExportsConfiguration = project.getConfigurations()
+                    .register(PARTIAL_EXPORTS_CONFIGURATION_NAME, conf -> {
+                        conf.setCanBeConsumed(false);
+                        conf.attributes(attrs -> partialExportAttributes(project.getObjects(), attrs, PARTIAL_GRAPH));
+                        for (Project p : project.getAllprojects()) {
+                            conf.getDependencies().add(project.getDependencies().project(
+                                    Collections.singletonMap("path", p.getPath())));
+                        }
+                    });
+            project.getTasks().register(AGGREGATE_DEPENDENCIES_TASK_NAME, AggregateDependencies.class,
+                    aggregateDependencies -> {
+                        aggregateDependencies.getPartialGraphs()
+                                .from(partialExports(partialExportsConfiguration.get(), null));
+                        aggregateDependencies.getPartialTimings()
+                                .from(partialExports(partialExportsConfiguration.get(), PARTIAL_TIMINGS));
+                    });
+            // the project graph is read from the same partial exports used by the aggregation
+            project.getTasks().register(ANALYZE_PROJECT_PARALLELISM_TASK_NAME, AnalyzeProjectParallelism.class,
+                    analyzeProjectParallelism -> analyzeProjectParallelism.getPartialGraphs()
+                            .from(partialExports(partialExportsConfiguration.get(), null)));
+        }
+    }
+
+    private static void partialExportAttributes(ObjectFactory objects, AttributeContainer attributes, String content) {
+        attributes.attribute(Category.CATEGORY_ATTRIBUTE, objects.named(Category.class, PARTIAL_EXPORT_CATEGORY));
+        attributes.attribute(PARTIAL_EXPORT_CONTENT_ATTRIBUTE, content);
+    }
+
+    private static FileCollection partialExports(Configuration configuration, String content) {
+        return configuration.getIncoming().artifactView(view -> {
+            view.setLenient(true);
+            if (content != null) {
+                view.attributes(attrs -> attrs.attribute(PARTIAL_EXPORT_CONTENT_ATTRIBUTE, content));
+            }
+        }).getFiles();
+    }
+
+    // exports the configuration aggregated by the root project, the graph and the timings of the export
+    // are the artifacts of a consumable configuration resolved by the root project
+    private static void registerPartialExport(Project project) {
+        TaskProvider<ExportDependencies> partialExportTask = project.getTasks().register(
+                PARTIAL_EXPORT_TASK_NAME, ExportDependencies.class, exportDependencies -> {
+                    exportDependencies.setGroup(null);
+                    exportDependencies.getConfigurationName().set(project.getProviders()
+                            .gradleProperty(AGGREGATED_CONFIGURATION_PROPERTY)
+                            .getOrElse(JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME));
+                    exportDependencies.getExportFormat().set(ExportFormat.BINARY);
+                    exportDependencies.getPublishGraph().set(false);
+                    Provider<Directory> partialDir = project.getLayout().getBuildDirectory()
+                            .dir("tmp/" + AGGREGATE_DEPENDENCIES_TASK_NAME);
+                    exportDependencies.getOutputFile().set(partialDir.map(it -> it.file("dependencies.depg")));
+                    exportDependencies.getTimingFile().set(partialDir.map(it -> it.file("timing.txt")));
+                });
+        project.getConfigurations().register(PARTIAL_EXPORT_ELEMENTS_CONFIGURATION_NAME, conf -> {
+            conf.setCanBeResolved(false);
+            conf.attributes(attrs -> partialExportAttributes(project.getObjects(), attrs, PARTIAL_GRAPH));
+            conf.getOutgoing().artifact(partialExportTask.flatMap(ExportDependencies::getOutputFile),
+                    artifact -> artifact.builtBy(partialExportTask));
+            conf.getOutgoing().getVariants().create(PARTIAL_TIMINGS, variant -> {
+                variant.attributes(attrs -> partialExportAttributes(project.getObjects(), attrs, PARTIAL_TIMINGS));
+                variant.artifact(partialExportTask.flatMap(ExportDependencies::getTimingFile),
+                        artifact -> artifact.builtBy(partialExportTask));
+            });
+        });
     }
 }
@@ -0,0 +1,478 @@
+package net.woggioni.gradle.dependency.export;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Immutable graph of the resolved components: node ids are the indexes of the components, the dependencies of node i
+// are the targets between getOffset(i) (inclusive) and getOffset(i + 1) (exclusive) of a CSR adjacency matrix.
+// It can be obtained from DependencyGraphService without resolving the configuration again
+public final class DependencyGraph {
+
+    public static final byte KIND_PROJECT = 0;
+    public static final byte KIND_MODULE = 1;
+
+    private static final String PROJECT_PREFIX = "project ";
+
+    private final String[] names;
+    private final byte[] kinds;
+    private final ArtifactInfo[][] artifacts;
+    private final ArtifactWeight[] weights;
+    private final int[] offsets;
+    private final int[] targets;
+    // the version requested by each edge, only set when it differs from the selected one
+    private final String[] requestedVersions;
+    // when several configurations are exported together, the bitmask of the configurations
+    // each node and each edge belongs to (bit i stands for tags[i])
+    private final String[] tags;
+    private final int[] nodeTags;
+    private final int[] edgeTags;
+    private volatile long[] subtreeSizes;
+    private volatile Map<String, Integer> index;
+
+    DependencyGraph(String[] names, byte[] kinds, ArtifactInfo[][] artifacts, ArtifactWeight[] weights,
+                    int[] offsets, int[] targets) {
+        this(names, kinds, artifacts, weights, offsets, targets, null);
+    }
+
+    DependencyGraph(String[] names, byte[] kinds, ArtifactInfo[][] artifacts, ArtifactWeight[] weights,
+                    int[] offsets, int[] targets, String[] requestedVersions) {
+        this(names, kinds, artifacts, weights, offsets, targets, requestedVersions, null, null, null);
+    }
+
+    DependencyGraph(String[] names, byte[] kinds, ArtifactInfo[][] artifacts, ArtifactWeight[] weights,
+                    int[] offsets, int[] targets, String[] requestedVersions,
+                    String[] tags, int[] nodeTags, int[] edgeTags) {
+        this.names = names;
+        this.kinds = kinds;
+        this.artifacts = artifacts;
+        this.weights = weights;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.requestedVersions = requestedVersions;
+        this.tags = tags;
+        this.nodeTags = nodeTags;
+        this.edgeTags = edgeTags;
+    }
+
+    public int getNodeCount() {
+        return names.length;
+    }
+
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    public String getName(int node) {
+        return names[node];
+    }
+
+    public byte getKind(int node) {
+        return kinds[node];
+    }
+
+    public boolean isProject(int node) {
+        return kinds[node] == KIND_PROJECT;
+    }
+
+    ArtifactInfo[] getArtifacts(int node) {
+        return artifacts[node];
+    }
+
+    public boolean hasWeights() {
+        return weights != null;
+    }
+
+    public ArtifactWeight getWeight(int node) {
+        return weights == null ? null : weights[node];
+    }
+
+    // the size of the jars of this node and of all the nodes that can only be reached through it
+    public long getSubtreeSize(int node) {
+        if (subtreeSizes == null) {
+            long[] sizes = new long[names.length];
+            if (weights != null) {
+                for (int i = 0; i < sizes.length; i++) {
+                    sizes[i] = weights[i] == null ? 0 : weights[i].getSize();
+                }
+            }
+            subtreeSizes = DominatorTree.compute(this).subtreeTotals(sizes);
+        }
+        return subtreeSizes[node];
+    }
+
+    public int getOffset(int node) {
+        return offsets[node];
+    }
+
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    public boolean hasRequestedVersions() {
+        return requestedVersions != null;
+    }
+
+    public String getRequestedVersion(int edge) {
+        return requestedVersions == null ? null : requestedVersions[edge];
+    }
+
+    public boolean hasTags() {
+        return tags != null;
+    }
+
+    String[] getTags() {
+        return tags;
+    }
+
+    public int getNodeTags(int node) {
+        return nodeTags == null ? 0 : nodeTags[node];
+    }
+
+    public int getEdgeTags(int edge) {
+        return edgeTags == null ? 0 : edgeTags[edge];
+    }
+
+    public boolean hasAllTags(int mask) {
+        return mask == (tags.length == Integer.SIZE ? -1 : (1 << tags.length) - 1);
+    }
+
+    // the names of the configurations in the bitmask, comma separated
+    public String describeTags(int mask) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < tags.length; i++) {
+            if ((mask & (1 << i)) == 0) continue;
+            if (sb.length() > 0) sb.append(',');
+            sb.append(tags[i]);
+        }
+        return sb.toString();
+    }
+
+    public int getArtifactCount(int node) {
+        return artifacts[node] == null ? 0 : artifacts[node].length;
+    }
+
+    public ArtifactInfo getArtifact(int node, int index) {
+        return artifacts[node][index];
+    }
+
+    public List<String> getTagNames() {
+        return tags == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(tags));
+    }
+
+    // the node with the given display name (e.g. 'project :a' or 'group:module:version'), -1 if there is none
+    public int findNode(String name) {
+        Map<String, Integer> result = index;
+        if (result == null) {
+            result = new HashMap<>(names.length * 2);
+            for (int node = 0; node < names.length; node++) {
+                result.put(names[node], node);
+            }
+            index = result;
+        }
+        return result.getOrDefault(name, -1);
+    }
+
+    // the subgraph made of the shortest paths from the roots to the given module
+    // ('group:module', 'group:module:version' or a project path), null if it is not part of the graph
+    public DependencyGraph shortestPathsTo(String target) {
+        return GraphReduction.shortestPaths(this, target);
+    }
+
+    // the number of edges whose requested version was replaced by conflict resolution
+    public int getConflictCount() {
+        return VersionConflicts.count(this);
+    }
+
+    public static DependencyGraph of(ResolvedComponentResult root) {
+        return ExportDependencies.buildGraph(
+                Collections.singletonMap("", ExportDependencies.collectComponents(root)), null, null);
+    }
+
+    int[] getOffsets() {
+        return offsets;
+    }
+
+    int[] getTargets() {
+        return targets;
+    }
+
+    int[] getRoots() {
+        boolean[] hasPredecessors = new boolean[names.length];
+        for (int target : targets) {
+            hasPredecessors[target] = true;
+        }
+        IntList result = new IntList(16);
+        // the root component of the resolution result always comes first, even when it belongs to a cycle
+        for (int node = 0; node < names.length; node++) {
+            if (node == 0 || !hasPredecessors[node]) result.add(node);
+        }
+        return result.toArray();
+    }
+
+    // fills offsets (which must be nodeCount + 1 long) and returns the CSR matrix of the reversed edges
+    int[] predecessors(int[] offsets) {
+        int nodeCount = names.length;
+        for (int target : targets) {
+            ++offsets[target + 1];
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        int[] cursor = Arrays.copyOf(offsets, nodeCount);
+        int[] sources = new int[targets.length];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int edge = this.offsets[node]; edge < this.offsets[node + 1]; edge++) {
+                sources[cursor[targets[edge]]++] = node;
+            }
+        }
+        return sources;
+    }
+
+    public String getProjectPath(int node) {
+        if (!isProject(node)) return null;
+        String name = names[node];
+        return name.startsWith(PROJECT_PREFIX) ? name.substring(PROJECT_PREFIX.length()) : name;
+    }
+
+    String getCoordinate(int node, int position) {
+        if (isProject(node)) return null;
+        String name = names[node];
+        int start = 0;
+        for (int i = 0; i < position; i++) {
+            start = name.indexOf(':', start) + 1;
+            if (start == 0) return null;
+        }
+        int end = name.indexOf(':', start);
+        return end < 0 ? name.substring(start) : name.substring(start, end);
+    }
+
+    // identifies a component regardless of its version: 'group:module' for modules, the display name for projects
+    public String getModuleKey(int node) {
+        String name = names[node];
+        if (isProject(node)) return name;
+        int separator = name.indexOf(':');
+        int end = separator < 0 ? -1 : name.indexOf(':', separator + 1);
+        return end < 0 ? name : name.substring(0, end);
+    }
+
+    public String getGroup(int node) {
+        return getCoordinate(node, 0);
+    }
+
+    public String getModule(int node) {
+        return getCoordinate(node, 1);
+    }
+
+    public String getVersion(int node) {
+        return getCoordinate(node, 2);
+    }
+
+    static byte kindOf(ComponentIdentifier id) {
+        if (id instanceof ProjectComponentIdentifier) {
+            return KIND_PROJECT;
+        } else if (id instanceof ModuleComponentIdentifier) {
+            return KIND_MODULE;
+        } else {
+            throw new IllegalArgumentException(id.getClass().getName());
+        }
+    }
+
+    static final class Builder {
+        private final Map<Object, Integer> ids;
+        // maps every edge to its index in edgeSources and edgeTargets
+        private final LongIntHashMap links;
+        private final List<String> names;
+        private byte[] kinds;
+        private ArtifactInfo[][] artifacts;
+        private ArtifactWeight[] weights;
+        private final IntList edgeSources;
+        private final IntList edgeTargets;
+        // sparse, since most edges select the version they request
+        private Map<Integer, String> edgeRequestedVersions;
+        private final Map<String, String> requestedVersionTable = new HashMap<>();
+        private final Map<ArtifactInfo, ArtifactInfo> artifactInfos = new HashMap<>();
+        private final Map<List<ArtifactInfo>, ArtifactInfo[]> artifactArrays = new HashMap<>();
+        private String[] tags;
+        private int[] nodeTags;
+        private IntList edgeTags;
+
+        Builder(int expectedNodes) {
+            int capacity = Math.max(16, expectedNodes);
+            ids = new HashMap<>(capacity * 2);
+            links = new LongIntHashMap(capacity * 4);
+            names = new ArrayList<>(capacity);
+            kinds = new byte[capacity];
+            artifacts = new ArtifactInfo[capacity][];
+            edgeSources = new IntList(capacity * 4);
+            edgeTargets = new IntList(capacity * 4);
+        }
+
+        int node(ComponentIdentifier id) {
+            Integer result = ids.get(id);
+            if (result == null) {
+                result = newNode(id.getDisplayName(), kindOf(id));
+                ids.put(id, result);
+            }
+            return result;
+        }
+
+        int node(String name, byte kind) {
+            Integer result = ids.get(name);
+            if (result == null) {
+                result = newNode(name, kind);
+                ids.put(name, result);
+            }
+            return result;
+        }
+
+        private int newNode(String name, byte kind) {
+            int index = names.size();
+            names.add(name);
+            if (index == kinds.length) {
+                kinds = Arrays.copyOf(kinds, index << 1);
+                artifacts = Arrays.copyOf(artifacts, index << 1);
+                if (weights != null) {
+                    weights = Arrays.copyOf(weights, index << 1);
+                }
+                if (nodeTags != null) {
+                    nodeTags = Arrays.copyOf(nodeTags, index << 1);
+                }
+            }
+            kinds[index] = kind;
+            return index;
+        }
+
+        void artifacts(int node, List<ArtifactInfo> artifactList) {
+            if (artifactList != null && artifacts[node] == null) {
+                artifacts[node] = intern(artifactList);
+            }
+        }
+
+        void artifacts(int node, ArtifactInfo[] artifactArray) {
+            if (artifactArray != null && artifacts[node] == null) {
+                artifacts[node] = intern(Arrays.asList(artifactArray));
+            }
+        }
+
+        // most modules have the same artifacts (a single jar), so they all share the same array
+        private ArtifactInfo[] intern(List<ArtifactInfo> artifactList) {
+            ArtifactInfo[] result = artifactArrays.get(artifactList);
+            if (result == null) {
+                result = new ArtifactInfo[artifactList.size()];
+                for (int i = 0; i < result.length; i++) {
+                    ArtifactInfo artifact = artifactList.get(i);
+                    ArtifactInfo existing = artifactInfos.putIfAbsent(artifact, artifact);
+                    result[i] = existing == null ? artifact : existing;
+                }
+                artifactArrays.put(Arrays.asList(result), result);
+            }
+            return result;
+        }
+
+        void weight(int node, ArtifactWeight weight) {
+            if (weight == null) return;
+            if (weights == null) {
+                weights = new ArtifactWeight[kinds.length];
+            }
+            if (weights[node] == null) {
+                weights[node] = weight;
+            }
+        }
+
+        boolean edge(int from, int to) {
+            return edge(from, to, null);
+        }
+
+        boolean edge(int from, int to, String requestedVersion) {
+            return edge(from, to, requestedVersion, 0);
+        }
+
+        // an edge found again only adds its tags to the existing one, the first requested version wins
+        boolean edge(int from, int to, String requestedVersion, int tagMask) {
+            int edge = edgeSources.size();
+            int existing = links.putIfAbsent(LongHashSet.pack(from, to), edge);
+            if (existing >= 0) {
+                if (edgeTags != null) {
+                    edgeTags.set(existing, edgeTags.get(existing) | tagMask);
+                }
+                return false;
+            }
+            if (requestedVersion != null) {
+                if (edgeRequestedVersions == null) {
+                    edgeRequestedVersions = new HashMap<>();
+                }
+                String interned = requestedVersionTable.putIfAbsent(requestedVersion, requestedVersion);
+                edgeRequestedVersions.put(edge, interned == null ? requestedVersion : interned);
+            }
+            edgeSources.add(from);
+            edgeTargets.add(to);
+            if (edgeTags != null) {
+                edgeTags.add(tagMask);
+            }
+            return true;
+        }
+
+        // enables tagging, it has to be called before any edge is added
+        void tags(String[] tagNames) {
+            if (tagNames.length > Integer.SIZE) {
+                throw new IllegalArgumentException(
+                        String.format("At most %d configurations can be exported together", Integer.SIZE));
+            }
+            tags = tagNames;
+            nodeTags = new int[kinds.length];
+            edgeTags = new IntList(edgeSources.size() + 16);
+        }
+
+        void tag(int node, int tagMask) {
+            if (nodeTags != null) {
+                nodeTags[node] |= tagMask;
+            }
+        }
+
+        DependencyGraph build() {
+            int nodeCount = names.size();
+            int edgeCount = edgeSources.size();
+            int[] offsets = new int[nodeCount + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                ++offsets[edgeSources.get(i) + 1];
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] cursor = Arrays.copyOf(offsets, nodeCount);
+            int[] targets = new int[edgeCount];
+            String[] requestedVersions = edgeRequestedVersions == null ? null : new String[edgeCount];
+            int[] sortedEdgeTags = edgeTags == null ? null : new int[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                int position = cursor[edgeSources.get(i)]++;
+                targets[position] = edgeTargets.get(i);
+                if (requestedVersions != null) {
+                    requestedVersions[position] = edgeRequestedVersions.get(i);
+                }
+                if (sortedEdgeTags != null) {
+                    sortedEdgeTags[position] = edgeTags.get(i);
+                }
+            }
+            return new DependencyGraph(
+                    names.toArray(new String[0]),
+                    Arrays.copyOf(kinds, nodeCount),
+                    Arrays.copyOf(artifacts, nodeCount),
+                    weights == null ? null : Arrays.copyOf(weights, nodeCount),
+                    offsets,
+                    targets,
+                    requestedVersions,
+                    tags,
+                    nodeTags == null ? null : Arrays.copyOf(nodeTags, nodeCount),
+                    sortedEdgeTags);
+        }
+    }
+}
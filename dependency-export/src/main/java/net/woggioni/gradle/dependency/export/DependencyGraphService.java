@@ -0,0 +1,63 @@
+package net.woggioni.gradle.dependency.export;
+
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Shares the graphs built by the ExportDependencies tasks with any other task of the build: a graph is published
+// by the action of the task that exports it, so it is only available when that task runs in the current build
+// (not when it is up to date or taken from the build cache). Tasks that read a graph should depend on the task
+// exporting it and declare their use of the service with Task.usesService
+public abstract class DependencyGraphService implements BuildService<BuildServiceParameters.None> {
+
+    public static final String NAME = "dependencyGraphs";
+
+    // keyed by project and configurations, then by variant
+    private final Map<String, Map<String, DependencyGraph>> graphs = new ConcurrentHashMap<>();
+
+    public static Provider<DependencyGraphService> register(Gradle gradle) {
+        return gradle.getSharedServices().registerIfAbsent(NAME, DependencyGraphService.class, spec -> {
+        });
+    }
+
+    private static String key(String projectPath, List<String> configurationNames) {
+        return projectPath + '\u0000' + String.join(",", configurationNames);
+    }
+
+    // the variant describes the data attached to the graph (artifacts, weights, class usage, library elements):
+    // tasks exporting the same configurations with the same options publish the same graph
+    void publish(String projectPath, List<String> configurationNames, String variant, DependencyGraph graph) {
+        graphs.computeIfAbsent(key(projectPath, configurationNames), it -> new ConcurrentHashMap<>())
+                .put(variant, graph);
+    }
+
+    // the graph of the given configuration, null if no task exported it in this build
+    public DependencyGraph getGraph(String projectPath, String configurationName) {
+        return getGraph(projectPath, Collections.singletonList(configurationName));
+    }
+
+    // the graph of several configurations exported together, with every node and edge tagged
+    // with the configurations it belongs to; fails if they were exported with different options,
+    // see getGraphs
+    public DependencyGraph getGraph(String projectPath, List<String> configurationNames) {
+        Map<String, DependencyGraph> variants = getGraphs(projectPath, configurationNames);
+        if (variants.size() > 1) {
+            throw new IllegalStateException(String.format("%s of project '%s' were exported with different options %s",
+                    configurationNames, projectPath, variants.keySet()));
+        }
+        return variants.isEmpty() ? null : variants.values().iterator().next();
+    }
+
+    // every graph of the given configurations exported in this build, keyed by variant
+    public Map<String, DependencyGraph> getGraphs(String projectPath, List<String> configurationNames) {
+        Map<String, DependencyGraph> variants = graphs.get(key(projectPath, configurationNames));
+        return variants == null ? Collections.emptyMap() : Collections.unmodifiableMap(new TreeMap<>(variants));
+    }
+}
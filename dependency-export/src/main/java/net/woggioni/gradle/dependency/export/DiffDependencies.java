@@ -0,0 +1,96 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static net.woggioni.gradle.dependency.export.DependencyExportPlugin.DEPENDENCY_EXPORT_GROUP;
+
+@CacheableTask
+public class DiffDependencies extends DefaultTask {
+
+    @Getter(onMethod_ = { @Input })
+    private final Property<String> configurationName;
+
+    @Getter(onMethod_ = { @InputFile, @PathSensitive(PathSensitivity.NONE) })
+    private final RegularFileProperty baselineFile;
+
+    @Getter(onMethod_ = { @InputFile, @PathSensitive(PathSensitivity.NONE) })
+    private final RegularFileProperty currentFile;
+
+    @Getter(onMethod_ = { @OutputFile })
+    private final RegularFileProperty reportFile;
+
+    @Getter(onMethod_ = { @OutputFile })
+    private final RegularFileProperty outputFile;
+
+    @Option(option = "configuration", description = "Set the configuration name")
+    public void setConfiguration(String configurationName) {
+        this.configurationName.set(configurationName);
+    }
+
+    @Option(option = "baseline", description = "Set the baseline file, a graph exported in the BINARY format")
+    public void setBaseline(String baselineFile) {
+        Provider<File> fileProvider = getProject().provider(() -> new File(baselineFile));
+        this.baselineFile.set(getProject().getLayout().file(fileProvider));
+    }
+
+    @Inject
+    public DiffDependencies(ObjectFactory objects) {
+        setGroup(DEPENDENCY_EXPORT_GROUP);
+        setDescription("Compares the dependency graph with a baseline exported in the BINARY format");
+        configurationName = objects.property(String.class).convention(JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME);
+        baselineFile = objects.fileProperty().convention(
+                getProject().getLayout().getProjectDirectory().file("dependencies-baseline.depg"));
+        currentFile = objects.fileProperty();
+        final JavaPluginExtension javaPluginExtension = getProject().getExtensions().findByType(JavaPluginExtension.class);
+        reportFile = objects.fileProperty().convention(javaPluginExtension.getDocsDir().file("dependencies-diff.txt"));
+        outputFile = objects.fileProperty().convention(javaPluginExtension.getDocsDir().file("dependencies-diff.dot"));
+    }
+
+    @TaskAction
+    @SneakyThrows
+    public void run() {
+        DependencyGraph baseline = BinaryGraphReader.read(baselineFile.get().getAsFile().toPath());
+        DependencyGraph current = BinaryGraphReader.read(currentFile.get().getAsFile().toPath());
+        DependencyDiff diff = DependencyDiff.compute(baseline, current);
+
+        StringWriter report = new StringWriter();
+        diff.writeReport(report);
+        Path reportPath = reportFile.get().getAsFile().toPath();
+        Files.createDirectories(reportPath.getParent());
+        Files.write(reportPath, report.toString().getBytes(StandardCharsets.UTF_8));
+        if (diff.isEmpty()) {
+            getLogger().lifecycle("No dependency changes with respect to the baseline");
+        } else {
+            getLogger().lifecycle(report.toString());
+        }
+
+        Path dotPath = outputFile.get().getAsFile().toPath();
+        Files.createDirectories(dotPath.getParent());
+        try (DiffDotWriter dotWriter = new DiffDotWriter(Files.newBufferedWriter(dotPath), diff)) {
+            dotWriter.write(diff.getGraph());
+        }
+    }
+}
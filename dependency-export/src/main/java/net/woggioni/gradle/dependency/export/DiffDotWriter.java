@@ -0,0 +1,77 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.io.Writer;
+
+// Writes the union graph of a DependencyDiff highlighting what changed:
+// added components and edges are red, version changes orange, removed ones dashed and grey
+final class DiffDotWriter extends TextGraphWriter {
+
+    private final DependencyDiff diff;
+
+    DiffDotWriter(Writer writer, DependencyDiff diff) {
+        super(writer);
+        this.diff = diff;
+    }
+
+    @Override
+    protected void writeHeader(DependencyGraph graph) {
+        buffer.append("digraph G {\n");
+        buffer.append("    #rankdir=\"LR\";\n");
+        buffer.append("    edge [color=\"#aaaaaa\"];\n");
+    }
+
+    @Override
+    protected void writeNode(DependencyGraph graph, int node) {
+        buffer.append("    node_").append(node).append(" [label=\"");
+        String style = "filled";
+        String fillColor;
+        switch (diff.getNodeStatus(node)) {
+            case DependencyDiff.ADDED:
+                buffer.append(graph.getName(node));
+                fillColor = "#ff8888";
+                break;
+            case DependencyDiff.REMOVED:
+                buffer.append(graph.getName(node));
+                style = "dashed";
+                fillColor = "#ffffff";
+                break;
+            case DependencyDiff.VERSION_CHANGED:
+                String previous = diff.getPreviousName(node);
+                buffer.append(graph.getModuleKey(node)).append("\\n")
+                        .append(previous.substring(previous.lastIndexOf(':') + 1))
+                        .append(" -> ").append(graph.getVersion(node));
+                fillColor = "#ffbb55";
+                break;
+            default:
+                buffer.append(graph.getName(node));
+                fillColor = graph.isProject(node) ? "#88ff88" : "#ffff88";
+                break;
+        }
+        buffer.append("\", shape=\"").append(graph.isProject(node) ? "box" : "oval")
+                .append("\", style=\"").append(style)
+                .append("\", fillcolor=\"").append(fillColor).append('"');
+        if (diff.getNodeStatus(node) == DependencyDiff.REMOVED) {
+            buffer.append(", color=\"#999999\", fontcolor=\"#999999\"");
+        }
+        buffer.append("];\n");
+    }
+
+    @Override
+    protected void writeEdge(DependencyGraph graph, int from, int to, int edge) {
+        buffer.append("    node_").append(from).append(" -> node_").append(to);
+        switch (diff.getEdgeStatus(edge)) {
+            case DependencyDiff.ADDED:
+                buffer.append(" [color=\"#ff0000\", penwidth=\"2\"]");
+                break;
+            case DependencyDiff.REMOVED:
+                buffer.append(" [color=\"#999999\", style=\"dashed\"]");
+                break;
+        }
+        buffer.append(";\n");
+    }
+
+    @Override
+    protected void writeFooter(DependencyGraph graph) {
+        buffer.append("}\n");
+    }
+}
@@ -0,0 +1,115 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.util.Arrays;
+
+// Immediate dominators computed with the iterative algorithm by Cooper, Harvey and Kennedy,
+// the graph roots (the first node and every node without dependants) hang off a virtual root
+final class DominatorTree {
+
+    static final int ROOT = -1;
+
+    private final int[] immediateDominators;
+    private final int[] postOrder;
+
+    private DominatorTree(int[] immediateDominators, int[] postOrder) {
+        this.immediateDominators = immediateDominators;
+        this.postOrder = postOrder;
+    }
+
+    int getImmediateDominator(int node) {
+        return immediateDominators[node];
+    }
+
+    // sums the given values over each subtree of the dominator tree, so that every node gets
+    // the total of everything that would disappear from the graph together with it
+    long[] subtreeTotals(long[] values) {
+        long[] result = Arrays.copyOf(values, values.length);
+        for (int node : postOrder) {
+            int dominator = immediateDominators[node];
+            if (dominator != ROOT) {
+                result[dominator] += result[node];
+            }
+        }
+        return result;
+    }
+
+    static DominatorTree compute(DependencyGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        int virtualRoot = nodeCount;
+        int[] predecessorOffsets = new int[nodeCount + 1];
+        int[] predecessors = graph.predecessors(predecessorOffsets);
+
+        // post order numbering of a depth first visit starting from the roots, nodes unreachable from them
+        // (cycles nobody depends on) are attached to the virtual root as well
+        int[] number = new int[nodeCount + 1];
+        Arrays.fill(number, -1);
+        int[] order = new int[nodeCount + 1];
+        boolean[] rootChild = new boolean[nodeCount];
+        int[] stack = new int[nodeCount];
+        int[] cursor = new int[nodeCount];
+        int counter = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int root = 0; root < nodeCount; root++) {
+                if (cursor[root] > 0) continue;
+                if (pass == 0 && root != 0 && predecessorOffsets[root + 1] > predecessorOffsets[root]) continue;
+                rootChild[root] = true;
+                int depth = 0;
+                stack[depth++] = root;
+                cursor[root] = graph.getOffset(root) + 1;
+                while (depth > 0) {
+                    int node = stack[depth - 1];
+                    int edge = cursor[node] - 1;
+                    if (edge < graph.getOffset(node + 1)) {
+                        cursor[node]++;
+                        int target = graph.getTarget(edge);
+                        if (cursor[target] == 0) {
+                            cursor[target] = graph.getOffset(target) + 1;
+                            stack[depth++] = target;
+                        }
+                    } else {
+                        number[node] = counter;
+                        order[counter++] = node;
+                        --depth;
+                    }
+                }
+            }
+        }
+        number[virtualRoot] = counter;
+        order[counter] = virtualRoot;
+
+        int[] idom = new int[nodeCount + 1];
+        Arrays.fill(idom, -1);
+        idom[virtualRoot] = virtualRoot;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            // reverse post order, skipping the virtual root
+            for (int i = counter - 1; i >= 0; i--) {
+                int node = order[i];
+                int newIdom = rootChild[node] ? virtualRoot : -1;
+                for (int j = predecessorOffsets[node]; j < predecessorOffsets[node + 1]; j++) {
+                    int predecessor = predecessors[j];
+                    if (idom[predecessor] < 0) continue;
+                    newIdom = newIdom < 0 ? predecessor : intersect(idom, number, predecessor, newIdom);
+                }
+                if (newIdom >= 0 && idom[node] != newIdom) {
+                    idom[node] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+        int[] immediateDominators = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            immediateDominators[node] = idom[node] == virtualRoot ? ROOT : idom[node];
+        }
+        return new DominatorTree(immediateDominators, Arrays.copyOf(order, counter));
+    }
+
+    private static int intersect(int[] idom, int[] number, int first, int second) {
+        while (first != second) {
+            while (number[first] < number[second]) first = idom[first];
+            while (number[second] < number[first]) second = idom[second];
+        }
+        return first;
+    }
+}
@@ -0,0 +1,264 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class DotGraph {
+
+    private final Map<String, Integer> index = new HashMap<>();
+    private final List<String> nodeIds = new ArrayList<>();
+    private final List<Map<String, String>> nodeAttributes = new ArrayList<>();
+    private final BitSet htmlLabels = new BitSet();
+    private final IntList edgeSources = new IntList();
+    private final IntList edgeTargets = new IntList();
+    private final List<Map<String, String>> edgeAttributes = new ArrayList<>();
+
+    int node(String id) {
+        Integer result = index.get(id);
+        if (result == null) {
+            result = nodeIds.size();
+            index.put(id, result);
+            nodeIds.add(id);
+            nodeAttributes.add(null);
+        }
+        return result;
+    }
+
+    void setNodeAttribute(int node, String key, String value, boolean html) {
+        Map<String, String> attributes = nodeAttributes.get(node);
+        if (attributes == null) {
+            attributes = new LinkedHashMap<>();
+            nodeAttributes.set(node, attributes);
+        }
+        attributes.put(key, value);
+        if ("label".equals(key)) {
+            htmlLabels.set(node, html);
+        }
+    }
+
+    int edge(int from, int to, Map<String, String> attributes) {
+        edgeSources.add(from);
+        edgeTargets.add(to);
+        edgeAttributes.add(attributes == null || attributes.isEmpty() ? null : attributes);
+        return edgeSources.size() - 1;
+    }
+
+    int getNodeCount() {
+        return nodeIds.size();
+    }
+
+    int getEdgeCount() {
+        return edgeSources.size();
+    }
+
+    String getNodeId(int node) {
+        return nodeIds.get(node);
+    }
+
+    String getNodeAttribute(int node, String key) {
+        Map<String, String> attributes = nodeAttributes.get(node);
+        return attributes == null ? null : attributes.get(key);
+    }
+
+    boolean isHtmlLabel(int node) {
+        return htmlLabels.get(node);
+    }
+
+    int getEdgeSource(int edge) {
+        return edgeSources.get(edge);
+    }
+
+    int getEdgeTarget(int edge) {
+        return edgeTargets.get(edge);
+    }
+
+    String getEdgeAttribute(int edge, String key) {
+        Map<String, String> attributes = edgeAttributes.get(edge);
+        return attributes == null ? null : attributes.get(key);
+    }
+
+    // keeps the first maxNodes nodes met by a breadth first visit starting from the nodes without dependents,
+    // so that what is left is the part of the graph closest to its roots
+    DotGraph truncate(int maxNodes) {
+        int nodeCount = getNodeCount();
+        int edgeCount = getEdgeCount();
+        int[] offsets = new int[nodeCount + 1];
+        boolean[] hasDependents = new boolean[nodeCount];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            ++offsets[edgeSources.get(edge) + 1];
+            if (edgeSources.get(edge) != edgeTargets.get(edge)) {
+                hasDependents[edgeTargets.get(edge)] = true;
+            }
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        int[] cursor = Arrays.copyOf(offsets, nodeCount);
+        int[] outgoing = new int[edgeCount];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            outgoing[cursor[edgeSources.get(edge)]++] = edge;
+        }
+        DotGraph result = new DotGraph();
+        int[] ids = new int[nodeCount];
+        Arrays.fill(ids, -1);
+        IntList queue = new IntList(Math.min(nodeCount, maxNodes));
+        for (int node = 0; node < nodeCount && queue.size() < maxNodes; node++) {
+            if (!hasDependents[node]) {
+                ids[node] = copyNode(result, node);
+                queue.add(node);
+            }
+        }
+        // a graph made only of cycles has no roots, its first node is used instead
+        if (queue.size() == 0 && nodeCount > 0 && maxNodes > 0) {
+            ids[0] = copyNode(result, 0);
+            queue.add(0);
+        }
+        for (int head = 0; head < queue.size(); head++) {
+            int node = queue.get(head);
+            for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                int target = edgeTargets.get(outgoing[i]);
+                if (ids[target] < 0 && queue.size() < maxNodes) {
+                    ids[target] = copyNode(result, target);
+                    queue.add(target);
+                }
+                if (ids[target] >= 0) {
+                    result.edge(ids[node], ids[target], edgeAttributes.get(outgoing[i]));
+                }
+            }
+        }
+        return result;
+    }
+
+    private int copyNode(DotGraph destination, int node) {
+        int result = destination.node(getNodeId(node));
+        destination.nodeAttributes.set(result, nodeAttributes.get(node));
+        destination.htmlLabels.set(result, htmlLabels.get(node));
+        return result;
+    }
+
+    void write(Writer writer) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("digraph G {\n");
+        for (int node = 0; node < getNodeCount(); node++) {
+            sb.append("    ");
+            appendId(sb, getNodeId(node));
+            Map<String, String> attributes = nodeAttributes.get(node);
+            if (attributes != null) {
+                sb.append(" [");
+                boolean first = true;
+                for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                    if (!first) sb.append(", ");
+                    first = false;
+                    sb.append(attribute.getKey()).append('=');
+                    if ("label".equals(attribute.getKey()) && isHtmlLabel(node)) {
+                        sb.append('<').append(attribute.getValue()).append('>');
+                    } else {
+                        appendId(sb, attribute.getValue());
+                    }
+                }
+                sb.append(']');
+            }
+            sb.append(";\n");
+        }
+        for (int edge = 0; edge < getEdgeCount(); edge++) {
+            sb.append("    ");
+            appendId(sb, getNodeId(getEdgeSource(edge)));
+            sb.append(" -> ");
+            appendId(sb, getNodeId(getEdgeTarget(edge)));
+            Map<String, String> attributes = edgeAttributes.get(edge);
+            if (attributes != null) {
+                sb.append(" [");
+                boolean first = true;
+                for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                    if (!first) sb.append(", ");
+                    first = false;
+                    sb.append(attribute.getKey()).append('=');
+                    appendId(sb, attribute.getValue());
+                }
+                sb.append(']');
+            }
+            sb.append(";\n");
+        }
+        sb.append("}\n");
+        writer.write(sb.toString());
+    }
+
+    // backslashes are kept as they are by the parser, hence only quotes need to be escaped
+    private static void appendId(StringBuilder sb, String id) {
+        sb.append('"').append(id.replace("\"", "\\\"")).append('"');
+    }
+
+    List<String> getLabelLines(int node) {
+        String label = getNodeAttribute(node, "label");
+        if (label == null) {
+            return Collections.singletonList(getNodeId(node));
+        } else if (isHtmlLabel(node)) {
+            List<String> result = new ArrayList<>();
+            int cursor = 0;
+            while (true) {
+                int cellStart = indexOfIgnoreCase(label, "<TD", cursor);
+                if (cellStart < 0) break;
+                int contentStart = label.indexOf('>', cellStart) + 1;
+                int cellEnd = indexOfIgnoreCase(label, "</TD>", contentStart);
+                if (contentStart <= 0 || cellEnd < 0) break;
+                result.add(stripTags(label.substring(contentStart, cellEnd)));
+                cursor = cellEnd + 5;
+            }
+            if (result.isEmpty()) {
+                result.add(stripTags(label));
+            }
+            return result;
+        } else {
+            List<String> result = new ArrayList<>();
+            int start = 0;
+            for (int i = 0; i < label.length() - 1; i++) {
+                char c = label.charAt(i);
+                if (c == '\\') {
+                    char next = label.charAt(i + 1);
+                    if (next == 'n' || next == 'l' || next == 'r') {
+                        result.add(label.substring(start, i));
+                        start = i + 2;
+                        i++;
+                    }
+                }
+            }
+            if (start < label.length() || result.isEmpty()) {
+                result.add(label.substring(start));
+            }
+            return result;
+        }
+    }
+
+    private static int indexOfIgnoreCase(String s, String needle, int from) {
+        int limit = s.length() - needle.length();
+        for (int i = Math.max(0, from); i <= limit; i++) {
+            if (s.regionMatches(true, i, needle, 0, needle.length())) return i;
+        }
+        return -1;
+    }
+
+    private static String stripTags(String html) {
+        StringBuilder sb = new StringBuilder();
+        boolean inTag = false;
+        for (int i = 0; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (c == '<') inTag = true;
+            else if (c == '>') inTag = false;
+            else if (!inTag) sb.append(c);
+        }
+        return sb.toString().trim()
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&amp;", "&");
+    }
+}
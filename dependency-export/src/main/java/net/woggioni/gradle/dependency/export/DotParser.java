@@ -0,0 +1,263 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class DotParser {
+
+    private enum TokenType {
+        ID, STRING, HTML, PUNCTUATION, END
+    }
+
+    private final String source;
+    private int position;
+    private TokenType tokenType;
+    private String token;
+    private final DotGraph graph = new DotGraph();
+
+    private DotParser(String source) {
+        this.source = source;
+    }
+
+    static DotGraph parse(Path path) throws IOException {
+        return parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    static DotGraph parse(String source) {
+        DotParser parser = new DotParser(source);
+        parser.next();
+        parser.parseGraph();
+        return parser.graph;
+    }
+
+    private void parseGraph() {
+        if (isKeyword("strict")) next();
+        if (!isKeyword("graph") && !isKeyword("digraph")) {
+            throw error("expected 'graph' or 'digraph'");
+        }
+        next();
+        if (tokenType != TokenType.PUNCTUATION) next();
+        expect("{");
+        parseStatements();
+        expect("}");
+    }
+
+    private void parseStatements() {
+        while (tokenType != TokenType.END && !isPunctuation("}")) {
+            parseStatement();
+            if (isPunctuation(";")) next();
+        }
+    }
+
+    private void parseStatement() {
+        if (isKeyword("graph") || isKeyword("node") || isKeyword("edge")) {
+            next();
+            parseAttributes();
+        } else if (isKeyword("subgraph") || isPunctuation("{")) {
+            parseSubgraph();
+        } else if (isIdentifier()) {
+            String id = token;
+            next();
+            if (isPunctuation("=")) {
+                next();
+                next();
+                return;
+            }
+            skipPort();
+            if (isPunctuation("->") || isPunctuation("--")) {
+                List<Integer> chain = new ArrayList<>();
+                chain.add(graph.node(id));
+                while (isPunctuation("->") || isPunctuation("--")) {
+                    next();
+                    if (!isIdentifier()) throw error("expected node identifier");
+                    chain.add(graph.node(token));
+                    next();
+                    skipPort();
+                }
+                Map<String, String> attributes = parseAttributes();
+                for (int i = 1; i < chain.size(); i++) {
+                    graph.edge(chain.get(i - 1), chain.get(i), attributes);
+                }
+            } else {
+                int node = graph.node(id);
+                if (isPunctuation("[")) {
+                    next();
+                    while (!isPunctuation("]")) {
+                        if (tokenType == TokenType.END) throw error("unterminated attribute list");
+                        String key = token;
+                        next();
+                        expect("=");
+                        graph.setNodeAttribute(node, key, token, tokenType == TokenType.HTML);
+                        next();
+                        if (isPunctuation(",") || isPunctuation(";")) next();
+                    }
+                    next();
+                    parseAttributes();
+                }
+            }
+        } else {
+            throw error("unexpected token");
+        }
+    }
+
+    private void parseSubgraph() {
+        if (isKeyword("subgraph")) {
+            next();
+            if (isIdentifier() && !isPunctuation("{")) next();
+        }
+        expect("{");
+        parseStatements();
+        expect("}");
+    }
+
+    private void skipPort() {
+        while (isPunctuation(":")) {
+            next();
+            next();
+        }
+    }
+
+    private Map<String, String> parseAttributes() {
+        Map<String, String> result = null;
+        while (isPunctuation("[")) {
+            next();
+            while (!isPunctuation("]")) {
+                if (tokenType == TokenType.END) throw error("unterminated attribute list");
+                String key = token;
+                next();
+                expect("=");
+                if (result == null) result = new LinkedHashMap<>();
+                result.put(key, token);
+                next();
+                if (isPunctuation(",") || isPunctuation(";")) next();
+            }
+            next();
+        }
+        return result;
+    }
+
+    private boolean isIdentifier() {
+        return tokenType == TokenType.ID || tokenType == TokenType.STRING || tokenType == TokenType.HTML;
+    }
+
+    private boolean isKeyword(String keyword) {
+        return tokenType == TokenType.ID && keyword.equalsIgnoreCase(token);
+    }
+
+    private boolean isPunctuation(String value) {
+        return tokenType == TokenType.PUNCTUATION && value.equals(token);
+    }
+
+    private void expect(String punctuation) {
+        if (!isPunctuation(punctuation)) {
+            throw error(String.format("expected '%s'", punctuation));
+        }
+        next();
+    }
+
+    private IllegalArgumentException error(String message) {
+        int line = 1;
+        for (int i = 0; i < Math.min(position, source.length()); i++) {
+            if (source.charAt(i) == '\n') ++line;
+        }
+        return new IllegalArgumentException(
+                String.format("Error parsing DOT source at line %d: %s, found '%s'", line, message, token));
+    }
+
+    private void next() {
+        skipWhitespaceAndComments();
+        if (position >= source.length()) {
+            tokenType = TokenType.END;
+            token = null;
+            return;
+        }
+        char c = source.charAt(position);
+        if (c == '"') {
+            StringBuilder sb = new StringBuilder();
+            ++position;
+            while (position < source.length()) {
+                char current = source.charAt(position++);
+                if (current == '\\' && position < source.length()) {
+                    char escaped = source.charAt(position++);
+                    if (escaped == '"') {
+                        sb.append('"');
+                    } else if (escaped == '\n') {
+                        continue;
+                    } else {
+                        sb.append('\\').append(escaped);
+                    }
+                } else if (current == '"') {
+                    break;
+                } else {
+                    sb.append(current);
+                }
+            }
+            tokenType = TokenType.STRING;
+            token = sb.toString();
+        } else if (c == '<') {
+            int depth = 0;
+            int start = position + 1;
+            while (position < source.length()) {
+                char current = source.charAt(position++);
+                if (current == '<') {
+                    ++depth;
+                } else if (current == '>' && --depth == 0) {
+                    break;
+                }
+            }
+            tokenType = TokenType.HTML;
+            token = source.substring(start, position - 1);
+        } else if (c == '-' && position + 1 < source.length()
+                && (source.charAt(position + 1) == '>' || source.charAt(position + 1) == '-')) {
+            tokenType = TokenType.PUNCTUATION;
+            token = source.substring(position, position + 2);
+            position += 2;
+        } else if (Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '-' || c > 127) {
+            int start = position;
+            while (position < source.length()) {
+                char current = source.charAt(position);
+                if (Character.isLetterOrDigit(current) || current == '_' || current == '.'
+                        || (current == '-' && position == start) || current > 127) {
+                    ++position;
+                } else {
+                    break;
+                }
+            }
+            tokenType = TokenType.ID;
+            token = source.substring(start, position);
+        } else {
+            tokenType = TokenType.PUNCTUATION;
+            token = String.valueOf(c);
+            ++position;
+        }
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (position < source.length()) {
+            char c = source.charAt(position);
+            if (Character.isWhitespace(c)) {
+                ++position;
+            } else if (c == '#') {
+                skipLine();
+            } else if (c == '/' && position + 1 < source.length() && source.charAt(position + 1) == '/') {
+                skipLine();
+            } else if (c == '/' && position + 1 < source.length() && source.charAt(position + 1) == '*') {
+                int end = source.indexOf("*/", position + 2);
+                position = end < 0 ? source.length() : end + 2;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private void skipLine() {
+        int end = source.indexOf('\n', position);
+        position = end < 0 ? source.length() : end + 1;
+    }
+}
@@ -0,0 +1,246 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Objects;
+
+final class DotWriter extends TextGraphWriter {
+
+    private static final int LIGHT_GREEN = 0xff;
+    private static final int LIGHT_BLUE = 0x88;
+    private static final int HEAVY_GREEN = 0x44;
+    private static final int HEAVY_BLUE = 0x44;
+
+    private static final int SHARED = -2;
+
+    private final boolean clusterProjects;
+    // the project every component belongs to, when clustering projects
+    private int[] owners;
+    private double minWeight;
+    private double maxWeight;
+
+    DotWriter(Writer writer) {
+        this(writer, false);
+    }
+
+    DotWriter(Writer writer, boolean clusterProjects) {
+        super(writer);
+        this.clusterProjects = clusterProjects;
+    }
+
+    @Override
+    protected void writeHeader(DependencyGraph graph) {
+        buffer.append("digraph G {\n");
+        buffer.append("    #rankdir=\"LR\";\n");
+        if (graph.hasWeights()) {
+            long min = Long.MAX_VALUE;
+            long max = 0;
+            for (int node = 0; node < graph.getNodeCount(); node++) {
+                if (graph.isProject(node)) continue;
+                min = Math.min(min, graph.getSubtreeSize(node));
+                max = Math.max(max, graph.getSubtreeSize(node));
+            }
+            minWeight = Math.log1p(Math.min(min, max));
+            maxWeight = Math.log1p(max);
+        }
+        if (clusterProjects) {
+            owners = owners(graph);
+        }
+    }
+
+    // a component belongs to the only project it is reachable from without going through another project,
+    // the components reachable from several projects are left out of the clusters
+    private static int[] owners(DependencyGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        int[] owners = new int[nodeCount];
+        int[] visited = new int[nodeCount];
+        Arrays.fill(owners, -1);
+        Arrays.fill(visited, -1);
+        IntList stack = new IntList();
+        for (int project = 0; project < nodeCount; project++) {
+            if (!graph.isProject(project)) continue;
+            owners[project] = project;
+            stack.add(project);
+            while (stack.size() > 0) {
+                int node = stack.removeLast();
+                for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1); edge++) {
+                    int target = graph.getTarget(edge);
+                    if (graph.isProject(target) || visited[target] == project) continue;
+                    visited[target] = project;
+                    owners[target] = owners[target] == -1 ? project : SHARED;
+                    stack.add(target);
+                }
+            }
+        }
+        return owners;
+    }
+
+    @Override
+    protected void writeNode(DependencyGraph graph, int node) {
+        String shape;
+        String color;
+        ArtifactWeight weight = graph.getWeight(node);
+        ArtifactInfo[] artifacts = graph.getArtifacts(node);
+        boolean hasArtifacts = artifacts != null;
+        boolean project = graph.isProject(node);
+        if (project) {
+            shape = hasArtifacts ? "none" : "box";
+            color = "#88ff88";
+        } else {
+            shape = hasArtifacts ? "none" : "oval";
+            if (weight == null) {
+                color = "#ffff88";
+            } else if (weight.hasClassUsage()) {
+                color = usageColor(weight);
+            } else {
+                color = gradeColor(graph.getSubtreeSize(node));
+            }
+        }
+        buffer.append("    node_").append(node).append(" [label=");
+        if (hasArtifacts) {
+            appendTableLabel(graph, node, artifacts);
+        } else {
+            buffer.append('"').append(graph.getName(node));
+            if (weight != null) {
+                if (!project) {
+                    buffer.append("\\n");
+                    appendWeight(weight);
+                }
+                buffer.append("\\nsubtree: ").append(ArtifactWeight.formatSize(graph.getSubtreeSize(node)));
+            }
+            buffer.append('"');
+        }
+        buffer.append(", shape=\"").append(shape).append('"');
+        // with several configurations, the nodes that are not part of all of them are dashed
+        boolean partial = graph.hasTags() && !graph.hasAllTags(graph.getNodeTags(node));
+        buffer.append(partial ? ", style=\"filled,dashed\"" : ", style=\"filled\"");
+        if (graph.hasTags()) {
+            buffer.append(", tooltip=\"").append(graph.describeTags(graph.getNodeTags(node))).append('"');
+        }
+        if (hasArtifacts) {
+            buffer.append(", margin=\"0\"");
+        }
+        buffer.append(", fillcolor=\"").append(color).append("\"];\n");
+    }
+
+    @Override
+    protected void writeEdge(DependencyGraph graph, int from, int to, int edge) {
+        buffer.append("    node_").append(from)
+                .append(" -> node_").append(to);
+        String requested = graph.getRequestedVersion(edge);
+        if (requested != null || graph.hasTags()) {
+            buffer.append(" [");
+            if (requested != null) {
+                String color = conflictColor(VersionConflicts.classify(requested, graph.getVersion(to)));
+                buffer.append("label=\"").append(requested.replace("\"", "\\\""))
+                        .append("\", color=\"").append(color)
+                        .append("\", fontcolor=\"").append(color)
+                        .append("\", fontsize=\"10\"");
+            }
+            if (graph.hasTags()) {
+                int tags = graph.getEdgeTags(edge);
+                if (requested != null) buffer.append(", ");
+                buffer.append("tooltip=\"").append(graph.describeTags(tags)).append('"');
+                if (!graph.hasAllTags(tags)) {
+                    buffer.append(", style=\"dashed\"");
+                }
+            }
+            buffer.append(']');
+        }
+        buffer.append(";\n");
+    }
+
+    // upgrades in orange, downgrades in red, ranges and dynamic versions in blue
+    private static String conflictColor(byte conflict) {
+        switch (conflict) {
+            case VersionConflicts.UPGRADE:
+                return "#ff8c00";
+            case VersionConflicts.DOWNGRADE:
+                return "#e00000";
+            default:
+                return "#3060c0";
+        }
+    }
+
+    private void appendTableLabel(DependencyGraph graph, int node, ArtifactInfo[] artifacts) {
+        buffer.append("<<TABLE BORDER=\"0\" CELLBORDER=\"1\" CELLSPACING=\"0\" CELLPADDING=\"2\">")
+                .append("    <TR>")
+                .append("        <TD>").append(graph.getName(node)).append("</TD>")
+                .append("    </TR>")
+                .append("    ");
+        ArtifactWeight weight = graph.getWeight(node);
+        if (weight != null) {
+            if (!graph.isProject(node)) {
+                buffer.append("<TR><TD>");
+                appendWeight(weight);
+                buffer.append("</TD></TR>");
+            }
+            buffer.append("<TR><TD>subtree: ")
+                    .append(ArtifactWeight.formatSize(graph.getSubtreeSize(node)))
+                    .append("</TD></TR>");
+        }
+        for (ArtifactInfo artifact : artifacts) {
+            buffer.append("<TR><TD BGCOLOR=\"lightgrey\">");
+            boolean first = true;
+            first = appendAttribute("type", artifact.getType(), first);
+            first = appendAttribute("classifier", artifact.getClassifier(), first);
+            if (!Objects.equals(artifact.getExtension(), artifact.getType())) {
+                appendAttribute("extension", artifact.getExtension(), first);
+            }
+            buffer.append("</TD></TR>");
+        }
+        buffer.append("</TABLE>>");
+    }
+
+    private void appendWeight(ArtifactWeight weight) {
+        buffer.append(ArtifactWeight.formatSize(weight.getSize()))
+                .append(", ").append(weight.getClassCount()).append(" classes, ")
+                .append(weight.getResourceCount()).append(" resources");
+        if (weight.hasClassUsage()) {
+            buffer.append(", ").append(weight.getLoadedClassCount()).append(" loaded (")
+                    .append(Math.round(weight.getLoadedClassRatio() * 100)).append("%)");
+        }
+    }
+
+    // goes from red for the modules none of whose classes is loaded to green for the ones entirely loaded,
+    // modules without classes are left grey
+    private static String usageColor(ArtifactWeight weight) {
+        if (weight.getClassCount() == 0) return "#dddddd";
+        double ratio = weight.getLoadedClassRatio();
+        int red = (int) Math.round(0xff - (0xff - 0x88) * ratio);
+        int green = (int) Math.round(0x88 + (0xff - 0x88) * ratio);
+        return String.format("#%02x%02x88", red, green);
+    }
+
+    // goes from light yellow for the lightest subtree to red for the heaviest one, on a logarithmic scale
+    private String gradeColor(long subtreeSize) {
+        double ratio = maxWeight == minWeight ? 0 : (Math.log1p(subtreeSize) - minWeight) / (maxWeight - minWeight);
+        int green = (int) Math.round(LIGHT_GREEN + (HEAVY_GREEN - LIGHT_GREEN) * ratio);
+        int blue = (int) Math.round(LIGHT_BLUE + (HEAVY_BLUE - LIGHT_BLUE) * ratio);
+        return String.format("#ff%02x%02x", green, blue);
+    }
+
+    private boolean appendAttribute(String key, String value, boolean first) {
+        if (value == null || value.isEmpty()) return first;
+        if (!first) buffer.append(", ");
+        buffer.append(key).append(": ").append(value);
+        return false;
+    }
+
+    @Override
+    protected void writeFooter(DependencyGraph graph) {
+        if (clusterProjects) {
+            for (int project = 0; project < graph.getNodeCount(); project++) {
+                if (!graph.isProject(project)) continue;
+                buffer.append("    subgraph cluster_").append(project).append(" {\n")
+                        .append("        label=\"").append(graph.getProjectPath(project)).append("\";\n")
+                        .append("        style=\"rounded,dashed\";\n");
+                for (int node = 0; node < owners.length; node++) {
+                    if (owners[node] == project) buffer.append("        node_").append(node).append(";\n");
+                }
+                buffer.append("    }\n");
+            }
+        }
+        buffer.append("}\n");
+    }
+}
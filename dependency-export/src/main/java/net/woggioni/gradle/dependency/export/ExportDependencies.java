@@ -1,22 +1,24 @@
 package net.woggioni.gradle.dependency.export;
 
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.artifacts.ArtifactCollection;
+import org.gradle.api.artifacts.ArtifactView;
 import org.gradle.api.artifacts.Configuration;
-import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.ConfigurationContainer;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
-import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
 import org.gradle.api.artifacts.result.DependencyResult;
-import org.gradle.api.artifacts.result.ResolutionResult;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
 import org.gradle.api.artifacts.result.ResolvedComponentResult;
 import org.gradle.api.artifacts.result.ResolvedDependencyResult;
 import org.gradle.api.artifacts.result.UnresolvedDependencyResult;
-import org.gradle.api.file.FileCollection;
+import org.gradle.api.attributes.LibraryElements;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.RegularFile;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
@@ -24,14 +26,19 @@ import org.gradle.api.plugins.BasePluginExtension;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.plugins.ReportingBasePlugin;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
 import org.gradle.api.tasks.CacheableTask;
-import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.options.Option;
 
@@ -40,18 +47,17 @@ import java.io.File;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collector;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static net.woggioni.gradle.dependency.export.DependencyExportPlugin.DEPENDENCY_EXPORT_GROUP;
 
@@ -61,15 +67,13 @@ public class ExportDependencies extends DefaultTask {
     @Getter(onMethod_ = { @Input })
     private final Property<String> configurationName;
 
+    @Getter(onMethod_ = { @Input })
+    private final ListProperty<String> configurationNames;
+
     @Getter
     @Internal
     private final RegularFileProperty outputFile;
 
-    @Input
-    public String getDestination() {
-        return outputFile.map(RegularFile::getAsFile).map(File::getAbsolutePath).get();
-    }
-
     @OutputFile
     public Provider<File> getResult() {
         return outputFile.map(RegularFile::getAsFile);
@@ -78,10 +82,102 @@ public class ExportDependencies extends DefaultTask {
     @Getter(onMethod_ = { @Input })
     private final Property<Boolean> showArtifacts;
 
-    @InputFiles
-    @Classpath
-    public Provider<FileCollection> getConfigurationFiles() {
-        return configurationName.map(this::fetchConfiguration);
+    @Getter(onMethod_ = { @Input })
+    private final Property<Boolean> showWeights;
+
+    @Getter(onMethod_ = { @Input })
+    private final Property<ExportFormat> exportFormat;
+
+    @Getter(onMethod_ = { @OutputFile, @org.gradle.api.tasks.Optional })
+    private final RegularFileProperty timingFile;
+
+    @Getter(onMethod_ = { @OutputFile, @org.gradle.api.tasks.Optional })
+    private final RegularFileProperty conflictReportFile;
+
+    @Getter(onMethod_ = { @Input })
+    private final Property<Boolean> transitiveReduction;
+
+    @Getter(onMethod_ = { @Input, @org.gradle.api.tasks.Optional })
+    private final Property<Integer> maxDepth;
+
+    @Getter(onMethod_ = { @Input })
+    private final ListProperty<String> includes;
+
+    @Getter(onMethod_ = { @Input })
+    private final ListProperty<String> excludes;
+
+    @Getter(onMethod_ = { @Input })
+    private final ListProperty<String> collapsedGroups;
+
+    @Getter(onMethod_ = { @Input, @org.gradle.api.tasks.Optional })
+    private final Property<String> why;
+
+    // class loading logs or JFR recordings of the application, see ClassUsage
+    @Getter(onMethod_ = { @InputFiles, @PathSensitive(PathSensitivity.NONE) })
+    private final ConfigurableFileCollection classUsageLogs;
+
+    @Getter(onMethod_ = { @OutputFile, @org.gradle.api.tasks.Optional })
+    private final RegularFileProperty classUsageReportFile;
+
+    // the jars of the external modules, when their artifacts, weights or class usage are exported:
+    // a rebuilt jar (e.g. a snapshot) can have the same name and size with a different content
+    @Getter(onMethod_ = { @InputFiles, @PathSensitive(PathSensitivity.NONE) })
+    private final ConfigurableFileCollection artifactFiles;
+
+    private final String projectPath;
+
+    private long resolutionTime;
+
+    // keyed by configuration name
+    @Getter
+    @Internal
+    private final MapProperty<String, ResolvedComponentResult> rootComponents;
+
+    @Getter
+    @Internal
+    private final MapProperty<String, ArtifactCollection> artifactCollections;
+
+    @Getter(onMethod_ = { @Input, @org.gradle.api.tasks.Optional })
+    private final Property<String> libraryElements;
+
+    @Getter
+    @Internal
+    private final Property<DependencyGraphService> graphService;
+
+    // whether the graph is shared through DependencyGraphService, the exports used internally by other tasks
+    // do not publish theirs
+    @Getter
+    @Internal
+    private final Property<Boolean> publishGraph;
+
+    // the resolved graph is computed once, when the inputs are fingerprinted, and reused by the task action
+    private transient Map<String, List<ResolvedComponentResult>> components;
+    private transient Map<ComponentIdentifier, List<ArtifactInfo>> artifactMap;
+    private transient Map<ComponentIdentifier, List<File>> fileMap;
+    private transient String graphHash;
+
+    @Input
+    public String getGraphHash() {
+        if (graphHash == null) {
+            long start = System.nanoTime();
+            Map<String, ResolvedComponentResult> roots = rootComponents.get();
+            components = new LinkedHashMap<>();
+            for (String name : configurationNames.get()) {
+                components.put(name, collectComponents(roots.get(name)));
+            }
+            artifactMap = showArtifacts.get() ? new HashMap<>() : null;
+            // the number of classes of every jar is needed to tell how many of them are loaded
+            fileMap = showWeights.get() || !classUsageLogs.isEmpty() ? new HashMap<>() : null;
+            if (artifactMap != null || fileMap != null) {
+                Map<String, ArtifactCollection> collections = artifactCollections.get();
+                for (String name : configurationNames.get()) {
+                    collectArtifacts(collections.get(name).getArtifacts());
+                }
+            }
+            graphHash = GraphFingerprint.compute(components, artifactMap, fileMap);
+            resolutionTime = System.nanoTime() - start;
+        }
+        return graphHash;
     }
 
     @Option(option = "configuration", description = "Set the configuration name")
@@ -89,6 +185,12 @@ public class ExportDependencies extends DefaultTask {
         this.configurationName.set(configurationName);
     }
 
+    @Option(option = "configurations", description = "Export several configurations in a single graph, " +
+            "tagging every node and edge with the configurations it belongs to")
+    public void setConfigurations(List<String> configurationNames) {
+        this.configurationNames.set(configurationNames);
+    }
+
     @Option(option = "output", description = "Set the output file name")
     public void setOutput(String outputFile) {
         Provider<File> fileProvider = getProject().provider(() -> new File(outputFile));
@@ -100,23 +202,169 @@ public class ExportDependencies extends DefaultTask {
         showArtifacts.set(value);
     }
 
+    @Option(option = "showWeights", description = "Show the size, class and resource count of each artifact " +
+            "and the total size of the artifacts that are only reachable through it")
+    public void setWeights(boolean value) {
+        showWeights.set(value);
+    }
+
+    @Option(option = "format", description = "Set the export format")
+    public void setFormat(ExportFormat value) {
+        exportFormat.set(value);
+    }
+
+    @Option(option = "transitiveReduction", description = "Remove the edges implied by other paths in the graph")
+    public void setTransitiveReduction(boolean value) {
+        transitiveReduction.set(value);
+    }
+
+    @Option(option = "maxDepth", description = "Only export the nodes within the given distance from the root")
+    public void setMaxDepth(String value) {
+        int depth;
+        try {
+            depth = Integer.parseInt(value.trim());
+        } catch (NumberFormatException nfe) {
+            depth = -1;
+        }
+        if (depth < 0) {
+            throw new GradleException(String.format(
+                    "Invalid value '%s' for option '--maxDepth', a non-negative integer is expected", value));
+        }
+        maxDepth.set(depth);
+    }
+
+    @Option(option = "include", description = "Only export the modules whose 'group:name' matches one of these regular expressions, " +
+            "together with the paths leading to them")
+    public void setInclude(List<String> value) {
+        includes.set(value);
+    }
+
+    @Option(option = "exclude", description = "Remove the modules whose 'group:name' matches one of these regular expressions " +
+            "and whatever is only reachable through them")
+    public void setExclude(List<String> value) {
+        excludes.set(value);
+    }
+
+    @Option(option = "conflictReport", description = "Write a summary of the modules selected with a version " +
+            "different from the requested one to this file")
+    public void setConflictReport(String conflictReportFile) {
+        Provider<File> fileProvider = getProject().provider(() -> new File(conflictReportFile));
+        this.conflictReportFile.set(getProject().getLayout().file(fileProvider));
+    }
+
+    @Option(option = "why", description = "Only export the shortest paths leading to this module " +
+            "('group:module', 'group:module:version' or a project path)")
+    public void setWhy(String value) {
+        why.set(value);
+    }
+
+    @Option(option = "classUsageLog", description = "Color every module by the fraction of its classes loaded " +
+            "at runtime, according to these class loading logs ('-Xlog:class+load') or JFR recordings")
+    public void setClassUsageLog(List<String> paths) {
+        classUsageLogs.from(paths);
+    }
+
+    @Option(option = "libraryElements", description = "Select the artifacts of this library elements variant " +
+            "(e.g. 'jar' or 'classes') when showing artifacts or weights")
+    public void setLibraryElements(String value) {
+        libraryElements.set(value);
+    }
+
+    @Option(option = "collapseGroup", description = "Merge all the modules whose group matches one of these regular expressions " +
+            "in a single node")
+    public void setCollapseGroup(List<String> value) {
+        collapsedGroups.set(value);
+    }
+
     @Inject
     public ExportDependencies(ObjectFactory objects) {
         setGroup(DEPENDENCY_EXPORT_GROUP);
         configurationName = objects.property(String.class).convention(JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME);
         final JavaPluginExtension javaPluginExtension = getProject().getExtensions().findByType(JavaPluginExtension.class);
-        final Provider<RegularFile> defaultOutputFileProvider = javaPluginExtension.getDocsDir().file("dependencies.dot");
+        exportFormat = objects.property(ExportFormat.class).convention(ExportFormat.DOT);
+        final Provider<RegularFile> defaultOutputFileProvider = javaPluginExtension.getDocsDir()
+                .file(exportFormat.map(format -> "dependencies." + format.getFileExtension()));
         outputFile = objects.fileProperty().convention(defaultOutputFileProvider);
         showArtifacts = objects.property(Boolean.class).convention(false);
+        showWeights = objects.property(Boolean.class).convention(false);
+        timingFile = objects.fileProperty();
+        conflictReportFile = objects.fileProperty();
+        transitiveReduction = objects.property(Boolean.class).convention(false);
+        maxDepth = objects.property(Integer.class);
+        includes = objects.listProperty(String.class).convention(Collections.emptyList());
+        excludes = objects.listProperty(String.class).convention(Collections.emptyList());
+        collapsedGroups = objects.listProperty(String.class).convention(Collections.emptyList());
+        libraryElements = objects.property(String.class);
+        why = objects.property(String.class);
+        classUsageLogs = objects.fileCollection();
+        classUsageReportFile = objects.fileProperty();
+        // the paths are only printed when the task runs
+        getOutputs().upToDateWhen(Specs.negate(new HasWhyQuery()));
+        getOutputs().doNotCacheIf("a why query is printed", new HasWhyQuery());
+        // the wall clock times of a build cannot be reused by another one
+        getOutputs().upToDateWhen(Specs.negate(new HasTimingFile()));
+        getOutputs().doNotCacheIf("the resolution and export times are recorded", new HasTimingFile());
+        projectPath = getProject().getPath();
+        final Provider<DependencyGraphService> registeredGraphService =
+                DependencyGraphService.register(getProject().getGradle());
+        graphService = objects.property(DependencyGraphService.class).convention(registeredGraphService);
+        usesService(registeredGraphService);
+        publishGraph = objects.property(Boolean.class).convention(true);
+
+        // configurations are looked up lazily so that they can still be changed from the command line,
+        // their resolution results and artifact collections are then stored in the configuration cache
+        // in place of the configurations themselves
+        configurationNames = objects.listProperty(String.class).convention(
+                configurationName.map(Collections::singletonList));
+        final ConfigurationContainer configurations = getProject().getConfigurations();
+        rootComponents = objects.mapProperty(String.class, ResolvedComponentResult.class).convention(
+                configurationNames.map(names -> {
+                    Map<String, ResolvedComponentResult> result = new LinkedHashMap<>();
+                    for (String name : names) {
+                        result.put(name, fetchConfiguration(configurations, name)
+                                .getIncoming().getResolutionResult().getRootComponent().get());
+                    }
+                    return result;
+                }));
+        artifactCollections = objects.mapProperty(String.class, ArtifactCollection.class).convention(
+                configurationNames.map(names -> {
+                    Map<String, ArtifactCollection> result = new LinkedHashMap<>();
+                    for (String name : names) {
+                        result.put(name, artifactView(objects, fetchConfiguration(configurations, name)).getArtifacts());
+                    }
+                    return result;
+                }));
+        artifactFiles = objects.fileCollection();
+        artifactFiles.from(artifactCollections.map(collections -> {
+            List<File> result = new ArrayList<>();
+            if (showArtifacts.get() || showWeights.get() || !classUsageLogs.isEmpty()) {
+                for (ArtifactCollection collection : collections.values()) {
+                    for (ResolvedArtifactResult artifact : collection.getArtifacts()) {
+                        if (artifact.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier) {
+                            result.add(artifact.getFile());
+                        }
+                    }
+                }
+            }
+            return result;
+        }));
     }
 
-    private static String quote(String s) {
-        return "\"" + s + "\"";
+    // the artifact view reuses the resolution result of the configuration, selecting a different variant
+    // does not trigger another resolution; components without a matching variant are left without artifacts
+    private ArtifactView artifactView(ObjectFactory objects, Configuration configuration) {
+        return configuration.getIncoming().artifactView(view -> {
+            if (libraryElements.isPresent()) {
+                view.lenient(true);
+                view.attributes(attributes -> attributes.attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE,
+                        objects.named(LibraryElements.class, libraryElements.get())));
+            }
+        });
     }
-    
-    private Configuration fetchConfiguration(String configurationName) {
-        return Optional.ofNullable(getProject().getConfigurations().findByName(configurationName)).orElseThrow(() -> {
-            String resolvableConfigurations = '[' + getProject().getConfigurations().stream()
+
+    private static Configuration fetchConfiguration(ConfigurationContainer configurations, String configurationName) {
+        return Optional.ofNullable(configurations.findByName(configurationName)).orElseThrow(() -> {
+            String resolvableConfigurations = '[' + configurations.stream()
                     .filter(Configuration::isCanBeResolved)
                     .map(it -> '\'' + it.getName() + '\'')
                     .collect(Collectors.joining(", ")) + ']';
@@ -125,113 +373,271 @@ public class ExportDependencies extends DefaultTask {
         });
     }
 
+    static List<ResolvedComponentResult> collectComponents(ResolvedComponentResult root) {
+        List<ResolvedComponentResult> result = new ArrayList<>();
+        Set<ComponentIdentifier> visited = new HashSet<>();
+        visited.add(root.getId());
+        result.add(root);
+        for (int i = 0; i < result.size(); i++) {
+            for (DependencyResult dependency : result.get(i).getDependencies()) {
+                if (dependency instanceof ResolvedDependencyResult) {
+                    ResolvedComponentResult selected = ((ResolvedDependencyResult) dependency).getSelected();
+                    if (visited.add(selected.getId())) {
+                        result.add(selected);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // joins artifacts to their components in a single pass, when the same component is part of several
+    // configurations the artifacts of the first one are kept;
+    // project artifacts are left out of the weights since they might not have been built yet
+    private void collectArtifacts(Set<ResolvedArtifactResult> artifacts) {
+        Map<ComponentIdentifier, List<ArtifactInfo>> configurationArtifacts = new HashMap<>();
+        Map<ComponentIdentifier, List<File>> configurationFiles = new HashMap<>();
+        for (ResolvedArtifactResult resolvedArtifact : artifacts) {
+            ComponentIdentifier id = resolvedArtifact.getId().getComponentIdentifier();
+            if (artifactMap != null) {
+                configurationArtifacts.computeIfAbsent(id, it -> new ArrayList<>()).add(ArtifactInfo.of(resolvedArtifact));
+            }
+            if (fileMap != null && id instanceof ModuleComponentIdentifier) {
+                configurationFiles.computeIfAbsent(id, it -> new ArrayList<>()).add(resolvedArtifact.getFile());
+            }
+        }
+        if (artifactMap != null) {
+            configurationArtifacts.forEach(artifactMap::putIfAbsent);
+        }
+        if (fileMap != null) {
+            configurationFiles.forEach(fileMap::putIfAbsent);
+        }
+    }
+
     @TaskAction
     @SneakyThrows
     public void run() { 
-        Configuration requestedConfiguration = fetchConfiguration(configurationName.get());
-        ResolutionResult resolutionResult = requestedConfiguration.getIncoming().getResolutionResult();
+        long start = System.nanoTime();
+        getGraphHash();
         Path destination = outputFile.map(RegularFile::getAsFile).map(File::toPath).get();
-        doStuff(requestedConfiguration, resolutionResult, destination);
+        doStuff(destination);
+        long exportTime = System.nanoTime() - start;
+        if (timingFile.isPresent()) {
+            Path timingPath = timingFile.get().getAsFile().toPath();
+            Files.createDirectories(timingPath.getParent());
+            try (Writer writer = Files.newBufferedWriter(timingPath)) {
+                writer.write(projectPath + '\t' +
+                        TimeUnit.NANOSECONDS.toMillis(resolutionTime) + '\t' +
+                        TimeUnit.NANOSECONDS.toMillis(exportTime) + '\n');
+            }
+        }
     }
 
+    // the complete graph, before any reduction, shared through DependencyGraphService;
+    // the resolution results are released as soon as it is built
     @SneakyThrows
-    private void doStuff(Configuration requestedConfiguration, ResolutionResult resolutionResult, Path destination) {
-        Map<ResolvedComponentResult, Integer> map = new HashMap<>();
-        Files.createDirectories(destination.getParent());
-        try(Writer writer = Files.newBufferedWriter(destination)) {
-            writer.write("digraph G {");
-            writer.write('\n');
-            writer.write("    #rankdir=\"LR\";");
-            writer.write('\n');
-            Optional<Map<ComponentIdentifier, List<ResolvedArtifact>>> artifactMap = Optional.empty();
-            if(showArtifacts.get()) {
-                artifactMap = Optional.of(requestedConfiguration.getResolvedConfiguration().getResolvedArtifacts().stream().map(it ->
-                        new AbstractMap.SimpleEntry<>(it.getId().getComponentIdentifier(), it)
-                ).collect(Collectors.groupingBy(Map.Entry::getKey,
-                        Collector.of(ArrayList::new,
-                                (list, entry) -> list.add(entry.getValue()),
-                                (l1, l2) -> { l1.addAll(l2); return l1; }))));
+    private DependencyGraph dependencyGraph() {
+        String variant = graphVariant();
+        Map<ComponentIdentifier, ArtifactWeight> weightMap = fileMap != null ? JarScanner.scan(fileMap) : null;
+        if (!classUsageLogs.isEmpty()) {
+            ClassUsage.count(fileMap, classUsageLogs.getFiles()).forEach((id, loadedClasses) ->
+                    weightMap.computeIfPresent(id, (it, weight) -> weight.withLoadedClasses(loadedClasses)));
+        }
+        DependencyGraph graph = buildGraph(components, artifactMap, weightMap);
+        components = null;
+        artifactMap = null;
+        fileMap = null;
+        if (publishGraph.get()) {
+            graphService.get().publish(projectPath, configurationNames.get(), variant, graph);
+        }
+        return graph;
+    }
+
+    // the data attached to the graph besides its nodes and edges
+    private String graphVariant() {
+        List<String> parts = new ArrayList<>();
+        if (artifactMap != null) parts.add("artifacts");
+        if (fileMap != null) parts.add("weights");
+        if (!classUsageLogs.isEmpty()) parts.add("classUsage");
+        if (libraryElements.isPresent()) parts.add("libraryElements=" + libraryElements.get());
+        return parts.isEmpty() ? "plain" : String.join(",", parts);
+    }
+
+    @SneakyThrows
+    private void doStuff(Path destination) {
+        DependencyGraph graph = dependencyGraph();
+        if (conflictReportFile.isPresent()) {
+            writeConflictReport(graph, conflictReportFile.get().getAsFile().toPath());
+        }
+        if (!classUsageLogs.isEmpty() && classUsageReportFile.isPresent()) {
+            writeClassUsageReport(graph, classUsageReportFile.get().getAsFile().toPath());
+        }
+        if (why.isPresent()) {
+            graph = GraphReduction.shortestPaths(graph, why.get());
+            if (graph == null) {
+                throw new GradleException(String.format("'%s' is not part of %s",
+                        why.get(), describeConfigurations()));
             }
-            final int[] sequence = new int[1];
-            for (ResolvedComponentResult component : resolutionResult.getAllComponents()) {
-                map.computeIfAbsent(component, it -> sequence[0]++);
-                ComponentIdentifier id = component.getId();
-                Optional<List<ResolvedArtifact>> artifacts = artifactMap
-                        .flatMap(it -> Optional.ofNullable(it.get(id)));
-                String componentName = id.getDisplayName();
-                String label = artifacts.map(it -> {
-                    String rows = it.stream().map(resolvedArtifact -> {
-                        String artifactDescription = Stream.of(
-                                new AbstractMap.SimpleEntry<>("type", resolvedArtifact.getType()),
-                                new AbstractMap.SimpleEntry<>("classifier", resolvedArtifact.getClassifier()),
-                                new AbstractMap.SimpleEntry<>("extension",
-                                        !Objects.equals(resolvedArtifact.getExtension(), resolvedArtifact.getType()) ?
-                                                resolvedArtifact.getExtension() : null)
-                        ).map(entry -> {
-                            if (entry.getValue() == null || entry.getValue().isEmpty()) return null;
-                            else return entry.getKey() + ": " + entry.getValue();
-                        }).collect(Collectors.joining(", "));
-                        return "<TR><TD BGCOLOR=\"lightgrey\">" + artifactDescription + "</TD></TR>";
-                    }).collect(Collectors.joining());
-                    return "<<TABLE BORDER=\"0\" CELLBORDER=\"1\" CELLSPACING=\"0\" CELLPADDING=\"2\">" +
-                            "    <TR>" +
-                            "        <TD>" + id.getDisplayName() + "</TD>" +
-                            "    </TR>" +
-                            "    " + rows +
-                            "</TABLE>>";
-                }).orElse(quote(componentName));
-
-                String shape;
-                String color;
-                if(id instanceof ProjectComponentIdentifier) {
-                    shape = !artifacts.isPresent() ? "box" : "none";
-                    color = "#88ff88";
-                } else if(id instanceof ModuleComponentIdentifier) {
-                    shape = !artifacts.isPresent() ? "oval" : "none";
-                    color = "#ffff88";
-                } else {
-                    throw new IllegalArgumentException(id.getClass().getName());
-                }
-                Map<String, String> attrs = Stream.of(
-                        new AbstractMap.SimpleEntry<>("label", label),
-                        new AbstractMap.SimpleEntry<>("shape", quote(shape)),
-                        new AbstractMap.SimpleEntry<>("style", quote("filled")),
-                        artifacts.map(it -> new AbstractMap.SimpleEntry<>("margin", quote("0"))).orElse(null),
-                        new AbstractMap.SimpleEntry<>("fillcolor",  quote(color))
-                ).filter(Objects::nonNull).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-                writer.write("    node_" + map.get(component) + " [" +
-                        attrs.entrySet().stream()
-                                .map(it -> it.getKey() + '=' + it.getValue())
-                                .collect(Collectors.joining(", ")) +
-                        "];");
-                writer.write('\n');
+            logPaths(graph, why.get());
+        }
+        GraphReduction reduction = new GraphReduction(includes.get(), excludes.get(), collapsedGroups.get(),
+                maxDepth.getOrNull(), transitiveReduction.get());
+        if (!reduction.isEmpty()) {
+            int nodeCount = graph.getNodeCount();
+            int edgeCount = graph.getEdgeCount();
+            graph = reduction.reduce(graph);
+            getLogger().info("Reduced dependency graph from {} nodes and {} edges to {} nodes and {} edges",
+                    nodeCount, edgeCount, graph.getNodeCount(), graph.getEdgeCount());
+        }
+        GraphWriter.write(graph, exportFormat.get(), destination);
+    }
+
+    @SneakyThrows
+    private void writeConflictReport(DependencyGraph graph, Path destination) {
+        Files.createDirectories(destination.getParent());
+        try (Writer writer = Files.newBufferedWriter(destination)) {
+            VersionConflicts.writeReport(graph, writer);
+        }
+        int conflicts = VersionConflicts.count(graph);
+        if (conflicts > 0) {
+            getLogger().lifecycle("Requested versions replaced by conflict resolution in {}: {}, " +
+                    "see {}", describeConfigurations(), conflicts, destination);
+        }
+    }
+
+    @SneakyThrows
+    private void writeClassUsageReport(DependencyGraph graph, Path destination) {
+        Files.createDirectories(destination.getParent());
+        try (Writer writer = Files.newBufferedWriter(destination)) {
+            ClassUsage.writeReport(graph, writer);
+        }
+        int modules = 0;
+        int unused = 0;
+        long unusedSize = 0;
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            ArtifactWeight weight = graph.getWeight(node);
+            if (graph.isProject(node) || weight.getClassCount() == 0) continue;
+            ++modules;
+            if (weight.getLoadedClassCount() == 0) {
+                ++unused;
+                unusedSize += weight.getSize();
             }
+        }
+        getLogger().lifecycle("{} of the {} modules of {} with classes never had one loaded ({}), see {}",
+                unused, modules, describeConfigurations(), ArtifactWeight.formatSize(unusedSize), destination);
+    }
 
-            @EqualsAndHashCode
-            @RequiredArgsConstructor
-            class Link {
-                final ComponentIdentifier id1;
-                final ComponentIdentifier id2;
+    private String describeConfigurations() {
+        List<String> names = configurationNames.get();
+        return (names.size() == 1 ? "configuration " : "configurations ") +
+                names.stream().map(name -> "'" + name + "'").collect(Collectors.joining(", "));
+    }
+
+    // a named class rather than a lambda capturing the task, so that it can be stored in the configuration cache
+    private static final class HasWhyQuery implements Spec<Task> {
+        @Override
+        public boolean isSatisfiedBy(Task task) {
+            return ((ExportDependencies) task).why.isPresent();
+        }
+    }
+
+    private static final class HasTimingFile implements Spec<Task> {
+        @Override
+        public boolean isSatisfiedBy(Task task) {
+            return ((ExportDependencies) task).timingFile.isPresent();
+        }
+    }
+
+    private static final int MAX_LOGGED_PATHS = 20;
+
+    private void logPaths(DependencyGraph graph, String target) {
+        List<String> paths = new ArrayList<>();
+        IntList path = new IntList(graph.getNodeCount());
+        for (int root : graph.getRoots()) {
+            collectPaths(graph, target, root, path, paths);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Shortest paths to '%s' in %s:\n", target, describeConfigurations()));
+        for (int i = 0; i < Math.min(paths.size(), MAX_LOGGED_PATHS); i++) {
+            sb.append("    ").append(paths.get(i)).append('\n');
+        }
+        if (paths.size() > MAX_LOGGED_PATHS) {
+            sb.append("    ...\n");
+        }
+        getLogger().lifecycle(sb.toString());
+    }
+
+    // the graph only contains shortest paths, hence it is acyclic and the recursion is as deep as the longest of them
+    private static void collectPaths(DependencyGraph graph, String target, int node, IntList path, List<String> paths) {
+        if (paths.size() > MAX_LOGGED_PATHS) return;
+        path.add(node);
+        if (GraphReduction.isTarget(graph, node, target)) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < path.size(); i++) {
+                if (i > 0) sb.append(" -> ");
+                sb.append(graph.getName(path.get(i)));
             }
-            Set<Link> linkCache = new HashSet<>();
-            for (ResolvedComponentResult component : resolutionResult.getAllComponents()) {
-                for(DependencyResult dependency : component.getDependencies()) {
-                    if(dependency instanceof ResolvedDependencyResult) {
+            paths.add(sb.toString());
+        }
+        for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1); edge++) {
+            collectPaths(graph, target, graph.getTarget(edge), path, paths);
+        }
+        path.removeLast();
+    }
+
+    // the requested version if it was replaced by conflict resolution, null otherwise: the versions selected
+    // for a dynamic version or a range, by a constraint or by a rule alone are not conflicts
+    private static String requestedVersion(DependencyResult dependency, ResolvedComponentResult selected) {
+        if (dependency.getRequested() instanceof ModuleComponentSelector
+                && selected.getId() instanceof ModuleComponentIdentifier
+                && selected.getSelectionReason().isConflictResolution()) {
+            String requested = ((ModuleComponentSelector) dependency.getRequested()).getVersion();
+            String selectedVersion = ((ModuleComponentIdentifier) selected.getId()).getVersion();
+            return requested.isEmpty() || requested.equals(selectedVersion) ? null : requested;
+        }
+        return null;
+    }
+
+    // components found in several configurations share a single node, with more than one configuration
+    // every node and edge is tagged with a bit for each configuration it belongs to
+    @SneakyThrows
+    static DependencyGraph buildGraph(Map<String, List<ResolvedComponentResult>> components,
+                                      Map<ComponentIdentifier, List<ArtifactInfo>> artifactMap,
+                                      Map<ComponentIdentifier, ArtifactWeight> weightMap) {
+        int expectedNodes = 0;
+        for (List<ResolvedComponentResult> configurationComponents : components.values()) {
+            expectedNodes = Math.max(expectedNodes, configurationComponents.size());
+        }
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(expectedNodes);
+        if (components.size() > 1) {
+            builder.tags(components.keySet().toArray(new String[0]));
+        }
+        int tagMask = 1;
+        for (List<ResolvedComponentResult> configurationComponents : components.values()) {
+            for (ResolvedComponentResult component : configurationComponents) {
+                ComponentIdentifier id = component.getId();
+                int node = builder.node(id);
+                builder.tag(node, tagMask);
+                if (artifactMap != null) {
+                    builder.artifacts(node, artifactMap.get(id));
+                }
+                if (weightMap != null) {
+                    builder.weight(node, weightMap.getOrDefault(id, ArtifactWeight.EMPTY));
+                }
+                for (DependencyResult dependency : component.getDependencies()) {
+                    if (dependency instanceof ResolvedDependencyResult) {
                         ResolvedComponentResult child =
                                 ((ResolvedDependencyResult) dependency).getSelected();
-                        if(linkCache.add(new Link(component.getId(), child.getId()))) {
-                            writer.write("    node_" + map.get(component) + " -> node_" + map.get(child) + ";");
-                            writer.write('\n');
-                        }
-                    } else if(dependency instanceof UnresolvedDependencyResult) {
+                        builder.edge(node, builder.node(child.getId()), requestedVersion(dependency, child), tagMask);
+                    } else if (dependency instanceof UnresolvedDependencyResult) {
                         throw ((UnresolvedDependencyResult) dependency).getFailure();
                     } else {
                         throw new IllegalArgumentException(dependency.getClass().getName());
                     }
                 }
             }
-            writer.write('}');
-            writer.write('\n');
+            tagMask <<= 1;
         }
+        return builder.build();
     }
 }
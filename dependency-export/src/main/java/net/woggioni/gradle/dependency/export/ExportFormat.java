@@ -0,0 +1,16 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public enum ExportFormat {
+    DOT("dot"),
+    JSON("json"),
+    GRAPHML("graphml"),
+    BINARY("depg"),
+    HTML("html");
+
+    @Getter
+    private final String fileExtension;
+}
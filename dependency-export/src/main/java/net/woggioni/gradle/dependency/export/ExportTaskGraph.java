@@ -0,0 +1,91 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.Getter;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionGraph;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.woggioni.gradle.dependency.export.DependencyExportPlugin.DEPENDENCY_EXPORT_GROUP;
+
+// Asks TaskGraphRecorder to export the tasks executed by the current build once it is over,
+// e.g. 'gradle build exportTaskGraph --parallel'; the output file is only written at the end of the build,
+// so it is not declared as an output and the task always runs
+public class ExportTaskGraph extends DefaultTask {
+
+    @Getter(onMethod_ = { @Input })
+    private final Property<ExportFormat> exportFormat;
+
+    @Getter
+    @Internal
+    private final RegularFileProperty outputFile;
+
+    @Getter
+    @Internal
+    private final Property<TaskGraphRecorder> recorder;
+
+    // the dependencies of every task of the build, from the task graph, stored with the task by the configuration cache
+    private Map<String, List<String>> taskDependencies = Collections.emptyMap();
+
+    @Option(option = "format", description = "Set the export format, either DOT or JSON")
+    public void setFormat(ExportFormat value) {
+        exportFormat.set(value);
+    }
+
+    @Option(option = "output", description = "Set the output file name")
+    public void setOutput(String outputFile) {
+        Provider<File> fileProvider = getProject().provider(() -> new File(outputFile));
+        this.outputFile.set(getProject().getLayout().file(fileProvider));
+    }
+
+    @Inject
+    public ExportTaskGraph(ObjectFactory objects) {
+        setGroup(DEPENDENCY_EXPORT_GROUP);
+        setDescription("Exports the tasks executed by this build with their durations and critical path");
+        exportFormat = objects.property(ExportFormat.class).convention(ExportFormat.DOT);
+        final JavaPluginExtension javaPluginExtension = getProject().getExtensions().findByType(JavaPluginExtension.class);
+        outputFile = objects.fileProperty().convention(javaPluginExtension.getDocsDir()
+                .file(exportFormat.map(format -> "task-graph." + format.getFileExtension())));
+        recorder = objects.property(TaskGraphRecorder.class);
+    }
+
+    void readTaskGraph(TaskExecutionGraph graph) {
+        Map<String, List<String>> result = new HashMap<>();
+        for (Task task : graph.getAllTasks()) {
+            List<String> dependencies = new ArrayList<>();
+            for (Task dependency : graph.getDependencies(task)) {
+                dependencies.add(dependency.getPath());
+            }
+            result.put(task.getPath(), dependencies);
+        }
+        taskDependencies = result;
+    }
+
+    @TaskAction
+    public void run() {
+        ExportFormat format = exportFormat.get();
+        if (format != ExportFormat.DOT && format != ExportFormat.JSON) {
+            throw new GradleException(String.format("The task graph can only be exported as %s or %s, not %s",
+                    ExportFormat.DOT, ExportFormat.JSON, format));
+        }
+        recorder.get().export(outputFile.map(RegularFile::getAsFile).get().toPath(), format, taskDependencies);
+    }
+}
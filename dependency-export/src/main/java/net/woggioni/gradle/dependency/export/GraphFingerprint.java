@@ -0,0 +1,98 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.SneakyThrows;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+
+final class GraphFingerprint {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final MessageDigest digest;
+
+    @SneakyThrows
+    private GraphFingerprint() {
+        digest = MessageDigest.getInstance("SHA-256");
+    }
+
+    private void update(String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+        } else {
+            digest.update((byte) 1);
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+    }
+
+    private String hex() {
+        byte[] bytes = digest.digest();
+        char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            result[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(result);
+    }
+
+    static String compute(Map<String, List<ResolvedComponentResult>> configurations,
+                          Map<ComponentIdentifier, List<ArtifactInfo>> artifactMap,
+                          Map<ComponentIdentifier, List<File>> fileMap) {
+        GraphFingerprint fingerprint = new GraphFingerprint();
+        for (Map.Entry<String, List<ResolvedComponentResult>> configuration : configurations.entrySet()) {
+            fingerprint.update("configuration");
+            fingerprint.update(configuration.getKey());
+            for (ResolvedComponentResult component : configuration.getValue()) {
+                fingerprint.add(component, artifactMap, fileMap);
+            }
+        }
+        return fingerprint.hex();
+    }
+
+    private void add(ResolvedComponentResult component,
+                     Map<ComponentIdentifier, List<ArtifactInfo>> artifactMap,
+                     Map<ComponentIdentifier, List<File>> fileMap) {
+        ComponentIdentifier id = component.getId();
+        update("node");
+        update(id.getDisplayName());
+        List<ArtifactInfo> artifacts = artifactMap == null ? null : artifactMap.get(id);
+        if (artifacts != null) {
+            for (ArtifactInfo artifact : artifacts) {
+                update("artifact");
+                update(artifact.getType());
+                update(artifact.getClassifier());
+                update(artifact.getExtension());
+            }
+        }
+        List<File> files = fileMap == null ? null : fileMap.get(id);
+        if (files != null) {
+            // the content of the jars is a task input, their names tell which component they belong to
+            for (File file : files) {
+                update("file");
+                update(file.getName());
+                update(Long.toString(file.length()));
+            }
+        }
+        for (DependencyResult dependency : component.getDependencies()) {
+            update("edge");
+            if (dependency instanceof ResolvedDependencyResult) {
+                update(((ResolvedDependencyResult) dependency).getSelected().getId().getDisplayName());
+                // the requested version ends up in the edge data and in the conflict report
+                if (dependency.getRequested() instanceof ModuleComponentSelector) {
+                    update(((ModuleComponentSelector) dependency.getRequested()).getVersion());
+                }
+            } else {
+                update(dependency.getRequested().getDisplayName());
+            }
+        }
+    }
+}
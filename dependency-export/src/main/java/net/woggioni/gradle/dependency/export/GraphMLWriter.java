@@ -0,0 +1,124 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.io.Writer;
+
+final class GraphMLWriter extends TextGraphWriter {
+
+    GraphMLWriter(Writer writer) {
+        super(writer);
+    }
+
+    @Override
+    protected void writeHeader(DependencyGraph graph) {
+        buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\"")
+                .append(" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"")
+                .append(" xsi:schemaLocation=\"http://graphml.graphdrawing.org/xmlns")
+                .append(" http://graphml.graphdrawing.org/xmlns/1.0/graphml.xsd\">\n")
+                .append("  <key id=\"name\" for=\"node\" attr.name=\"name\" attr.type=\"string\"/>\n")
+                .append("  <key id=\"kind\" for=\"node\" attr.name=\"kind\" attr.type=\"string\"/>\n")
+                .append("  <key id=\"artifacts\" for=\"node\" attr.name=\"artifacts\" attr.type=\"string\"/>\n")
+                .append("  <key id=\"size\" for=\"node\" attr.name=\"size\" attr.type=\"long\"/>\n")
+                .append("  <key id=\"classes\" for=\"node\" attr.name=\"classes\" attr.type=\"int\"/>\n")
+                .append("  <key id=\"resources\" for=\"node\" attr.name=\"resources\" attr.type=\"int\"/>\n")
+                .append("  <key id=\"subtreeSize\" for=\"node\" attr.name=\"subtreeSize\" attr.type=\"long\"/>\n")
+                .append("  <key id=\"loadedClasses\" for=\"node\" attr.name=\"loadedClasses\" attr.type=\"int\"/>\n")
+                .append("  <key id=\"requested\" for=\"edge\" attr.name=\"requested\" attr.type=\"string\"/>\n")
+                .append("  <key id=\"configurations\" for=\"all\" attr.name=\"configurations\" attr.type=\"string\"/>\n")
+                .append("  <graph id=\"G\" edgedefault=\"directed\">\n");
+    }
+
+    @Override
+    protected void writeNode(DependencyGraph graph, int node) {
+        buffer.append("    <node id=\"n").append(node).append("\">");
+        buffer.append("<data key=\"name\">");
+        appendEscaped(buffer, graph.getName(node));
+        buffer.append("</data><data key=\"kind\">").append(graph.isProject(node) ? "project" : "module").append("</data>");
+        ArtifactInfo[] artifacts = graph.getArtifacts(node);
+        if (artifacts != null) {
+            buffer.append("<data key=\"artifacts\">");
+            boolean first = true;
+            for (ArtifactInfo artifact : artifacts) {
+                if (!first) buffer.append(' ');
+                first = false;
+                appendEscaped(buffer, artifact.getType());
+                buffer.append(':');
+                appendEscaped(buffer, artifact.getClassifier());
+                buffer.append(':');
+                appendEscaped(buffer, artifact.getExtension());
+            }
+            buffer.append("</data>");
+        }
+        ArtifactWeight weight = graph.getWeight(node);
+        if (weight != null) {
+            buffer.append("<data key=\"size\">").append(weight.getSize())
+                    .append("</data><data key=\"classes\">").append(weight.getClassCount())
+                    .append("</data><data key=\"resources\">").append(weight.getResourceCount())
+                    .append("</data><data key=\"subtreeSize\">").append(graph.getSubtreeSize(node))
+                    .append("</data>");
+            if (weight.hasClassUsage()) {
+                buffer.append("<data key=\"loadedClasses\">").append(weight.getLoadedClassCount()).append("</data>");
+            }
+        }
+        if (graph.hasTags()) {
+            buffer.append("<data key=\"configurations\">");
+            appendEscaped(buffer, graph.describeTags(graph.getNodeTags(node)));
+            buffer.append("</data>");
+        }
+        buffer.append("</node>\n");
+    }
+
+    @Override
+    protected void writeEdge(DependencyGraph graph, int from, int to, int edge) {
+        buffer.append("    <edge source=\"n").append(from)
+                .append("\" target=\"n").append(to);
+        String requested = graph.getRequestedVersion(edge);
+        if (requested == null && !graph.hasTags()) {
+            buffer.append("\"/>\n");
+            return;
+        }
+        buffer.append("\">");
+        if (requested != null) {
+            buffer.append("<data key=\"requested\">");
+            appendEscaped(buffer, requested);
+            buffer.append("</data>");
+        }
+        if (graph.hasTags()) {
+            buffer.append("<data key=\"configurations\">");
+            appendEscaped(buffer, graph.describeTags(graph.getEdgeTags(edge)));
+            buffer.append("</data>");
+        }
+        buffer.append("</edge>\n");
+    }
+
+    @Override
+    protected void writeFooter(DependencyGraph graph) {
+        buffer.append("  </graph>\n</graphml>\n");
+    }
+
+    static void appendEscaped(StringBuilder sb, String value) {
+        if (value == null) return;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                case '\'':
+                    sb.append("&apos;");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+}
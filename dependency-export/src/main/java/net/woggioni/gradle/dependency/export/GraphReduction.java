@@ -0,0 +1,395 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+final class GraphReduction {
+
+    private static final String COLLAPSED_MODULE = "*";
+
+    private final List<Pattern> includes;
+    private final List<Pattern> excludes;
+    private final List<Pattern> collapsedGroups;
+    private final int maxDepth;
+    private final boolean transitiveReduction;
+
+    GraphReduction(List<String> includes, List<String> excludes, List<String> collapsedGroups,
+                   Integer maxDepth, boolean transitiveReduction) {
+        this.includes = compile(includes);
+        this.excludes = compile(excludes);
+        this.collapsedGroups = compile(collapsedGroups);
+        this.maxDepth = maxDepth == null ? -1 : maxDepth;
+        this.transitiveReduction = transitiveReduction;
+    }
+
+    private static List<Pattern> compile(List<String> regexes) {
+        if (regexes == null || regexes.isEmpty()) return Collections.emptyList();
+        List<Pattern> result = new ArrayList<>(regexes.size());
+        for (String regex : regexes) {
+            result.add(Pattern.compile(regex));
+        }
+        return result;
+    }
+
+    boolean isEmpty() {
+        return includes.isEmpty() && excludes.isEmpty() && collapsedGroups.isEmpty()
+                && maxDepth < 0 && !transitiveReduction;
+    }
+
+    DependencyGraph reduce(DependencyGraph graph) {
+        DependencyGraph result = graph;
+        if (!includes.isEmpty() || !excludes.isEmpty()) {
+            result = filter(result);
+        }
+        if (!collapsedGroups.isEmpty()) {
+            result = collapseGroups(result);
+        }
+        if (maxDepth >= 0) {
+            result = limitDepth(result, maxDepth);
+        }
+        if (transitiveReduction) {
+            result = transitiveReduction(result);
+        }
+        return result;
+    }
+
+    private static boolean matches(List<Pattern> patterns, String value) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(value).matches()) return true;
+        }
+        return false;
+    }
+
+    // drops the modules matching an exclude pattern and everything that is only reachable through them,
+    // when include patterns are present only the matching modules and the paths leading to them are kept
+    private DependencyGraph filter(DependencyGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        boolean[] allowed = new boolean[nodeCount];
+        boolean[] matched = includes.isEmpty() ? null : new boolean[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            boolean project = graph.isProject(node);
+            String key = project ? null : graph.getModuleKey(node);
+            allowed[node] = project || !matches(excludes, key);
+            if (matched != null) {
+                matched[node] = allowed[node] && (project || matches(includes, key));
+            }
+        }
+        boolean[] keep = visit(graph.getOffsets(), graph.getTargets(), graph.getRoots(), allowed);
+        if (matched != null) {
+            int[] predecessorOffsets = new int[nodeCount + 1];
+            int[] predecessors = graph.predecessors(predecessorOffsets);
+            IntList seeds = new IntList(nodeCount);
+            for (int node = 0; node < nodeCount; node++) {
+                if (matched[node]) seeds.add(node);
+            }
+            boolean[] leadsToMatch = visit(predecessorOffsets, predecessors, seeds.toArray(), allowed);
+            for (int node = 0; node < nodeCount; node++) {
+                keep[node] &= leadsToMatch[node];
+            }
+        }
+        return subgraph(graph, keep, null);
+    }
+
+    private DependencyGraph collapseGroups(DependencyGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(nodeCount);
+        if (graph.hasTags()) {
+            builder.tags(graph.getTags());
+        }
+        int[] ids = new int[nodeCount];
+        ArtifactWeight[] weights = new ArtifactWeight[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            String group = graph.getGroup(node);
+            if (group != null && matches(collapsedGroups, group)) {
+                ids[node] = builder.node(group + ':' + COLLAPSED_MODULE, DependencyGraph.KIND_MODULE);
+            } else {
+                ids[node] = builder.node(graph.getName(node), graph.getKind(node));
+                builder.artifacts(ids[node], graph.getArtifacts(node));
+            }
+            builder.tag(ids[node], graph.getNodeTags(node));
+            ArtifactWeight weight = graph.getWeight(node);
+            if (weight != null) {
+                // a collapsed group weighs as much as all of its modules together
+                weights[ids[node]] = weights[ids[node]] == null ? weight : weights[ids[node]].plus(weight);
+            }
+        }
+        for (int id = 0; id < nodeCount; id++) {
+            builder.weight(id, weights[id]);
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1); edge++) {
+                int target = ids[graph.getTarget(edge)];
+                if (ids[node] != target) {
+                    builder.edge(ids[node], target, null, graph.getEdgeTags(edge));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static DependencyGraph limitDepth(DependencyGraph graph, int maxDepth) {
+        int nodeCount = graph.getNodeCount();
+        int[] depth = new int[nodeCount];
+        Arrays.fill(depth, -1);
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        for (int root : graph.getRoots()) {
+            depth[root] = 0;
+            queue[tail++] = root;
+        }
+        boolean[] keep = new boolean[nodeCount];
+        while (head < tail) {
+            int node = queue[head++];
+            keep[node] = true;
+            if (depth[node] == maxDepth) continue;
+            for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1); edge++) {
+                int target = graph.getTarget(edge);
+                if (depth[target] < 0) {
+                    depth[target] = depth[node] + 1;
+                    queue[tail++] = target;
+                }
+            }
+        }
+        return subgraph(graph, keep, null);
+    }
+
+    // removes every edge u -> w for which w is also reachable through another dependency of u:
+    // nodes are visited in reverse topological order so that reachability is explored on the already
+    // reduced graph and the exploration started from u stops past the topological rank of its last dependency
+    // or as soon as all of its dependencies have been reached, edges closing a cycle are always preserved
+    static DependencyGraph transitiveReduction(DependencyGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        int[] rank = topologicalRanks(graph);
+        int[] byRank = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) byRank[rank[node]] = node;
+
+        int[][] reduced = new int[nodeCount][];
+        int[] reachedFrom = new int[nodeCount];
+        int[] childOf = new int[nodeCount];
+        int[] keptBy = new int[nodeCount];
+        Arrays.fill(reachedFrom, -1);
+        Arrays.fill(childOf, -1);
+        Arrays.fill(keptBy, -1);
+        int[] stack = new int[nodeCount];
+        boolean[] keepEdge = new boolean[graph.getEdgeCount()];
+        for (int r = nodeCount - 1; r >= 0; r--) {
+            int node = byRank[r];
+            int start = graph.getOffset(node);
+            int end = graph.getOffset(node + 1);
+            int[] childRanks = new int[end - start];
+            int forward = 0;
+            for (int edge = start; edge < end; edge++) {
+                int target = graph.getTarget(edge);
+                if (rank[target] > r) {
+                    childRanks[forward++] = rank[target];
+                    childOf[target] = node;
+                }
+            }
+            Arrays.sort(childRanks, 0, forward);
+            int maxRank = forward == 0 ? r : childRanks[forward - 1];
+            // number of dependencies whose redundancy is still unknown, the exploration stops once it reaches zero
+            int pending = forward;
+            IntList kept = new IntList(forward);
+            for (int i = 0; i < forward; i++) {
+                int child = byRank[childRanks[i]];
+                if (reachedFrom[child] == node) continue;
+                kept.add(child);
+                keptBy[child] = node;
+                reachedFrom[child] = node;
+                int depth = 0;
+                if (--pending > 0) stack[depth++] = child;
+                while (depth > 0) {
+                    int current = stack[--depth];
+                    for (int next : reduced[current]) {
+                        if (rank[next] <= maxRank && reachedFrom[next] != node) {
+                            reachedFrom[next] = node;
+                            if (childOf[next] == node && --pending == 0) {
+                                depth = 0;
+                                break;
+                            }
+                            stack[depth++] = next;
+                        }
+                    }
+                }
+            }
+            reduced[node] = kept.toArray();
+            for (int edge = start; edge < end; edge++) {
+                int target = graph.getTarget(edge);
+                keepEdge[edge] = rank[target] <= r || keptBy[target] == node;
+            }
+        }
+        return subgraph(graph, null, keepEdge);
+    }
+
+    static boolean isTarget(DependencyGraph graph, int node, String target) {
+        return graph.getName(node).equals(target) || graph.getModuleKey(node).equals(target);
+    }
+
+    // keeps the union of all the shortest paths from the roots to the nodes matching target
+    // ('group:module', a full coordinate or a project path): a breadth-first visit assigns a distance to
+    // every node, then a backward visit from the targets only follows edges between consecutive distances.
+    // Returns null if no reachable node matches target
+    static DependencyGraph shortestPaths(DependencyGraph graph, String target) {
+        int nodeCount = graph.getNodeCount();
+        int[] distance = new int[nodeCount];
+        Arrays.fill(distance, -1);
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        for (int root : graph.getRoots()) {
+            if (distance[root] < 0) {
+                distance[root] = 0;
+                queue[tail++] = root;
+            }
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1); edge++) {
+                int next = graph.getTarget(edge);
+                if (distance[next] < 0) {
+                    distance[next] = distance[node] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        boolean[] keepNode = new boolean[nodeCount];
+        head = 0;
+        tail = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (distance[node] >= 0 && isTarget(graph, node, target)) {
+                keepNode[node] = true;
+                queue[tail++] = node;
+            }
+        }
+        if (tail == 0) return null;
+        int[] predecessorOffsets = new int[nodeCount + 1];
+        int[] predecessors = graph.predecessors(predecessorOffsets);
+        while (head < tail) {
+            int node = queue[head++];
+            for (int i = predecessorOffsets[node]; i < predecessorOffsets[node + 1]; i++) {
+                int previous = predecessors[i];
+                if (!keepNode[previous] && distance[previous] >= 0 && distance[previous] + 1 == distance[node]) {
+                    keepNode[previous] = true;
+                    queue[tail++] = previous;
+                }
+            }
+        }
+        boolean[] keepEdge = new boolean[graph.getEdgeCount()];
+        for (int node = 0; node < nodeCount; node++) {
+            if (!keepNode[node]) continue;
+            for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1); edge++) {
+                int next = graph.getTarget(edge);
+                keepEdge[edge] = keepNode[next] && distance[next] == distance[node] + 1;
+            }
+        }
+        return subgraph(graph, keepNode, keepEdge);
+    }
+
+    private static int[] topologicalRanks(DependencyGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        int[] rank = new int[nodeCount];
+        boolean[] visited = new boolean[nodeCount];
+        int[] stack = new int[nodeCount];
+        int[] cursor = new int[nodeCount];
+        int next = nodeCount;
+        int[] roots = graph.getRoots();
+        for (int i = 0; i < roots.length + nodeCount; i++) {
+            int root = i < roots.length ? roots[i] : i - roots.length;
+            if (visited[root]) continue;
+            int depth = 0;
+            stack[depth++] = root;
+            visited[root] = true;
+            cursor[root] = graph.getOffset(root);
+            while (depth > 0) {
+                int node = stack[depth - 1];
+                if (cursor[node] < graph.getOffset(node + 1)) {
+                    int target = graph.getTarget(cursor[node]++);
+                    if (!visited[target]) {
+                        visited[target] = true;
+                        cursor[target] = graph.getOffset(target);
+                        stack[depth++] = target;
+                    }
+                } else {
+                    rank[node] = --next;
+                    --depth;
+                }
+            }
+        }
+        return rank;
+    }
+
+    private static boolean[] visit(int[] offsets, int[] targets, int[] seeds, boolean[] allowed) {
+        boolean[] visited = new boolean[allowed.length];
+        int[] stack = new int[allowed.length];
+        int depth = 0;
+        for (int seed : seeds) {
+            if (allowed[seed] && !visited[seed]) {
+                visited[seed] = true;
+                stack[depth++] = seed;
+            }
+        }
+        while (depth > 0) {
+            int node = stack[--depth];
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                int target = targets[edge];
+                if (allowed[target] && !visited[target]) {
+                    visited[target] = true;
+                    stack[depth++] = target;
+                }
+            }
+        }
+        return visited;
+    }
+
+    private static DependencyGraph subgraph(DependencyGraph graph, boolean[] keepNode, boolean[] keepEdge) {
+        int nodeCount = graph.getNodeCount();
+        int[] ids = new int[nodeCount];
+        int keptNodes = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            ids[node] = keepNode == null || keepNode[node] ? keptNodes++ : -1;
+        }
+        String[] names = new String[keptNodes];
+        byte[] kinds = new byte[keptNodes];
+        ArtifactInfo[][] artifacts = new ArtifactInfo[keptNodes][];
+        ArtifactWeight[] weights = graph.hasWeights() ? new ArtifactWeight[keptNodes] : null;
+        int[] offsets = new int[keptNodes + 1];
+        IntList targets = new IntList(graph.getEdgeCount());
+        List<String> requestedVersions = graph.hasRequestedVersions() ? new ArrayList<>() : null;
+        int[] nodeTags = graph.hasTags() ? new int[keptNodes] : null;
+        IntList edgeTags = graph.hasTags() ? new IntList(graph.getEdgeCount()) : null;
+        for (int node = 0; node < nodeCount; node++) {
+            int id = ids[node];
+            if (id < 0) continue;
+            names[id] = graph.getName(node);
+            kinds[id] = graph.getKind(node);
+            artifacts[id] = graph.getArtifacts(node);
+            if (weights != null) {
+                weights[id] = graph.getWeight(node);
+            }
+            if (nodeTags != null) {
+                nodeTags[id] = graph.getNodeTags(node);
+            }
+            for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1); edge++) {
+                int target = ids[graph.getTarget(edge)];
+                if (target >= 0 && (keepEdge == null || keepEdge[edge])) {
+                    targets.add(target);
+                    if (requestedVersions != null) {
+                        requestedVersions.add(graph.getRequestedVersion(edge));
+                    }
+                    if (edgeTags != null) {
+                        edgeTags.add(graph.getEdgeTags(edge));
+                    }
+                }
+            }
+            offsets[id + 1] = targets.size();
+        }
+        return new DependencyGraph(names, kinds, artifacts, weights, offsets, targets.toArray(),
+                requestedVersions == null ? null : requestedVersions.toArray(new String[0]),
+                graph.getTags(), nodeTags, edgeTags == null ? null : edgeTags.toArray());
+    }
+}
@@ -0,0 +1,44 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+abstract class GraphWriter implements Closeable {
+
+    static GraphWriter create(ExportFormat format, Path destination, boolean clusterProjects) throws IOException {
+        switch (format) {
+            case DOT:
+                return new DotWriter(Files.newBufferedWriter(destination), clusterProjects);
+            case JSON:
+                return new JsonGraphWriter(Files.newBufferedWriter(destination));
+            case GRAPHML:
+                return new GraphMLWriter(Files.newBufferedWriter(destination));
+            case BINARY:
+                return new BinaryGraphWriter(new BufferedOutputStream(Files.newOutputStream(destination)));
+            case HTML:
+                return new HtmlGraphWriter(Files.newBufferedWriter(destination));
+            default:
+                throw new IllegalArgumentException(format.toString());
+        }
+    }
+
+    static void write(DependencyGraph graph, ExportFormat format, Path destination) throws IOException {
+        write(graph, format, destination, false);
+    }
+
+    static void write(DependencyGraph graph, ExportFormat format, Path destination,
+                      boolean clusterProjects) throws IOException {
+        Path parent = destination.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (GraphWriter graphWriter = create(format, destination, clusterProjects)) {
+            graphWriter.write(graph);
+        }
+    }
+
+    abstract void write(DependencyGraph graph) throws IOException;
+}
@@ -0,0 +1,91 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.SneakyThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Writes a single self-contained page that embeds the graph as compact JSON (names, CSR adjacency, sizes)
+// and browses it as a lazily expanded tree drawn on a canvas, see viewer.html
+final class HtmlGraphWriter extends TextGraphWriter {
+
+    private static final String PLACEHOLDER = "/*@GRAPH@*/null";
+
+    private static final String[] TEMPLATE = loadTemplate();
+
+    HtmlGraphWriter(Writer writer) {
+        super(writer);
+    }
+
+    @SneakyThrows
+    private static String[] loadTemplate() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (InputStream is = HtmlGraphWriter.class.getResourceAsStream("viewer.html")) {
+            byte[] chunk = new byte[0x2000];
+            int read;
+            while ((read = is.read(chunk)) >= 0) {
+                bos.write(chunk, 0, read);
+            }
+        }
+        String template = new String(bos.toByteArray(), StandardCharsets.UTF_8);
+        int index = template.indexOf(PLACEHOLDER);
+        return new String[] { template.substring(0, index), template.substring(index + PLACEHOLDER.length()) };
+    }
+
+    @Override
+    protected void writeHeader(DependencyGraph graph) {
+        buffer.append(TEMPLATE[0]).append("{\"names\":[");
+    }
+
+    @Override
+    protected void writeNode(DependencyGraph graph, int node) {
+        if (node > 0) buffer.append(',');
+        int start = buffer.length();
+        JsonGraphWriter.appendString(buffer, graph.getName(node));
+        // a name must never be able to close the script element
+        for (int i = buffer.length() - 1; i >= start; i--) {
+            if (buffer.charAt(i) == '<') buffer.replace(i, i + 1, "\\u003c");
+        }
+    }
+
+    @Override
+    protected void writeEdge(DependencyGraph graph, int from, int to, int edge) {
+        buffer.append(edge == 0 ? "],\"targets\":[" : ",").append(to);
+    }
+
+    @Override
+    protected void writeFooter(DependencyGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        if (graph.getEdgeCount() == 0) {
+            buffer.append("],\"targets\":[");
+        }
+        buffer.append("],\"kinds\":\"");
+        for (int node = 0; node < nodeCount; node++) {
+            buffer.append(graph.isProject(node) ? 'p' : 'm');
+        }
+        buffer.append("\",\"offsets\":[");
+        int[] offsets = graph.getOffsets();
+        for (int node = 0; node <= nodeCount; node++) {
+            if (node > 0) buffer.append(',');
+            buffer.append(offsets[node]);
+        }
+        buffer.append(']');
+        if (graph.hasWeights()) {
+            buffer.append(",\"sizes\":[");
+            for (int node = 0; node < nodeCount; node++) {
+                if (node > 0) buffer.append(',');
+                ArtifactWeight weight = graph.getWeight(node);
+                buffer.append(weight == null ? 0 : weight.getSize());
+            }
+            buffer.append("],\"subtreeSizes\":[");
+            for (int node = 0; node < nodeCount; node++) {
+                if (node > 0) buffer.append(',');
+                buffer.append(graph.getSubtreeSize(node));
+            }
+            buffer.append(']');
+        }
+        buffer.append('}').append(TEMPLATE[1]);
+    }
+}
@@ -0,0 +1,46 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.util.Arrays;
+
+final class IntList {
+    private int[] elements;
+    private int size;
+
+    IntList() {
+        this(16);
+    }
+
+    IntList(int initialCapacity) {
+        elements = new int[Math.max(1, initialCapacity)];
+    }
+
+    void add(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size << 1);
+        }
+        elements[size++] = value;
+    }
+
+    int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException(Integer.toString(index));
+        return elements[index];
+    }
+
+    void set(int index, int value) {
+        if (index >= size) throw new IndexOutOfBoundsException(Integer.toString(index));
+        elements[index] = value;
+    }
+
+    int removeLast() {
+        if (size == 0) throw new IndexOutOfBoundsException("0");
+        return elements[--size];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+}
@@ -0,0 +1,205 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.SneakyThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Reads the number of classes and resources of a jar file from its zip central directory,
+// without reading (let alone inflating) any of its entries
+final class JarScanner {
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+    private static final byte[] CLASS_SUFFIX = {'.', 'c', 'l', 'a', 's', 's'};
+    private static final byte[] VERSIONS_PREFIX = "META-INF/versions/".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MODULE_INFO = "module-info.class".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PACKAGE_INFO = "package-info.class".getBytes(StandardCharsets.UTF_8);
+
+    private JarScanner() {
+    }
+
+    static <K> Map<K, ArtifactWeight> scan(Map<K, List<File>> files) {
+        List<File> allFiles = new ArrayList<>();
+        for (List<File> fileList : files.values()) {
+            allFiles.addAll(fileList);
+        }
+        Map<File, ArtifactWeight> weights = new ConcurrentHashMap<>();
+        allFiles.parallelStream().distinct().forEach(file -> weights.put(file, scan(file.toPath())));
+        Map<K, ArtifactWeight> result = new HashMap<>();
+        for (Map.Entry<K, List<File>> entry : files.entrySet()) {
+            ArtifactWeight total = ArtifactWeight.EMPTY;
+            for (File file : entry.getValue()) {
+                total = total.plus(weights.get(file));
+            }
+            result.put(entry.getKey(), total);
+        }
+        return result;
+    }
+
+    @SneakyThrows
+    static ArtifactWeight scan(Path path) {
+        if (!Files.isRegularFile(path)) return ArtifactWeight.EMPTY;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer centralDirectory = locateCentralDirectory(channel, size);
+            if (centralDirectory == null) {
+                return new ArtifactWeight(size, 0, 0);
+            }
+            // the classes of a multi-release jar are counted once, whatever the number of releases
+            // they are compiled for, by the hash of their name
+            LongHashSet classes = new LongHashSet();
+            int resources = 0;
+            while (centralDirectory.remaining() >= CENTRAL_DIRECTORY_HEADER_SIZE) {
+                int position = centralDirectory.position();
+                if (centralDirectory.getInt(position) != CENTRAL_DIRECTORY_HEADER) break;
+                int nameLength = centralDirectory.getShort(position + 28) & 0xffff;
+                int extraLength = centralDirectory.getShort(position + 30) & 0xffff;
+                int commentLength = centralDirectory.getShort(position + 32) & 0xffff;
+                int nameEnd = position + CENTRAL_DIRECTORY_HEADER_SIZE + nameLength;
+                if (nameLength > 0 && centralDirectory.get(nameEnd - 1) != '/') {
+                    int classNameStart = classNameStart(centralDirectory, position, nameEnd);
+                    if (classNameStart >= 0) {
+                        classes.add(hash(centralDirectory, classNameStart, nameEnd));
+                    } else {
+                        ++resources;
+                    }
+                }
+                centralDirectory.position(nameEnd + extraLength + commentLength);
+            }
+            return new ArtifactWeight(size, classes.size(), resources);
+        }
+    }
+
+    // visits the binary name (e.g. 'com.example.Foo$Bar') of every class of a jar, except the module and package
+    // descriptors; the classes of a multi-release jar are visited once for each release they are compiled for
+    @SneakyThrows
+    static void listClasses(Path path, Consumer<String> consumer) {
+        if (!Files.isRegularFile(path)) return;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer centralDirectory = locateCentralDirectory(channel, channel.size());
+            if (centralDirectory == null) return;
+            byte[] name = new byte[256];
+            while (centralDirectory.remaining() >= CENTRAL_DIRECTORY_HEADER_SIZE) {
+                int position = centralDirectory.position();
+                if (centralDirectory.getInt(position) != CENTRAL_DIRECTORY_HEADER) break;
+                int nameLength = centralDirectory.getShort(position + 28) & 0xffff;
+                int extraLength = centralDirectory.getShort(position + 30) & 0xffff;
+                int commentLength = centralDirectory.getShort(position + 32) & 0xffff;
+                int nameEnd = position + CENTRAL_DIRECTORY_HEADER_SIZE + nameLength;
+                int classNameStart = classNameStart(centralDirectory, position, nameEnd);
+                if (classNameStart >= 0) {
+                    int classNameLength = nameEnd - CLASS_SUFFIX.length - classNameStart;
+                    if (name.length < classNameLength) name = new byte[classNameLength];
+                    for (int i = 0; i < classNameLength; i++) {
+                        name[i] = centralDirectory.get(classNameStart + i);
+                    }
+                    consumer.accept(new String(name, 0, classNameLength, StandardCharsets.UTF_8).replace('/', '.'));
+                }
+                centralDirectory.position(nameEnd + extraLength + commentLength);
+            }
+        }
+    }
+
+    // the position of the name of the class of a central directory entry, past the release directory of
+    // a multi-release jar, or -1 when the entry is not a class or is a module or package descriptor
+    private static int classNameStart(ByteBuffer buffer, int position, int nameEnd) {
+        int start = position + CENTRAL_DIRECTORY_HEADER_SIZE;
+        if (!endsWith(buffer, start, nameEnd, CLASS_SUFFIX)) return -1;
+        if (startsWith(buffer, start, nameEnd, VERSIONS_PREFIX)) {
+            int slash = start + VERSIONS_PREFIX.length;
+            while (slash < nameEnd && buffer.get(slash) != '/') ++slash;
+            if (slash == nameEnd) return -1;
+            start = slash + 1;
+        }
+        for (byte[] descriptor : new byte[][] {MODULE_INFO, PACKAGE_INFO}) {
+            if (endsWith(buffer, start, nameEnd, descriptor)
+                    && (nameEnd - descriptor.length == start || buffer.get(nameEnd - descriptor.length - 1) == '/')) {
+                return -1;
+            }
+        }
+        return start;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(start + i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean endsWith(ByteBuffer buffer, int start, int end, byte[] suffix) {
+        if (end - start < suffix.length) return false;
+        for (int i = 0; i < suffix.length; i++) {
+            if (buffer.get(end - suffix.length + i) != suffix[i]) return false;
+        }
+        return true;
+    }
+
+    // 64 bit FNV-1a
+    private static long hash(ByteBuffer buffer, int start, int end) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ (buffer.get(i) & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static ByteBuffer locateCentralDirectory(FileChannel channel, long size) throws IOException {
+        if (size < END_OF_CENTRAL_DIRECTORY_SIZE) return null;
+        int tailSize = (int) Math.min(size, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE + ZIP64_LOCATOR_SIZE);
+        long tailStart = size - tailSize;
+        ByteBuffer tail = read(channel, tailStart, tailSize);
+        int eocd = -1;
+        for (int i = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) return null;
+        long directorySize = tail.getInt(eocd + 12) & 0xffffffffL;
+        long directoryOffset = tail.getInt(eocd + 16) & 0xffffffffL;
+        int locator = eocd - ZIP64_LOCATOR_SIZE;
+        if (locator >= 0 && tail.getInt(locator) == ZIP64_LOCATOR) {
+            long zip64EndOffset = tail.getLong(locator + 8);
+            ByteBuffer zip64End = read(channel, zip64EndOffset, 56);
+            if (zip64End.getInt(0) == ZIP64_END_OF_CENTRAL_DIRECTORY) {
+                directorySize = zip64End.getLong(40);
+                directoryOffset = zip64End.getLong(48);
+            }
+        }
+        if (directoryOffset + directorySize > size || directorySize > Integer.MAX_VALUE) return null;
+        return channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, directorySize)
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) break;
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,141 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.io.Writer;
+
+final class JsonGraphWriter extends TextGraphWriter {
+
+    JsonGraphWriter(Writer writer) {
+        super(writer);
+    }
+
+    @Override
+    protected void writeHeader(DependencyGraph graph) {
+        buffer.append("{\"nodes\":[");
+    }
+
+    @Override
+    protected void writeNode(DependencyGraph graph, int node) {
+        if (node > 0) buffer.append(',');
+        buffer.append("\n{\"id\":").append(node).append(",\"name\":");
+        appendString(buffer, graph.getName(node));
+        if (graph.isProject(node)) {
+            buffer.append(",\"kind\":\"project\",\"project\":");
+            appendString(buffer, graph.getProjectPath(node));
+        } else {
+            buffer.append(",\"kind\":\"module\",\"group\":");
+            appendString(buffer, graph.getGroup(node));
+            buffer.append(",\"module\":");
+            appendString(buffer, graph.getModule(node));
+            buffer.append(",\"version\":");
+            appendString(buffer, graph.getVersion(node));
+        }
+        ArtifactInfo[] artifacts = graph.getArtifacts(node);
+        if (artifacts != null) {
+            buffer.append(",\"artifacts\":[");
+            boolean first = true;
+            for (ArtifactInfo artifact : artifacts) {
+                if (!first) buffer.append(',');
+                first = false;
+                buffer.append("{\"type\":");
+                appendString(buffer, artifact.getType());
+                buffer.append(",\"classifier\":");
+                appendString(buffer, artifact.getClassifier());
+                buffer.append(",\"extension\":");
+                appendString(buffer, artifact.getExtension());
+                buffer.append('}');
+            }
+            buffer.append(']');
+        }
+        if (graph.hasTags()) {
+            buffer.append(",\"configurations\":");
+            appendTags(graph, graph.getNodeTags(node));
+        }
+        ArtifactWeight weight = graph.getWeight(node);
+        if (weight != null) {
+            buffer.append(",\"weight\":{\"size\":").append(weight.getSize())
+                    .append(",\"classes\":").append(weight.getClassCount())
+                    .append(",\"resources\":").append(weight.getResourceCount())
+                    .append(",\"subtreeSize\":").append(graph.getSubtreeSize(node));
+            if (weight.hasClassUsage()) {
+                buffer.append(",\"loadedClasses\":").append(weight.getLoadedClassCount());
+            }
+            buffer.append('}');
+        }
+        buffer.append('}');
+    }
+
+    @Override
+    protected void writeEdge(DependencyGraph graph, int from, int to, int edge) {
+        if (edge == 0) {
+            buffer.append("\n],\"edges\":[");
+        } else {
+            buffer.append(',');
+        }
+        buffer.append('[').append(from).append(',').append(to);
+        String requested = graph.getRequestedVersion(edge);
+        if (requested != null || graph.hasTags()) {
+            buffer.append(',');
+            appendString(buffer, requested);
+        }
+        if (graph.hasTags()) {
+            buffer.append(',');
+            appendTags(graph, graph.getEdgeTags(edge));
+        }
+        buffer.append(']');
+    }
+
+    @Override
+    protected void writeFooter(DependencyGraph graph) {
+        if (graph.getEdgeCount() == 0) {
+            buffer.append("\n],\"edges\":[");
+        }
+        buffer.append("]}\n");
+    }
+
+    private void appendTags(DependencyGraph graph, int mask) {
+        buffer.append('[');
+        boolean first = true;
+        for (int i = 0; i < graph.getTags().length; i++) {
+            if ((mask & (1 << i)) == 0) continue;
+            if (!first) buffer.append(',');
+            first = false;
+            appendString(buffer, graph.getTags()[i]);
+        }
+        buffer.append(']');
+    }
+
+    static void appendString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,278 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+
+@Getter
+final class LayeredLayout {
+
+    private static final double CHAR_WIDTH = 7.0;
+    private static final double LINE_HEIGHT = 16.0;
+    private static final double NODE_PADDING = 12.0;
+    private static final double HORIZONTAL_GAP = 24.0;
+    private static final double VERTICAL_GAP = 64.0;
+    private static final int ORDERING_SWEEPS = 4;
+    private static final int COORDINATE_SWEEPS = 2;
+
+    private final double[] x;
+    private final double[] y;
+    private final double[] width;
+    private final double[] height;
+    private final int[] layer;
+    private final double totalWidth;
+    private final double totalHeight;
+
+    private LayeredLayout(double[] x, double[] y, double[] width, double[] height, int[] layer,
+                          double totalWidth, double totalHeight) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.layer = layer;
+        this.totalWidth = totalWidth;
+        this.totalHeight = totalHeight;
+    }
+
+    static LayeredLayout compute(DotGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        int edgeCount = graph.getEdgeCount();
+
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            sources[i] = graph.getEdgeSource(i);
+            targets[i] = graph.getEdgeTarget(i);
+        }
+        int[][] outgoing = adjacency(nodeCount, sources, targets);
+        boolean[] reversed = findBackEdges(nodeCount, outgoing, targets);
+        for (int i = 0; i < edgeCount; i++) {
+            if (reversed[i] || sources[i] == targets[i]) {
+                int tmp = sources[i];
+                sources[i] = targets[i];
+                targets[i] = tmp;
+            }
+        }
+        int[][] successors = neighbours(nodeCount, sources, targets, false);
+        int[][] predecessors = neighbours(nodeCount, sources, targets, true);
+
+        int[] layer = assignLayers(nodeCount, successors, predecessors);
+        int layerCount = 0;
+        for (int l : layer) layerCount = Math.max(layerCount, l + 1);
+
+        int[][] layers = groupByLayer(nodeCount, layer, layerCount);
+        double[] position = new double[nodeCount];
+        updatePositions(layers, position);
+        for (int sweep = 0; sweep < ORDERING_SWEEPS; sweep++) {
+            for (int l = 1; l < layerCount; l++) {
+                orderByBarycenter(layers[l], predecessors, position);
+            }
+            for (int l = layerCount - 2; l >= 0; l--) {
+                orderByBarycenter(layers[l], successors, position);
+            }
+        }
+
+        double[] width = new double[nodeCount];
+        double[] height = new double[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            List<String> lines = graph.getLabelLines(i);
+            int maxLength = 0;
+            for (String line : lines) maxLength = Math.max(maxLength, line.length());
+            width[i] = maxLength * CHAR_WIDTH + 2 * NODE_PADDING;
+            height[i] = lines.size() * LINE_HEIGHT + NODE_PADDING;
+        }
+
+        double[] x = new double[nodeCount];
+        double[] y = new double[nodeCount];
+        double top = VERTICAL_GAP / 2;
+        for (int l = 0; l < layerCount; l++) {
+            double layerHeight = 0;
+            for (int node : layers[l]) layerHeight = Math.max(layerHeight, height[node]);
+            for (int node : layers[l]) y[node] = top + layerHeight / 2;
+            top += layerHeight + VERTICAL_GAP;
+        }
+
+        for (int l = 0; l < layerCount; l++) {
+            double cursor = 0;
+            for (int node : layers[l]) {
+                x[node] = cursor + width[node] / 2;
+                cursor = x[node] + width[node] / 2 + HORIZONTAL_GAP;
+            }
+        }
+        for (int sweep = 0; sweep < COORDINATE_SWEEPS; sweep++) {
+            for (int l = 1; l < layerCount; l++) {
+                placeLayer(layers[l], predecessors, x, width);
+            }
+            for (int l = layerCount - 2; l >= 0; l--) {
+                placeLayer(layers[l], successors, x, width);
+            }
+        }
+        double minX = Double.MAX_VALUE;
+        double maxX = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            minX = Math.min(minX, x[i] - width[i] / 2);
+            maxX = Math.max(maxX, x[i] + width[i] / 2);
+        }
+        if (nodeCount == 0) minX = 0;
+        double shift = HORIZONTAL_GAP - minX;
+        for (int i = 0; i < nodeCount; i++) {
+            x[i] += shift;
+        }
+        return new LayeredLayout(x, y, width, height, layer,
+                maxX - minX + 2 * HORIZONTAL_GAP, top - VERTICAL_GAP / 2);
+    }
+
+    private static void placeLayer(int[] nodes, int[][] neighbours, double[] x, double[] width) {
+        int n = nodes.length;
+        if (n == 0) return;
+        double[] desired = new double[n];
+        for (int i = 0; i < n; i++) {
+            desired[i] = barycenter(nodes[i], neighbours, x, x[nodes[i]]);
+        }
+        // pack the layer once pushing nodes rightwards and once pushing them leftwards,
+        // the average of the two placements still respects the minimum separation
+        double[] left = new double[n];
+        double[] right = new double[n];
+        for (int i = 0; i < n; i++) {
+            left[i] = i == 0 ? desired[i] : Math.max(desired[i], left[i - 1] + separation(nodes, width, i - 1));
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            right[i] = i == n - 1 ? desired[i] : Math.min(desired[i], right[i + 1] - separation(nodes, width, i));
+        }
+        for (int i = 0; i < n; i++) {
+            x[nodes[i]] = (left[i] + right[i]) / 2;
+        }
+    }
+
+    private static double separation(int[] nodes, double[] width, int i) {
+        return (width[nodes[i]] + width[nodes[i + 1]]) / 2 + HORIZONTAL_GAP;
+    }
+
+    private static int[][] adjacency(int nodeCount, int[] sources, int[] targets) {
+        int[] degree = new int[nodeCount];
+        for (int source : sources) degree[source]++;
+        int[][] result = new int[nodeCount][];
+        for (int i = 0; i < nodeCount; i++) result[i] = new int[degree[i]];
+        Arrays.fill(degree, 0);
+        for (int i = 0; i < sources.length; i++) {
+            result[sources[i]][degree[sources[i]]++] = i;
+        }
+        return result;
+    }
+
+    private static boolean[] findBackEdges(int nodeCount, int[][] outgoingEdges, int[] targets) {
+        boolean[] reversed = new boolean[targets.length];
+        byte[] state = new byte[nodeCount];
+        int[] stack = new int[nodeCount];
+        int[] cursor = new int[nodeCount];
+        for (int root = 0; root < nodeCount; root++) {
+            if (state[root] != 0) continue;
+            int depth = 0;
+            stack[depth++] = root;
+            state[root] = 1;
+            while (depth > 0) {
+                int node = stack[depth - 1];
+                if (cursor[node] < outgoingEdges[node].length) {
+                    int edge = outgoingEdges[node][cursor[node]++];
+                    int target = targets[edge];
+                    if (state[target] == 0) {
+                        state[target] = 1;
+                        stack[depth++] = target;
+                    } else if (state[target] == 1) {
+                        reversed[edge] = true;
+                    }
+                } else {
+                    state[node] = 2;
+                    --depth;
+                }
+            }
+        }
+        return reversed;
+    }
+
+    private static int[][] neighbours(int nodeCount, int[] sources, int[] targets, boolean incoming) {
+        int[] degree = new int[nodeCount];
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] == targets[i]) continue;
+            degree[incoming ? targets[i] : sources[i]]++;
+        }
+        int[][] result = new int[nodeCount][];
+        for (int i = 0; i < nodeCount; i++) result[i] = new int[degree[i]];
+        Arrays.fill(degree, 0);
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] == targets[i]) continue;
+            int from = incoming ? targets[i] : sources[i];
+            int to = incoming ? sources[i] : targets[i];
+            result[from][degree[from]++] = to;
+        }
+        return result;
+    }
+
+    private static int[] assignLayers(int nodeCount, int[][] successors, int[][] predecessors) {
+        int[] layer = new int[nodeCount];
+        int[] inDegree = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) inDegree[i] = predecessors[i].length;
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            if (inDegree[i] == 0) queue[tail++] = i;
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            for (int successor : successors[node]) {
+                layer[successor] = Math.max(layer[successor], layer[node] + 1);
+                if (--inDegree[successor] == 0) queue[tail++] = successor;
+            }
+        }
+        return layer;
+    }
+
+    private static int[][] groupByLayer(int nodeCount, int[] layer, int layerCount) {
+        int[] size = new int[layerCount];
+        for (int i = 0; i < nodeCount; i++) size[layer[i]]++;
+        int[][] result = new int[layerCount][];
+        for (int l = 0; l < layerCount; l++) result[l] = new int[size[l]];
+        Arrays.fill(size, 0);
+        for (int i = 0; i < nodeCount; i++) result[layer[i]][size[layer[i]]++] = i;
+        return result;
+    }
+
+    private static void updatePositions(int[][] layers, double[] position) {
+        for (int[] nodes : layers) {
+            updatePositions(nodes, position);
+        }
+    }
+
+    private static void updatePositions(int[] nodes, double[] position) {
+        for (int i = 0; i < nodes.length; i++) {
+            position[nodes[i]] = (i + 0.5) / nodes.length;
+        }
+    }
+
+    private static void orderByBarycenter(int[] nodes, int[][] neighbours, double[] position) {
+        int n = nodes.length;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            double value = barycenter(nodes[i], neighbours, position, position[nodes[i]]);
+            // sort by barycenter, breaking ties with the previous position to keep the order stable
+            keys[i] = ((long) (value * (1 << 20)) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] ordered = new int[n];
+        for (int i = 0; i < n; i++) {
+            ordered[i] = nodes[(int) keys[i]];
+        }
+        System.arraycopy(ordered, 0, nodes, 0, n);
+        updatePositions(nodes, position);
+    }
+
+    private static double barycenter(int node, int[][] neighbours, double[] position, double fallback) {
+        int[] adjacent = neighbours[node];
+        if (adjacent.length == 0) return fallback;
+        double sum = 0;
+        for (int neighbour : adjacent) sum += position[neighbour];
+        return sum / adjacent.length;
+    }
+}
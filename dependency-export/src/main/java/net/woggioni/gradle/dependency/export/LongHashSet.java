@@ -0,0 +1,97 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.util.Arrays;
+
+final class LongHashSet {
+
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private boolean containsEmpty;
+
+    LongHashSet() {
+        this(16);
+    }
+
+    LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            if (containsEmpty) return false;
+            containsEmpty = true;
+            ++size;
+            return true;
+        }
+        int index = hash(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == EMPTY) {
+                keys[index] = key;
+                if (++size > resizeThreshold) {
+                    rehash();
+                }
+                return true;
+            } else if (current == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY) return containsEmpty;
+        int index = hash(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == EMPTY) return false;
+            else if (current == key) return true;
+            index = (index + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        containsEmpty = false;
+        size = 0;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        allocate(oldKeys.length << 1);
+        for (long key : oldKeys) {
+            if (key != EMPTY) {
+                int index = hash(key) & mask;
+                while (keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+            }
+        }
+    }
+
+    static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xffffffffL);
+    }
+}
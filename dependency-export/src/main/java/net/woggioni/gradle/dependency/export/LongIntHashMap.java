@@ -0,0 +1,89 @@
+package net.woggioni.gradle.dependency.export;
+
+// Open addressing map from long keys to non negative int values, see LongHashSet
+final class LongIntHashMap {
+
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private int emptyKeyValue = -1;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // returns the value already associated with key, or -1 after associating it with value
+    int putIfAbsent(long key, int value) {
+        if (key == EMPTY) {
+            if (emptyKeyValue >= 0) return emptyKeyValue;
+            emptyKeyValue = value;
+            ++size;
+            return -1;
+        }
+        int index = hash(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == EMPTY) {
+                keys[index] = key;
+                values[index] = value;
+                if (++size > resizeThreshold) {
+                    rehash();
+                }
+                return -1;
+            } else if (current == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    int get(long key) {
+        if (key == EMPTY) return emptyKeyValue;
+        int index = hash(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == EMPTY) return -1;
+            else if (current == key) return values[index];
+            index = (index + 1) & mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != EMPTY) {
+                int index = hash(key) & mask;
+                while (keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import javax.inject.Inject;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static net.woggioni.gradle.dependency.export.DependencyExportPlugin.DEPENDENCY_EXPORT_GROUP;
+
+// Times the resolution of a set of configurations, one after another, splitting the graph resolution from the
+// artifact lookup (and download) phase; the artifacts of every component are then looked up again on their own,
+// in a separate measurement, to rank the components.
+// Every configuration is resolved through a copy of it, so that it is resolved again even if some other task
+// already did; Gradle only allows resolution from the thread that owns the project, configurations of
+// different projects are resolved in parallel when the build runs with '--parallel'
+public class ProfileResolution extends DefaultTask {
+
+    @Getter(onMethod_ = { @Input })
+    private final ListProperty<String> configurationNames;
+
+    @Getter(onMethod_ = { @Input })
+    private final Property<Integer> slowestComponents;
+
+    @Getter(onMethod_ = { @OutputFile })
+    private final RegularFileProperty outputFile;
+
+    private final transient ConfigurationContainer configurations;
+
+    private final String projectPath;
+
+    private final boolean parallelProjectExecution;
+
+    @Option(option = "configurations", description = "Set the configurations to profile (once per configuration)")
+    public void setConfigurations(List<String> configurationNames) {
+        this.configurationNames.set(configurationNames);
+    }
+
+    @Option(option = "slowest", description = "Set the number of slowest components reported for each configuration")
+    public void setSlowest(String value) {
+        int slowest;
+        try {
+            slowest = Integer.parseInt(value.trim());
+        } catch (NumberFormatException nfe) {
+            slowest = -1;
+        }
+        if (slowest < 0) {
+            throw new GradleException(String.format(
+                    "Invalid value '%s' for option '--slowest', a non-negative integer is expected", value));
+        }
+        slowestComponents.set(slowest);
+    }
+
+    @Inject
+    public ProfileResolution(ObjectFactory objects) {
+        setGroup(DEPENDENCY_EXPORT_GROUP);
+        setDescription("Times the resolution of the dependency graph and of the artifacts of some configurations");
+        configurationNames = objects.listProperty(String.class).convention(Arrays.asList(
+                JavaPlugin.COMPILE_CLASSPATH_CONFIGURATION_NAME, JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME));
+        slowestComponents = objects.property(Integer.class).convention(10);
+        final JavaPluginExtension javaPluginExtension = getProject().getExtensions().findByType(JavaPluginExtension.class);
+        outputFile = objects.fileProperty().convention(
+                javaPluginExtension.getDocsDir().file("dependencies-resolution-profile.json"));
+        configurations = getProject().getConfigurations();
+        projectPath = getProject().getPath();
+        parallelProjectExecution = getProject().getGradle().getStartParameter().isParallelProjectExecutionEnabled();
+        // a measurement is never up to date
+        getOutputs().upToDateWhen(Specs.satisfyNone());
+        notCompatibleWithConfigurationCache("configurations are resolved by the task action");
+    }
+
+    @RequiredArgsConstructor
+    private static final class ComponentTiming {
+        final String component;
+        final int artifacts;
+        final long nanos;
+    }
+
+    @RequiredArgsConstructor
+    private static final class ConfigurationTiming {
+        final String name;
+        final long start;
+        final int components;
+        final int artifacts;
+        final long graphNanos;
+        final long artifactNanos;
+        final List<ComponentTiming> slowest;
+    }
+
+    @RequiredArgsConstructor
+    private static final class SameComponent implements Spec<ComponentIdentifier> {
+        private final ComponentIdentifier id;
+
+        @Override
+        public boolean isSatisfiedBy(ComponentIdentifier componentIdentifier) {
+            return id.equals(componentIdentifier);
+        }
+    }
+
+    @TaskAction
+    @SneakyThrows
+    public void run() {
+        List<ConfigurationTiming> timings = new ArrayList<>();
+        for (String name : configurationNames.get()) {
+            ConfigurationTiming timing = profile(name);
+            timings.add(timing);
+            getLogger().lifecycle("{}: {} components resolved in {} ms, {} artifacts in {} ms",
+                    name, timing.components, formatMillis(timing.graphNanos),
+                    timing.artifacts, formatMillis(timing.artifactNanos));
+        }
+        Path destination = outputFile.get().getAsFile().toPath();
+        Files.createDirectories(destination.getParent());
+        try (Writer writer = Files.newBufferedWriter(destination)) {
+            writer.write(toJson(timings));
+        }
+    }
+
+    private ConfigurationTiming profile(String name) {
+        Configuration configuration = configurations.findByName(name);
+        if (configuration == null || !configuration.isCanBeResolved()) {
+            throw new GradleException(String.format(
+                    "Configuration '%s' doesn't exist or cannot be resolved in project '%s'", name, projectPath));
+        }
+        Configuration copy = configuration.copyRecursive();
+        long start = System.currentTimeMillis();
+        long graphStart = System.nanoTime();
+        ResolvedComponentResult root = copy.getIncoming().getResolutionResult().getRootComponent().get();
+        List<ResolvedComponentResult> components = ExportDependencies.collectComponents(root);
+        long graphNanos = System.nanoTime() - graphStart;
+
+        // the whole phase, with the artifacts looked up and downloaded in parallel as in any other build
+        long artifactStart = System.nanoTime();
+        int artifacts = copy.getIncoming().getArtifacts().getArtifacts().size();
+        long artifactNanos = System.nanoTime() - artifactStart;
+
+        // every artifact view reuses the resolved graph and only looks up the artifacts of its component, one
+        // component at a time and with the artifacts already downloaded: the time it takes only ranks the components
+        List<ComponentTiming> componentTimings = new ArrayList<>();
+        if (slowestComponents.get() > 0) {
+            for (ResolvedComponentResult component : components) {
+                if (!(component.getId() instanceof ModuleComponentIdentifier)) continue;
+                long componentStart = System.nanoTime();
+                Set<ResolvedArtifactResult> resolved = copy.getIncoming()
+                        .artifactView(view -> view.componentFilter(new SameComponent(component.getId())))
+                        .getArtifacts().getArtifacts();
+                componentTimings.add(new ComponentTiming(component.getId().getDisplayName(), resolved.size(),
+                        System.nanoTime() - componentStart));
+            }
+        }
+        componentTimings.sort(Comparator.comparingLong((ComponentTiming it) -> it.nanos).reversed());
+        List<ComponentTiming> slowest = new ArrayList<>(
+                componentTimings.subList(0, Math.min(componentTimings.size(), slowestComponents.get())));
+        return new ConfigurationTiming(name, start, components.size(), artifacts, graphNanos, artifactNanos, slowest);
+    }
+
+    private String toJson(List<ConfigurationTiming> timings) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"project\":");
+        JsonGraphWriter.appendString(sb, projectPath);
+        sb.append(",\"parallelProjectExecution\":").append(parallelProjectExecution);
+        sb.append(",\"configurations\":[");
+        boolean first = true;
+        for (ConfigurationTiming timing : timings) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append("\n{\"name\":");
+            JsonGraphWriter.appendString(sb, timing.name);
+            sb.append(",\"start\":").append(timing.start)
+                    .append(",\"components\":").append(timing.components)
+                    .append(",\"artifacts\":").append(timing.artifacts)
+                    .append(",\"graphMillis\":").append(formatMillis(timing.graphNanos))
+                    .append(",\"artifactMillis\":").append(formatMillis(timing.artifactNanos))
+                    .append(",\"slowestComponentLookups\":[");
+            for (int i = 0; i < timing.slowest.size(); i++) {
+                ComponentTiming component = timing.slowest.get(i);
+                if (i > 0) sb.append(',');
+                sb.append("\n{\"component\":");
+                JsonGraphWriter.appendString(sb, component.component);
+                sb.append(",\"artifacts\":").append(component.artifacts)
+                        .append(",\"lookupMillis\":").append(formatMillis(component.nanos)).append('}');
+            }
+            sb.append("]}");
+        }
+        sb.append("]}\n");
+        return sb.toString();
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
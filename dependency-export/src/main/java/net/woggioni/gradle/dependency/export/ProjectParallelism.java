@@ -0,0 +1,358 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// Analyses the graph of the dependencies between projects as a schedule for a '--parallel' build where every project
+// takes the same time: cycles are collapsed into their strongly connected components, the critical path is the
+// longest chain of projects that have to be built one after the other and the width is the largest set of projects
+// that do not depend on each other (a maximum antichain, computed through Dilworth's theorem)
+final class ProjectParallelism {
+
+    private final String[] projects;
+    // strongly connected components in topological order, every component comes after its dependencies
+    private final int[][] components;
+    private final int[] componentOffsets;
+    private final int[] componentTargets;
+    private final int[] height;
+    private final int[] depth;
+    @Getter
+    private final int dependencyCount;
+    @Getter
+    private final int criticalPathLength;
+    private final int[] antichain;
+
+    private ProjectParallelism(String[] projects, int dependencyCount, int[][] components,
+                               int[] componentOffsets, int[] componentTargets) {
+        this.projects = projects;
+        this.dependencyCount = dependencyCount;
+        this.components = components;
+        this.componentOffsets = componentOffsets;
+        this.componentTargets = componentTargets;
+        height = heights(-1);
+        int longest = 0;
+        for (int value : height) longest = Math.max(longest, value);
+        criticalPathLength = longest;
+        depth = depths();
+        antichain = maximumAntichain();
+    }
+
+    int getProjectCount() {
+        return projects.length;
+    }
+
+    int getWidth() {
+        return antichain.length;
+    }
+
+    static ProjectParallelism compute(DependencyGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        int[] ids = new int[nodeCount];
+        List<String> projects = new ArrayList<>();
+        for (int node = 0; node < nodeCount; node++) {
+            ids[node] = graph.isProject(node) ? projects.size() : -1;
+            if (ids[node] >= 0) projects.add(graph.getName(node));
+        }
+        int projectCount = projects.size();
+        IntList sources = new IntList();
+        IntList targets = new IntList();
+        for (int node = 0; node < nodeCount; node++) {
+            if (ids[node] < 0) continue;
+            for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1); edge++) {
+                int target = ids[graph.getTarget(edge)];
+                if (target >= 0 && target != ids[node]) {
+                    sources.add(ids[node]);
+                    targets.add(target);
+                }
+            }
+        }
+        int[] offsets = new int[projectCount + 1];
+        int[] adjacency = csr(projectCount, sources, targets, offsets);
+
+        int[] component = new int[projectCount];
+        int[][] components = stronglyConnectedComponents(projectCount, offsets, adjacency, component);
+        LongHashSet links = new LongHashSet(sources.size());
+        IntList componentSources = new IntList();
+        IntList componentTargets = new IntList();
+        for (int i = 0; i < sources.size(); i++) {
+            int from = component[sources.get(i)];
+            int to = component[targets.get(i)];
+            if (from != to && links.add(LongHashSet.pack(from, to))) {
+                componentSources.add(from);
+                componentTargets.add(to);
+            }
+        }
+        int[] componentOffsets = new int[components.length + 1];
+        int[] componentAdjacency = csr(components.length, componentSources, componentTargets, componentOffsets);
+        return new ProjectParallelism(projects.toArray(new String[0]), sources.size(), components,
+                componentOffsets, componentAdjacency);
+    }
+
+    private static int[] csr(int nodeCount, IntList sources, IntList targets, int[] offsets) {
+        for (int i = 0; i < sources.size(); i++) {
+            ++offsets[sources.get(i) + 1];
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        int[] cursor = Arrays.copyOf(offsets, nodeCount);
+        int[] result = new int[sources.size()];
+        for (int i = 0; i < sources.size(); i++) {
+            result[cursor[sources.get(i)]++] = targets.get(i);
+        }
+        return result;
+    }
+
+    // Tarjan's algorithm with an explicit stack, components are completed after every component they depend on
+    private static int[][] stronglyConnectedComponents(int nodeCount, int[] offsets, int[] targets, int[] component) {
+        int[] index = new int[nodeCount];
+        int[] lowLink = new int[nodeCount];
+        int[] cursor = new int[nodeCount];
+        Arrays.fill(index, -1);
+        int[] callStack = new int[nodeCount];
+        int[] stack = new int[nodeCount];
+        boolean[] onStack = new boolean[nodeCount];
+        int stackSize = 0;
+        int counter = 0;
+        List<int[]> result = new ArrayList<>();
+        for (int root = 0; root < nodeCount; root++) {
+            if (index[root] >= 0) continue;
+            int depth = 0;
+            callStack[depth++] = root;
+            index[root] = lowLink[root] = counter++;
+            cursor[root] = offsets[root];
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (depth > 0) {
+                int node = callStack[depth - 1];
+                if (cursor[node] < offsets[node + 1]) {
+                    int next = targets[cursor[node]++];
+                    if (index[next] < 0) {
+                        index[next] = lowLink[next] = counter++;
+                        cursor[next] = offsets[next];
+                        stack[stackSize++] = next;
+                        onStack[next] = true;
+                        callStack[depth++] = next;
+                    } else if (onStack[next]) {
+                        lowLink[node] = Math.min(lowLink[node], index[next]);
+                    }
+                } else {
+                    --depth;
+                    if (depth > 0) {
+                        int parent = callStack[depth - 1];
+                        lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                    }
+                    if (lowLink[node] == index[node]) {
+                        int start = stackSize;
+                        do {
+                            --start;
+                        } while (stack[start] != node);
+                        int[] members = Arrays.copyOfRange(stack, start, stackSize);
+                        for (int member : members) {
+                            onStack[member] = false;
+                            component[member] = result.size();
+                        }
+                        Arrays.sort(members);
+                        result.add(members);
+                        stackSize = start;
+                    }
+                }
+            }
+        }
+        return result.toArray(new int[0][]);
+    }
+
+    // the number of projects in the longest chain starting from each component (the component included),
+    // optionally ignoring one edge between components
+    private int[] heights(int ignoredEdge) {
+        int[] result = new int[components.length];
+        for (int c = 0; c < components.length; c++) {
+            int longest = 0;
+            for (int edge = componentOffsets[c]; edge < componentOffsets[c + 1]; edge++) {
+                if (edge != ignoredEdge) longest = Math.max(longest, result[componentTargets[edge]]);
+            }
+            result[c] = components[c].length + longest;
+        }
+        return result;
+    }
+
+    // the number of projects in the longest chain of dependents ending in each component (the component included)
+    private int[] depths() {
+        int[] result = new int[components.length];
+        for (int c = components.length - 1; c >= 0; c--) {
+            result[c] = Math.max(result[c], components[c].length);
+            for (int edge = componentOffsets[c]; edge < componentOffsets[c + 1]; edge++) {
+                int target = componentTargets[edge];
+                result[target] = Math.max(result[target], result[c] + components[target].length);
+            }
+        }
+        return result;
+    }
+
+    private boolean isCritical(int c) {
+        return height[c] + depth[c] - components[c].length == criticalPathLength;
+    }
+
+    // the projects that can all be built at the same time: a maximum matching between the components and the ones
+    // they transitively depend on gives a minimum chain cover, the antichain is then extracted through
+    // Koenig's theorem from the components reachable along alternating paths from the unmatched ones
+    private int[] maximumAntichain() {
+        int count = components.length;
+        BitSet[] reachable = new BitSet[count];
+        for (int c = 0; c < count; c++) {
+            reachable[c] = new BitSet(count);
+            for (int edge = componentOffsets[c]; edge < componentOffsets[c + 1]; edge++) {
+                int target = componentTargets[edge];
+                reachable[c].set(target);
+                reachable[c].or(reachable[target]);
+            }
+        }
+        int[] matchLeft = new int[count];
+        int[] matchRight = new int[count];
+        Arrays.fill(matchLeft, -1);
+        Arrays.fill(matchRight, -1);
+        int[] previous = new int[count];
+        int[] queue = new int[count];
+        for (int source = 0; source < count; source++) {
+            Arrays.fill(previous, -1);
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = source;
+            int free = -1;
+            while (head < tail && free < 0) {
+                int left = queue[head++];
+                for (int right = reachable[left].nextSetBit(0); right >= 0;
+                     right = reachable[left].nextSetBit(right + 1)) {
+                    if (previous[right] >= 0 || matchLeft[left] == right) continue;
+                    previous[right] = left;
+                    if (matchRight[right] < 0) {
+                        free = right;
+                        break;
+                    }
+                    queue[tail++] = matchRight[right];
+                }
+            }
+            // flips the augmenting path that ends in the free component
+            for (int right = free; right >= 0; ) {
+                int left = previous[right];
+                int next = matchLeft[left];
+                matchLeft[left] = right;
+                matchRight[right] = left;
+                right = next;
+            }
+        }
+        boolean[] visitedLeft = new boolean[count];
+        boolean[] visitedRight = new boolean[count];
+        int head = 0;
+        int tail = 0;
+        for (int c = 0; c < count; c++) {
+            if (matchLeft[c] < 0) {
+                visitedLeft[c] = true;
+                queue[tail++] = c;
+            }
+        }
+        while (head < tail) {
+            int left = queue[head++];
+            for (int right = reachable[left].nextSetBit(0); right >= 0; right = reachable[left].nextSetBit(right + 1)) {
+                if (visitedRight[right] || matchLeft[left] == right) continue;
+                visitedRight[right] = true;
+                int next = matchRight[right];
+                if (next >= 0 && !visitedLeft[next]) {
+                    visitedLeft[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        IntList result = new IntList();
+        for (int c = 0; c < count; c++) {
+            if (visitedLeft[c] && !visitedRight[c]) result.add(c);
+        }
+        return result.toArray();
+    }
+
+    private String describe(int c) {
+        int[] members = components[c];
+        if (members.length == 1) return projects[members[0]];
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < members.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(projects[members[i]]);
+        }
+        return sb.append('}').toString();
+    }
+
+    void writeReport(Writer writer) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        String format = "%-40s %d\n";
+        sb.append(String.format(format, "projects", projects.length));
+        sb.append(String.format(format, "project dependencies", dependencyCount));
+        sb.append(String.format(format, "critical path length (projects)", criticalPathLength));
+        sb.append(String.format(format, "maximum width (projects)", getWidth()));
+        if (criticalPathLength > 0) {
+            sb.append(String.format("%-40s %.2f\n", "best speedup over a serial build",
+                    (double) projects.length / criticalPathLength));
+        }
+
+        sb.append("\nCritical path, every project has to wait for the next one:\n");
+        int current = -1;
+        for (int c = 0; c < components.length; c++) {
+            if (height[c] == criticalPathLength) {
+                current = c;
+                break;
+            }
+        }
+        if (current >= 0) {
+            sb.append("    ").append(describe(current));
+            while (true) {
+                int next = -1;
+                for (int edge = componentOffsets[current]; edge < componentOffsets[current + 1]; edge++) {
+                    int target = componentTargets[edge];
+                    if (height[target] == height[current] - components[current].length) {
+                        next = target;
+                        break;
+                    }
+                }
+                if (next < 0) break;
+                sb.append("\n    -> ").append(describe(next));
+                current = next;
+            }
+            sb.append('\n');
+        }
+
+        // removing a dependency that lies on every critical path shortens the build,
+        // removing one of several parallel critical paths does not
+        sb.append("\nDependencies on a critical path and the critical path length without each of them:\n");
+        for (int c = components.length - 1; c >= 0; c--) {
+            if (!isCritical(c)) continue;
+            for (int edge = componentOffsets[c]; edge < componentOffsets[c + 1]; edge++) {
+                int target = componentTargets[edge];
+                if (!isCritical(target) || height[c] != components[c].length + height[target]) continue;
+                int longest = 0;
+                for (int value : heights(edge)) longest = Math.max(longest, value);
+                sb.append(String.format("    %-70s %d -> %d\n",
+                        describe(c) + " -> " + describe(target), criticalPathLength, longest));
+            }
+        }
+
+        sb.append("\nLargest set of projects that can be built at the same time:\n");
+        for (int c : antichain) {
+            sb.append("    ").append(describe(c)).append('\n');
+        }
+
+        boolean cycles = false;
+        for (int c = 0; c < components.length; c++) {
+            if (components[c].length > 1) {
+                if (!cycles) sb.append("\nCycles, each of them is counted as a single chain of projects:\n");
+                cycles = true;
+                sb.append("    ").append(describe(c)).append('\n');
+            }
+        }
+        writer.write(sb.toString());
+    }
+}
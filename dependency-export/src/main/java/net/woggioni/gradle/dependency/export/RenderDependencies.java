@@ -4,18 +4,22 @@ import lombok.Getter;
 import lombok.SneakyThrows;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
+import org.gradle.api.Task;
 import org.gradle.api.file.RegularFile;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
-import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.OutputFiles;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
@@ -23,11 +27,16 @@ import org.gradle.api.tasks.options.Option;
 
 import javax.inject.Inject;
 import java.io.File;
-import java.nio.file.Path;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import static net.woggioni.gradle.dependency.export.DependencyExportPlugin.DEPENDENCY_EXPORT_GROUP;
 
@@ -40,23 +49,67 @@ public class RenderDependencies extends DefaultTask {
     @Getter(onMethod_ = {@Input})
     private final Property<String> format;
 
+    @Getter(onMethod_ = {@Input})
+    private final ListProperty<String> formats;
+
     @Getter(onMethod_ = {@Input})
     private final Property<String> graphvizExecutable;
 
+    @Getter(onMethod_ = {@Input})
+    private final Property<Renderer> renderer;
+
+    // graphs with more nodes than this are laid out with largeGraphEngine by the adaptive renderer
+    @Getter(onMethod_ = {@Internal})
+    private final Property<Integer> maxDotNodes;
+
+    @Getter(onMethod_ = {@Internal})
+    private final Property<String> largeGraphEngine;
+
+    @Getter(onMethod_ = {@Internal})
+    private final Property<Duration> timeBudget;
+
+    // the adaptive settings are only inputs of the adaptive renderer, the other renderers ignore them
+    @Input
+    @Optional
+    public Provider<Integer> getAdaptiveMaxDotNodes() {
+        return adaptive(maxDotNodes);
+    }
+
+    @Input
+    @Optional
+    public Provider<String> getAdaptiveLargeGraphEngine() {
+        return adaptive(largeGraphEngine);
+    }
+
+    @Input
+    @Optional
+    public Provider<Duration> getAdaptiveTimeBudget() {
+        return adaptive(timeBudget);
+    }
+
+    private <T> Provider<T> adaptive(Provider<T> setting) {
+        return renderer.map(r -> r == Renderer.ADAPTIVE ? r : null).flatMap(r -> setting);
+    }
+
     @Getter
     @Internal
     private final RegularFileProperty outputFile;
 
-    @Input
+    // one output file for each format, keyed by format so that every one of them is a separate named output
     @Optional
-    public String getDestination() {
-        return outputFile.map(RegularFile::getAsFile).map(File::getAbsolutePath).getOrNull();
+    @OutputFiles
+    public Provider<Map<String, File>> getResults() {
+        return outputFile.map(RegularFile::getAsFile).zip(formats, RenderDependencies::outputFiles);
     }
 
-    @Optional
-    @OutputFile
-    public Provider<File> getResult() {
-        return outputFile.map(RegularFile::getAsFile);
+    // a single format is written to outputFile itself, several formats to outputFile plus the format extension
+    private static Map<String, File> outputFiles(File outputFile, List<String> formats) {
+        Map<String, File> result = new TreeMap<>();
+        for (String format : formats) {
+            if (Objects.equals("xlib", format)) continue;
+            result.put(format, formats.size() == 1 ? outputFile : new File(outputFile.getPath() + '.' + format));
+        }
+        return result;
     }
 
     @Option(option = "output", description = "Set the output file name")
@@ -70,6 +123,46 @@ public class RenderDependencies extends DefaultTask {
         this.format.set(format);
     }
 
+    @Option(option = "formats", description = "Render several formats with a single layout pass")
+    public void setFormatsCli(List<String> formats) {
+        this.formats.set(formats);
+    }
+
+    @Option(option = "renderer", description = "Set the renderer, either Graphviz or the builtin SVG renderer")
+    public void setRendererCli(Renderer renderer) {
+        this.renderer.set(renderer);
+    }
+
+    @Option(option = "maxDotNodes", description = "Set the number of nodes above which the adaptive renderer " +
+            "switches to the large graph engine")
+    public void setMaxDotNodesCli(String maxDotNodes) {
+        this.maxDotNodes.set((int) parsePositive("maxDotNodes", maxDotNodes, Integer.MAX_VALUE));
+    }
+
+    @Option(option = "largeGraphEngine", description = "Set the Graphviz layout engine used for large graphs")
+    public void setLargeGraphEngineCli(String largeGraphEngine) {
+        this.largeGraphEngine.set(largeGraphEngine);
+    }
+
+    @Option(option = "timeBudget", description = "Set the time budget of the adaptive renderer, in seconds")
+    public void setTimeBudgetCli(String seconds) {
+        this.timeBudget.set(Duration.ofSeconds(parsePositive("timeBudget", seconds, Long.MAX_VALUE)));
+    }
+
+    private static long parsePositive(String option, String value, long max) {
+        long result;
+        try {
+            result = Long.parseLong(value.trim());
+        } catch (NumberFormatException nfe) {
+            result = 0;
+        }
+        if (result <= 0 || result > max) {
+            throw new GradleException(
+                    String.format("Invalid value '%s' for option '--%s', a positive integer is expected", value, option));
+        }
+        return result;
+    }
+
     public void setExportTask(Provider<ExportDependencies> taskProvider) {
         dependsOn(taskProvider);
         sourceFile = taskProvider.flatMap(ExportDependencies::getResult);
@@ -80,39 +173,148 @@ public class RenderDependencies extends DefaultTask {
         setGroup(DEPENDENCY_EXPORT_GROUP);
         sourceFile = objects.property(File.class);
         format = objects.property(String.class).convention("xlib");
+        formats = objects.listProperty(String.class).convention(format.map(Collections::singletonList));
         graphvizExecutable = objects.property(String.class).convention("dot");
+        renderer = objects.property(Renderer.class).convention(Renderer.GRAPHVIZ);
+        maxDotNodes = objects.property(Integer.class).convention(500);
+        largeGraphEngine = objects.property(String.class).convention("sfdp");
+        timeBudget = objects.property(Duration.class).convention(Duration.ofMinutes(1));
         final JavaPluginExtension javaPluginExtension = getProject().getExtensions().findByType(JavaPluginExtension.class);
         final Provider<RegularFile> defaultOutputFileProvider = javaPluginExtension.getDocsDir().file("renderedDependencies");
         outputFile = objects.fileProperty().convention(defaultOutputFileProvider
-                .zip(format, (file, type) -> Objects.equals("xlib", type) ? null : file));
+                .zip(formats, (file, types) -> Collections.singletonList("xlib").equals(types) ? null : file));
         getOutputs().upToDateWhen(t -> outputFile.isPresent());
+        getOutputs().cacheIf("an output file is configured", t -> outputFile.isPresent());
+        // the fallback rendering of a truncated graph depends on how long Graphviz took,
+        // it is rendered again instead of being reused
+        getOutputs().upToDateWhen(Specs.negate(new IsTruncated()));
+        getOutputs().doNotCacheIf("the graph was truncated to fit the time budget", new IsTruncated());
+    }
+
+    private File truncationMarker() {
+        return new File(getTemporaryDir(), "truncated");
+    }
+
+    private static final class IsTruncated implements Spec<Task> {
+        @Override
+        public boolean isSatisfiedBy(Task task) {
+            return ((RenderDependencies) task).truncationMarker().exists();
+        }
     }
 
     @TaskAction
     @SneakyThrows
     void run() {
-        java.util.Optional<Path> destination = java.util.Optional.of(
-                    outputFile
-                            .map(RegularFile::getAsFile)
-                            .map(File::toPath)
-                )
-                .filter(Provider::isPresent)
-                .map(Provider::get);
-
-        List<String> cmd = new ArrayList<>(Arrays.asList(
-                graphvizExecutable.get(),
-                "-T" + format.get()
-        ));
-
-        if (destination.isPresent()) {
-            cmd.add("-o");
-            cmd.add(destination.get().toString());
-        }
-        cmd.add(sourceFile.get().toString());
-
-        int returnCode = new ProcessBuilder(cmd).inheritIO().start().waitFor();
-        if (returnCode != 0) {
+        Files.deleteIfExists(truncationMarker().toPath());
+        Map<String, File> destinations = outputFile.isPresent() ? getResults().get() : Collections.emptyMap();
+        for (File destination : destinations.values()) {
+            Files.createDirectories(destination.toPath().getParent());
+        }
+
+        if (renderer.get() == Renderer.BUILTIN) {
+            if (destinations.isEmpty()) {
+                throw new GradleException("The builtin renderer requires an output file");
+            }
+            renderBuiltin(destinations);
+            return;
+        }
+
+        if (renderer.get() == Renderer.ADAPTIVE) {
+            renderAdaptive(destinations);
+            return;
+        }
+
+        runGraphviz(graphvizCommand(null, sourceFile.get(), destinations), null);
+    }
+
+    // Graphviz lays the graph out once and then writes it with every requested format,
+    // each '-o' applies to the '-T' preceding it
+    private List<String> graphvizCommand(String engine, File source, Map<String, File> destinations) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(graphvizExecutable.get());
+        if (engine != null) {
+            cmd.add("-K" + engine);
+        }
+        for (String type : formats.get()) {
+            cmd.add("-T" + type);
+            File destination = destinations.get(type);
+            if (destination != null) {
+                cmd.add("-o");
+                cmd.add(destination.toString());
+            }
+        }
+        cmd.add(source.toString());
+        return cmd;
+    }
+
+    // small graphs are laid out with 'dot', larger ones with largeGraphEngine; when the layout takes longer than
+    // timeBudget Graphviz is stopped and only the maxDotNodes nodes closest to the roots are rendered with 'dot'.
+    // The interactive 'xlib' output is never stopped since it lasts until its window is closed
+    @SneakyThrows
+    private void renderAdaptive(Map<String, File> destinations) {
+        File source = sourceFile.get();
+        DotGraph graph = DotParser.parse(source.toPath());
+        int nodeCount = graph.getNodeCount();
+        int edgeCount = graph.getEdgeCount();
+        String engine = nodeCount > maxDotNodes.get() ? largeGraphEngine.get() : "dot";
+        Duration budget = formats.get().contains("xlib") ? null : timeBudget.get();
+        long start = System.nanoTime();
+        if (runGraphviz(graphvizCommand(engine, source, destinations), budget)) {
+            logRenderTime(nodeCount, edgeCount, engine, start);
+            return;
+        }
+        getLogger().warn("Rendering {} nodes and {} edges with engine '{}' exceeded the time budget of {} s, " +
+                        "rendering the {} nodes closest to the roots instead",
+                nodeCount, edgeCount, engine, budget.getSeconds(), maxDotNodes.get());
+        Files.createFile(truncationMarker().toPath());
+        DotGraph reduced = graph.truncate(maxDotNodes.get());
+        File reducedSource = new File(getTemporaryDir(), source.getName());
+        try (Writer writer = Files.newBufferedWriter(reducedSource.toPath())) {
+            reduced.write(writer);
+        }
+        start = System.nanoTime();
+        if (!runGraphviz(graphvizCommand("dot", reducedSource, destinations), budget)) {
+            throw new GradleException(String.format("Rendering the reduced graph exceeded the time budget of %d s",
+                    budget.getSeconds()));
+        }
+        logRenderTime(reduced.getNodeCount(), reduced.getEdgeCount(), "dot", start);
+    }
+
+    // returns false if Graphviz was stopped because it exceeded the budget
+    @SneakyThrows
+    private static boolean runGraphviz(List<String> cmd, Duration budget) {
+        Process process = new ProcessBuilder(cmd).inheritIO().start();
+        if (budget == null) {
+            process.waitFor();
+        } else if (!process.waitFor(budget.toMillis(), TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly().waitFor();
+            return false;
+        }
+        if (process.exitValue() != 0) {
             throw new GradleException("Error invoking graphviz");
         }
+        return true;
+    }
+
+    private void logRenderTime(int nodeCount, int edgeCount, String engine, long start) {
+        getLogger().lifecycle("Rendered {} nodes and {} edges with engine '{}' in {} ms",
+                nodeCount, edgeCount, engine, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @SneakyThrows
+    private void renderBuiltin(Map<String, File> destinations) {
+        for (String type : destinations.keySet()) {
+            if (!Objects.equals("svg", type)) {
+                throw new GradleException(
+                        String.format("The builtin renderer only supports the 'svg' format, '%s' was requested", type));
+            }
+        }
+        DotGraph graph = DotParser.parse(sourceFile.get().toPath());
+        LayeredLayout layout = LayeredLayout.compute(graph);
+        for (File destination : destinations.values()) {
+            try (Writer writer = Files.newBufferedWriter(destination.toPath())) {
+                SvgWriter.write(graph, layout, writer);
+            }
+        }
     }
 }
@@ -0,0 +1,8 @@
+package net.woggioni.gradle.dependency.export;
+
+public enum Renderer {
+    GRAPHVIZ,
+    BUILTIN,
+    // Graphviz with a layout engine chosen from the size of the graph and a time budget
+    ADAPTIVE
+}
@@ -0,0 +1,107 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+final class SvgWriter {
+
+    private static final double LINE_HEIGHT = 16.0;
+
+    private SvgWriter() {
+    }
+
+    static void write(DotGraph graph, LayeredLayout layout, Writer writer) throws IOException {
+        double[] x = layout.getX();
+        double[] y = layout.getY();
+        double[] width = layout.getWidth();
+        double[] height = layout.getHeight();
+        StringBuilder sb = new StringBuilder(0x10000);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(number(layout.getTotalWidth()))
+                .append("\" height=\"").append(number(layout.getTotalHeight()))
+                .append("\" viewBox=\"0 0 ").append(number(layout.getTotalWidth())).append(' ')
+                .append(number(layout.getTotalHeight())).append("\" font-family=\"monospace\" font-size=\"12\">\n")
+                .append("<defs><marker id=\"arrow\" viewBox=\"0 0 10 10\" refX=\"10\" refY=\"5\" ")
+                .append("markerWidth=\"8\" markerHeight=\"8\" orient=\"auto-start-reverse\">")
+                .append("<path d=\"M 0 0 L 10 5 L 0 10 z\"/></marker></defs>\n")
+                .append("<g fill=\"none\" stroke=\"black\" marker-end=\"url(#arrow)\">\n");
+        for (int i = 0; i < graph.getEdgeCount(); i++) {
+            int from = graph.getEdgeSource(i);
+            int to = graph.getEdgeTarget(i);
+            if (from == to) continue;
+            double x1 = x[from];
+            double x2 = x[to];
+            double y1;
+            double y2;
+            if (y[from] <= y[to]) {
+                y1 = y[from] + height[from] / 2;
+                y2 = y[to] - height[to] / 2;
+            } else {
+                y1 = y[from] - height[from] / 2;
+                y2 = y[to] + height[to] / 2;
+            }
+            double middle = (y1 + y2) / 2;
+            sb.append("<path d=\"M ").append(number(x1)).append(' ').append(number(y1))
+                    .append(" C ").append(number(x1)).append(' ').append(number(middle))
+                    .append(' ').append(number(x2)).append(' ').append(number(middle))
+                    .append(' ').append(number(x2)).append(' ').append(number(y2)).append('"');
+            String color = graph.getEdgeAttribute(i, "color");
+            if (color != null) {
+                sb.append(" stroke=\"");
+                GraphMLWriter.appendEscaped(sb, color);
+                sb.append('"');
+            }
+            sb.append("/>\n");
+            flushIfNeeded(sb, writer);
+        }
+        sb.append("</g>\n<g stroke=\"black\">\n");
+        for (int i = 0; i < graph.getNodeCount(); i++) {
+            String fill = graph.getNodeAttribute(i, "fillcolor");
+            if (fill == null) fill = "white";
+            String shape = graph.getNodeAttribute(i, "shape");
+            double left = x[i] - width[i] / 2;
+            double top = y[i] - height[i] / 2;
+            sb.append("<g>");
+            if ("oval".equals(shape) || "ellipse".equals(shape)) {
+                sb.append("<ellipse cx=\"").append(number(x[i])).append("\" cy=\"").append(number(y[i]))
+                        .append("\" rx=\"").append(number(width[i] / 2)).append("\" ry=\"")
+                        .append(number(height[i] / 2)).append('"');
+            } else {
+                sb.append("<rect x=\"").append(number(left)).append("\" y=\"").append(number(top))
+                        .append("\" width=\"").append(number(width[i])).append("\" height=\"")
+                        .append(number(height[i])).append('"');
+            }
+            sb.append(" fill=\"");
+            GraphMLWriter.appendEscaped(sb, fill);
+            sb.append("\"/>");
+            List<String> lines = graph.getLabelLines(i);
+            double baseline = y[i] - (lines.size() * LINE_HEIGHT) / 2 + LINE_HEIGHT * 0.75;
+            for (String line : lines) {
+                sb.append("<text x=\"").append(number(x[i])).append("\" y=\"").append(number(baseline))
+                        .append("\" stroke=\"none\" text-anchor=\"middle\">");
+                GraphMLWriter.appendEscaped(sb, line);
+                sb.append("</text>");
+                baseline += LINE_HEIGHT;
+            }
+            sb.append("</g>\n");
+            flushIfNeeded(sb, writer);
+        }
+        sb.append("</g>\n</svg>\n");
+        writer.append(sb);
+    }
+
+    private static void flushIfNeeded(StringBuilder sb, Writer writer) throws IOException {
+        if (sb.length() >= 0x10000) {
+            writer.append(sb);
+            sb.setLength(0);
+        }
+    }
+
+    private static String number(double value) {
+        long tenths = Math.round(value * 10);
+        String sign = tenths < 0 ? "-" : "";
+        tenths = Math.abs(tenths);
+        return sign + (tenths / 10) + '.' + (tenths % 10);
+    }
+}
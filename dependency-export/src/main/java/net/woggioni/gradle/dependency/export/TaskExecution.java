@@ -0,0 +1,18 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+// A task executed by the build, as reported by the build event listener; times are in milliseconds since the epoch
+@Getter
+@RequiredArgsConstructor
+final class TaskExecution {
+    private final String path;
+    private final long startTime;
+    private final long endTime;
+    private final String outcome;
+
+    long getDuration() {
+        return endTime - startTime;
+    }
+}
@@ -0,0 +1,271 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Analyses the tasks executed by a build: the critical path is the chain of dependent tasks with the longest total
+// duration (how long the build would take with unlimited workers), the serialised time of a task is the time it
+// spent running alone and the idle slot time is how long the worker slots were left unused while the build ran
+final class TaskGraphAnalysis {
+
+    private final TaskExecution[] tasks;
+    // CSR adjacency from every task to the tasks it depends on
+    private final int[] offsets;
+    private final int[] targets;
+    private final boolean[] critical;
+    private final long[] aloneTime;
+    @Getter
+    private final int maxWorkers;
+    @Getter
+    private final long wallClockTime;
+    @Getter
+    private final long busyTime;
+    @Getter
+    private final long idleSlotTime;
+    @Getter
+    private final long serialisedTime;
+    @Getter
+    private final long criticalPathTime;
+    private final int[] criticalPath;
+
+    private TaskGraphAnalysis(List<TaskExecution> executions, Map<String, List<String>> dependencies, int maxWorkers) {
+        this.maxWorkers = maxWorkers;
+        tasks = executions.toArray(new TaskExecution[0]);
+        Arrays.sort(tasks, Comparator.comparingLong(TaskExecution::getStartTime).thenComparing(TaskExecution::getPath));
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < tasks.length; i++) {
+            ids.put(tasks[i].getPath(), i);
+        }
+        offsets = new int[tasks.length + 1];
+        IntList adjacency = new IntList();
+        for (int i = 0; i < tasks.length; i++) {
+            for (String dependency : dependencies.getOrDefault(tasks[i].getPath(), Collections.emptyList())) {
+                Integer target = ids.get(dependency);
+                if (target != null) adjacency.add(target);
+            }
+            offsets[i + 1] = adjacency.size();
+        }
+        targets = adjacency.toArray();
+
+        criticalPath = longestPath();
+        critical = new boolean[tasks.length];
+        long pathTime = 0;
+        for (int task : criticalPath) {
+            critical[task] = true;
+            pathTime += tasks[task].getDuration();
+        }
+        criticalPathTime = pathTime;
+
+        aloneTime = new long[tasks.length];
+        long[] totals = sweep();
+        wallClockTime = totals[0];
+        busyTime = totals[1];
+        idleSlotTime = Math.max(0, (long) maxWorkers * wallClockTime - totals[2]);
+        serialisedTime = totals[3];
+    }
+
+    // the dependencies of each task are keyed by task path, tasks that were not executed are ignored
+    static TaskGraphAnalysis compute(List<TaskExecution> executions, Map<String, List<String>> dependencies,
+                                     int maxWorkers) {
+        return new TaskGraphAnalysis(executions, dependencies, maxWorkers);
+    }
+
+    int getTaskCount() {
+        return tasks.length;
+    }
+
+    List<String> getCriticalPath() {
+        List<String> result = new ArrayList<>(criticalPath.length);
+        for (int task : criticalPath) {
+            result.add(tasks[task].getPath());
+        }
+        return result;
+    }
+
+    // the dependencies of a task always end before it starts, so the tasks sorted by start time are in topological
+    // order except for tasks of zero duration starting at the same millisecond, hence the explicit Kahn's algorithm
+    private int[] longestPath() {
+        int n = tasks.length;
+        int[] dependents = new int[n];
+        for (int target : targets) ++dependents[target];
+        IntList queue = new IntList(n);
+        for (int i = 0; i < n; i++) {
+            if (dependents[i] == 0) queue.add(i);
+        }
+        // the longest path starting at each task, going through its dependencies, is only known once
+        // every task depending on it has been visited: walk from the last tasks towards their dependencies
+        int[] order = new int[n];
+        int visited = 0;
+        for (int i = 0; i < queue.size(); i++) {
+            int task = queue.get(i);
+            order[visited++] = task;
+            for (int edge = offsets[task]; edge < offsets[task + 1]; edge++) {
+                if (--dependents[targets[edge]] == 0) queue.add(targets[edge]);
+            }
+        }
+        // a dependency cycle cannot be executed, tasks left out by one are ignored
+        long[] length = new long[n];
+        int[] next = new int[n];
+        Arrays.fill(next, -1);
+        for (int i = visited - 1; i >= 0; i--) {
+            int task = order[i];
+            long best = 0;
+            for (int edge = offsets[task]; edge < offsets[task + 1]; edge++) {
+                int dependency = targets[edge];
+                if (length[dependency] > best || next[task] < 0 && length[dependency] == best) {
+                    best = length[dependency];
+                    next[task] = dependency;
+                }
+            }
+            length[task] = best + tasks[task].getDuration();
+        }
+        int start = -1;
+        for (int i = 0; i < visited; i++) {
+            if (start < 0 || length[order[i]] > length[start]) start = order[i];
+        }
+        IntList path = new IntList();
+        for (int task = start; task >= 0; task = next[task]) {
+            path.add(task);
+        }
+        // from the first task to execute to the last one
+        int[] result = path.toArray();
+        for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+            int tmp = result[i];
+            result[i] = result[j];
+            result[j] = tmp;
+        }
+        return result;
+    }
+
+    // returns the wall clock time, the sum of the task durations, the time of the occupied worker slots
+    // and the time with exactly one task running, filling the time every task spent running alone
+    private long[] sweep() {
+        int n = tasks.length;
+        if (n == 0) return new long[4];
+        // starts are encoded as 2 * task + 1 and ends as 2 * task, so that at the same time ends come first
+        long[][] events = new long[2 * n][];
+        for (int i = 0; i < n; i++) {
+            events[2 * i] = new long[] {tasks[i].getStartTime(), 2L * i + 1};
+            events[2 * i + 1] = new long[] {tasks[i].getEndTime(), 2L * i};
+        }
+        Arrays.sort(events, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1] & 1, b[1] & 1));
+        Set<Integer> running = new LinkedHashSet<>();
+        long begin = events[0][0];
+        long previous = begin;
+        long busy = 0;
+        long slots = 0;
+        long serialised = 0;
+        for (long[] event : events) {
+            long elapsed = event[0] - previous;
+            busy += running.size() * elapsed;
+            slots += Math.min(running.size(), maxWorkers) * elapsed;
+            // the gaps with no task running are idle time, not serialised time
+            if (running.size() == 1) {
+                serialised += elapsed;
+                aloneTime[running.iterator().next()] += elapsed;
+            }
+            previous = event[0];
+            int task = (int) (event[1] >>> 1);
+            if ((event[1] & 1) != 0) running.add(task);
+            else running.remove(task);
+        }
+        return new long[] {previous - begin, busy, slots, serialised};
+    }
+
+    void writeJson(Writer writer) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"wallClockMillis\":").append(wallClockTime)
+                .append(",\"maxWorkers\":").append(maxWorkers)
+                .append(",\"busyMillis\":").append(busyTime)
+                .append(",\"idleSlotMillis\":").append(idleSlotTime)
+                .append(",\"serialisedMillis\":").append(serialisedTime)
+                .append(",\"criticalPathMillis\":").append(criticalPathTime)
+                .append(",\"criticalPath\":[");
+        for (int i = 0; i < criticalPath.length; i++) {
+            if (i > 0) sb.append(',');
+            JsonGraphWriter.appendString(sb, tasks[criticalPath[i]].getPath());
+        }
+        sb.append("],\"tasks\":[");
+        for (int task = 0; task < tasks.length; task++) {
+            TaskExecution execution = tasks[task];
+            if (task > 0) sb.append(',');
+            sb.append("\n{\"path\":");
+            JsonGraphWriter.appendString(sb, execution.getPath());
+            sb.append(",\"outcome\":");
+            JsonGraphWriter.appendString(sb, execution.getOutcome());
+            sb.append(",\"start\":").append(execution.getStartTime())
+                    .append(",\"end\":").append(execution.getEndTime())
+                    .append(",\"durationMillis\":").append(execution.getDuration())
+                    .append(",\"aloneMillis\":").append(aloneTime[task])
+                    .append(",\"critical\":").append(critical[task])
+                    .append(",\"dependencies\":[");
+            for (int edge = offsets[task]; edge < offsets[task + 1]; edge++) {
+                if (edge > offsets[task]) sb.append(',');
+                JsonGraphWriter.appendString(sb, tasks[targets[edge]].getPath());
+            }
+            sb.append("]}");
+        }
+        sb.append("]}\n");
+        writer.write(sb.toString());
+    }
+
+    // the critical path is red, tasks that ran alone are labelled with the time they serialised the build
+    // and tasks that did no work (up to date, from cache, skipped) are grey
+    void writeDot(Writer writer) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("digraph G {\n");
+        sb.append(String.format(Locale.ROOT, "    label=\"wall clock %s, critical path %s, serialised %s, " +
+                        "idle worker slots %s (%d workers)\";\n",
+                formatDuration(wallClockTime), formatDuration(criticalPathTime), formatDuration(serialisedTime),
+                formatDuration(idleSlotTime), maxWorkers));
+        for (int task = 0; task < tasks.length; task++) {
+            TaskExecution execution = tasks[task];
+            sb.append("    task_").append(task).append(" [label=\"").append(execution.getPath())
+                    .append("\\n").append(formatDuration(execution.getDuration()));
+            if (aloneTime[task] > 0) {
+                sb.append(", alone ").append(formatDuration(aloneTime[task]));
+            }
+            sb.append("\", shape=\"box\", style=\"filled\", fillcolor=\"");
+            if (critical[task]) sb.append("#ff8888");
+            else if (!"success".equals(execution.getOutcome()) && !"failed".equals(execution.getOutcome())) {
+                sb.append("#dddddd");
+            } else sb.append("#88ccff");
+            sb.append("\"];\n");
+        }
+        for (int task = 0; task < tasks.length; task++) {
+            for (int edge = offsets[task]; edge < offsets[task + 1]; edge++) {
+                int dependency = targets[edge];
+                sb.append("    task_").append(task).append(" -> task_").append(dependency);
+                if (critical[task] && critical[dependency] && isCriticalEdge(task, dependency)) {
+                    sb.append(" [color=\"#e00000\", penwidth=\"3\"]");
+                }
+                sb.append(";\n");
+            }
+        }
+        sb.append("}\n");
+        writer.write(sb.toString());
+    }
+
+    private boolean isCriticalEdge(int task, int dependency) {
+        for (int i = 1; i < criticalPath.length; i++) {
+            if (criticalPath[i] == task && criticalPath[i - 1] == dependency) return true;
+        }
+        return false;
+    }
+
+    static String formatDuration(long millis) {
+        return millis < 1000 ? millis + " ms" : String.format(Locale.ROOT, "%.1f s", millis / 1000.0);
+    }
+}
@@ -0,0 +1,108 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.SneakyThrows;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationCompletionListener;
+import org.gradle.tooling.events.OperationResult;
+import org.gradle.tooling.events.task.TaskFailureResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+import org.gradle.tooling.events.task.TaskSkippedResult;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Records the execution of every task of the build through the build event listener, which keeps working
+// with the configuration cache; the listener is only registered when an ExportTaskGraph task is going to run. The build is only over once every task has finished, so the recording is exported
+// when the service is closed at the end of the build, if an ExportTaskGraph task asked for it; the events
+// carry no dependencies between the tasks of the build, those are read from the task graph by ExportTaskGraph
+public abstract class TaskGraphRecorder implements BuildService<TaskGraphRecorder.Parameters>,
+        OperationCompletionListener, AutoCloseable {
+
+    public static final String NAME = "taskGraphRecorder";
+
+    private static final Logger logger = Logging.getLogger(TaskGraphRecorder.class);
+
+    public interface Parameters extends BuildServiceParameters {
+        Property<Integer> getMaxWorkers();
+    }
+
+    private final Queue<TaskExecution> executions = new ConcurrentLinkedQueue<>();
+
+    private volatile Path destination;
+    private volatile ExportFormat format;
+    private volatile Map<String, List<String>> taskDependencies;
+
+    static Provider<TaskGraphRecorder> register(Gradle gradle) {
+        return gradle.getSharedServices().registerIfAbsent(
+                NAME, TaskGraphRecorder.class, spec ->
+                        spec.getParameters().getMaxWorkers().set(gradle.getStartParameter().getMaxWorkerCount()));
+    }
+
+    @Override
+    public void onFinish(FinishEvent event) {
+        if (!(event instanceof TaskFinishEvent)) return;
+        TaskOperationDescriptor descriptor = ((TaskFinishEvent) event).getDescriptor();
+        OperationResult result = event.getResult();
+        executions.add(new TaskExecution(descriptor.getTaskPath(), result.getStartTime(), result.getEndTime(),
+                outcome(result)));
+    }
+
+    private static String outcome(OperationResult result) {
+        if (result instanceof TaskSuccessResult) {
+            TaskSuccessResult success = (TaskSuccessResult) result;
+            if (success.isFromCache()) return "from-cache";
+            if (success.isUpToDate()) return "up-to-date";
+            return "success";
+        } else if (result instanceof TaskSkippedResult) {
+            return "skipped";
+        } else if (result instanceof TaskFailureResult) {
+            return "failed";
+        }
+        return "unknown";
+    }
+
+    // the last request wins when several tasks ask for an export in the same build
+    void export(Path destination, ExportFormat format, Map<String, List<String>> taskDependencies) {
+        this.format = format;
+        this.taskDependencies = taskDependencies;
+        this.destination = destination;
+    }
+
+    @Override
+    @SneakyThrows
+    public void close() {
+        Path path = destination;
+        if (path == null) return;
+        TaskGraphAnalysis analysis = TaskGraphAnalysis.compute(new ArrayList<>(executions), taskDependencies,
+                getParameters().getMaxWorkers().get());
+        Files.createDirectories(path.getParent());
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            if (format == ExportFormat.JSON) {
+                analysis.writeJson(writer);
+            } else {
+                analysis.writeDot(writer);
+            }
+        }
+        logger.lifecycle("{} tasks in {}: the critical path takes {}, tasks ran alone for {} " +
+                        "and worker slots were idle for {} with {} workers, see {}",
+                analysis.getTaskCount(), TaskGraphAnalysis.formatDuration(analysis.getWallClockTime()),
+                TaskGraphAnalysis.formatDuration(analysis.getCriticalPathTime()),
+                TaskGraphAnalysis.formatDuration(analysis.getSerialisedTime()),
+                TaskGraphAnalysis.formatDuration(analysis.getIdleSlotTime()), analysis.getMaxWorkers(), path);
+    }
+}
@@ -0,0 +1,69 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+abstract class TextGraphWriter extends GraphWriter {
+
+    private static final int FLUSH_THRESHOLD = 0x10000;
+
+    private final Writer writer;
+    protected final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 0x400);
+    private char[] chunk = new char[FLUSH_THRESHOLD + 0x400];
+
+    protected TextGraphWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    void write(DependencyGraph graph) throws IOException {
+        writeHeader(graph);
+        int nodeCount = graph.getNodeCount();
+        for (int node = 0; node < nodeCount; node++) {
+            writeNode(graph, node);
+            flushIfNeeded();
+        }
+        int edge = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            int end = graph.getOffset(node + 1);
+            for (; edge < end; edge++) {
+                writeEdge(graph, node, graph.getTarget(edge), edge);
+                flushIfNeeded();
+            }
+        }
+        writeFooter(graph);
+    }
+
+    protected abstract void writeHeader(DependencyGraph graph);
+
+    protected abstract void writeNode(DependencyGraph graph, int node);
+
+    protected abstract void writeEdge(DependencyGraph graph, int from, int to, int edge);
+
+    protected abstract void writeFooter(DependencyGraph graph);
+
+    private void flushIfNeeded() throws IOException {
+        if (buffer.length() >= FLUSH_THRESHOLD) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        int length = buffer.length();
+        if (chunk.length < length) {
+            chunk = new char[length];
+        }
+        buffer.getChars(0, length, chunk, 0);
+        writer.write(chunk, 0, length);
+        buffer.setLength(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            writer.close();
+        }
+    }
+}
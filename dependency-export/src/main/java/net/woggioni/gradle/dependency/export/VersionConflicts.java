@@ -0,0 +1,157 @@
+package net.woggioni.gradle.dependency.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Classifies the edges whose requested version was replaced by conflict resolution
+// and summarizes the most contended modules
+final class VersionConflicts {
+
+    static final byte NONE = 0;
+    static final byte UPGRADE = 1;
+    static final byte DOWNGRADE = 2;
+    // the requested version is a range or a dynamic version, the selected version is not comparable with it
+    static final byte DYNAMIC = 3;
+
+    // special qualifiers ordered as Gradle does, any other qualifier sits between "dev" and "rc"
+    private static final List<String> QUALIFIERS =
+            Arrays.asList("dev", "", "rc", "snapshot", "final", "ga", "release", "sp");
+
+    private VersionConflicts() {
+    }
+
+    static byte classify(String requested, String selected) {
+        if (requested == null || selected == null || requested.equals(selected)) return NONE;
+        if (isDynamic(requested)) return DYNAMIC;
+        int comparison = compareVersions(selected, requested);
+        return comparison > 0 ? UPGRADE : comparison < 0 ? DOWNGRADE : NONE;
+    }
+
+    static boolean isDynamic(String version) {
+        return version.endsWith("+") || version.startsWith("latest.")
+                || version.startsWith("[") || version.startsWith("(") || version.startsWith("]");
+    }
+
+    // compares versions the way Gradle does: versions are split on '.', '-', '_' and '+' and between digits and
+    // letters, numeric parts are compared numerically and are greater than non numeric ones,
+    // an extra numeric part makes a version greater, an extra non numeric part (e.g. "-beta") makes it smaller
+    static int compareVersions(String v1, String v2) {
+        List<String> parts1 = split(v1);
+        List<String> parts2 = split(v2);
+        int common = Math.min(parts1.size(), parts2.size());
+        for (int i = 0; i < common; i++) {
+            int comparison = compareParts(parts1.get(i), parts2.get(i));
+            if (comparison != 0) return comparison;
+        }
+        if (parts1.size() > common) {
+            return isNumber(parts1.get(common)) ? 1 : -1;
+        } else if (parts2.size() > common) {
+            return isNumber(parts2.get(common)) ? -1 : 1;
+        } else {
+            return 0;
+        }
+    }
+
+    private static List<String> split(String version) {
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= version.length(); i++) {
+            boolean end = i == version.length();
+            char c = end ? 0 : version.charAt(i);
+            if (end || c == '.' || c == '-' || c == '_' || c == '+') {
+                if (i > start) result.add(version.substring(start, i));
+                start = i + 1;
+            } else if (i > start && Character.isDigit(c) != Character.isDigit(version.charAt(i - 1))) {
+                result.add(version.substring(start, i));
+                start = i;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isNumber(String part) {
+        return Character.isDigit(part.charAt(0));
+    }
+
+    private static int compareParts(String part1, String part2) {
+        boolean number1 = isNumber(part1);
+        boolean number2 = isNumber(part2);
+        if (number1 && number2) {
+            String trimmed1 = part1.replaceFirst("^0+(?=.)", "");
+            String trimmed2 = part2.replaceFirst("^0+(?=.)", "");
+            return trimmed1.length() != trimmed2.length() ?
+                    Integer.compare(trimmed1.length(), trimmed2.length()) : trimmed1.compareTo(trimmed2);
+        } else if (number1 != number2) {
+            return number1 ? 1 : -1;
+        }
+        int rank1 = qualifierRank(part1);
+        int rank2 = qualifierRank(part2);
+        return rank1 != rank2 ? Integer.compare(rank1, rank2) : part1.compareTo(part2);
+    }
+
+    private static int qualifierRank(String part) {
+        int index = QUALIFIERS.indexOf(part.toLowerCase());
+        return index < 0 ? QUALIFIERS.indexOf("") : index;
+    }
+
+    private static final class Contention {
+        private final String selected;
+        private final Map<String, Integer> requested = new TreeMap<>();
+        private int edges;
+        private int upgrades;
+        private int downgrades;
+
+        private Contention(String selected) {
+            this.selected = selected;
+        }
+    }
+
+    static int count(DependencyGraph graph) {
+        int result = 0;
+        for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+            if (graph.getRequestedVersion(edge) != null) result++;
+        }
+        return result;
+    }
+
+    // one line for each module selected with a version different from the requested one,
+    // the modules with more conflicting edges first
+    static void writeReport(DependencyGraph graph, Writer writer) throws IOException {
+        Map<String, Contention> contentions = new TreeMap<>();
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1); edge++) {
+                String requested = graph.getRequestedVersion(edge);
+                if (requested == null) continue;
+                int target = graph.getTarget(edge);
+                Contention contention = contentions.computeIfAbsent(graph.getModuleKey(target),
+                        key -> new Contention(graph.getVersion(target)));
+                contention.edges++;
+                contention.requested.merge(requested, 1, Integer::sum);
+                byte kind = classify(requested, contention.selected);
+                if (kind == UPGRADE) contention.upgrades++;
+                else if (kind == DOWNGRADE) contention.downgrades++;
+            }
+        }
+        List<Map.Entry<String, Contention>> entries = new ArrayList<>(contentions.entrySet());
+        entries.sort(Comparator.<Map.Entry<String, Contention>>comparingInt(entry -> entry.getValue().edges)
+                .reversed());
+        String format = "%-50s %-20s %6s %9s %11s  %s\n";
+        writer.write(String.format(format, "module", "selected", "edges", "upgrades", "downgrades", "requested"));
+        for (Map.Entry<String, Contention> entry : entries) {
+            Contention contention = entry.getValue();
+            StringBuilder requested = new StringBuilder();
+            for (Map.Entry<String, Integer> version : contention.requested.entrySet()) {
+                if (requested.length() > 0) requested.append(", ");
+                requested.append(version.getKey()).append(" (").append(version.getValue()).append(')');
+            }
+            writer.write(String.format(format, entry.getKey(), contention.selected, contention.edges,
+                    contention.upgrades, contention.downgrades, requested));
+        }
+    }
+}
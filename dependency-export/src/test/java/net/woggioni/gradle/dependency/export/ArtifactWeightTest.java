@@ -0,0 +1,129 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ArtifactWeightTest {
+
+    @TempDir
+    public Path testDir;
+
+    @Test
+    @SneakyThrows
+    public void scanCentralDirectory() {
+        Path jar = testDir.resolve("test.jar");
+        try (OutputStream outputStream = Files.newOutputStream(jar);
+             ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            zipOutputStream.setComment("a comment to skip");
+            for (String name : new String[] {
+                    "META-INF/", "META-INF/MANIFEST.MF", "org/", "org/A.class", "org/B.class", "org/b.properties"}) {
+                zipOutputStream.putNextEntry(new ZipEntry(name));
+                if (!name.endsWith("/")) zipOutputStream.write(new byte[64]);
+                zipOutputStream.closeEntry();
+            }
+        }
+        ArtifactWeight weight = JarScanner.scan(jar);
+        Assertions.assertEquals(Files.size(jar), weight.getSize());
+        Assertions.assertEquals(2, weight.getClassCount());
+        Assertions.assertEquals(2, weight.getResourceCount());
+
+        Path text = testDir.resolve("test.pom");
+        Files.write(text, new byte[100]);
+        Assertions.assertEquals(0, JarScanner.scan(text).getClassCount());
+        Assertions.assertEquals(100, JarScanner.scan(text).getSize());
+    }
+
+    @Test
+    @SneakyThrows
+    public void scanMultiReleaseJar() {
+        // the classes are counted the same way they are listed for the class usage
+        Path jar = jar("mr.jar", "module-info.class", "org/a/A.class", "org/a/B.class", "org/a/package-info.class",
+                "META-INF/versions/11/org/a/A.class", "META-INF/versions/17/org/a/A.class",
+                "META-INF/versions/11/org/a/C.class", "META-INF/versions/11/module-info.class");
+        Set<String> classes = new HashSet<>();
+        JarScanner.listClasses(jar, classes::add);
+        Assertions.assertEquals(3, classes.size());
+        Assertions.assertEquals(classes.size(), JarScanner.scan(jar).getClassCount());
+        Assertions.assertEquals(3, JarScanner.scan(jar).getResourceCount());
+    }
+
+    @SneakyThrows
+    private Path jar(String name, String... entries) {
+        Path jar = testDir.resolve(name);
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (String entry : entries) {
+                zipOutputStream.putNextEntry(new ZipEntry(entry));
+                zipOutputStream.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    @Test
+    @SneakyThrows
+    public void classUsage() {
+        // org.shared is split between the two jars
+        Map<String, java.util.List<File>> files = new HashMap<>();
+        files.put("a", Collections.singletonList(jar("a.jar",
+                "org/a/A.class", "org/a/A$1.class", "org/a/B.class", "org/shared/S1.class",
+                "META-INF/versions/11/org/a/C.class", "org/a/package-info.class").toFile()));
+        files.put("b", Collections.singletonList(jar("b.jar",
+                "org/b/B.class", "org/shared/S2.class").toFile()));
+        files.put("c", Collections.singletonList(jar("c.jar", "org/c/C.class").toFile()));
+        Path log = testDir.resolve("classes.log");
+        Files.write(log, Arrays.asList(
+                "[0.010s][info][class,load] java.lang.Object source: shared objects file",
+                "[0.020s][info][class,load] org.a.A source: file:/a.jar",
+                "[0.021s][info][class,load] org.a.A$1 source: file:/a.jar",
+                "[0.022s][info][class,load] org.a.A source: file:/a.jar",
+                "[0.023s][info][class,load] org.a.A$$Lambda$1/0x0000000800 source: org.a.A",
+                "[0.030s][info][class,load] org.shared.S2 source: file:/b.jar",
+                "[Loaded org.a.C from file:/a.jar]",
+                "some application output with source: in it"));
+        Map<String, Integer> result = ClassUsage.count(files, Collections.singletonList(log.toFile()));
+        Assertions.assertEquals(3, result.get("a"));
+        Assertions.assertEquals(1, result.get("b"));
+        Assertions.assertEquals(0, result.get("c"));
+
+        ArtifactWeight weight = new ArtifactWeight(10, 4, 0).withLoadedClasses(3);
+        Assertions.assertEquals(0.75, weight.getLoadedClassRatio());
+        Assertions.assertFalse(new ArtifactWeight(10, 4, 0).hasClassUsage());
+        Assertions.assertEquals(3, weight.plus(new ArtifactWeight(1, 1, 0)).getLoadedClassCount());
+    }
+
+    @Test
+    public void subtreeSizes() {
+        // a -> b -> d, a -> c -> d, c -> e: d is shared so it only counts towards a
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(5);
+        String[] names = {"project :a", "org:b:1", "org:c:1", "org:d:1", "org:e:1"};
+        for (int i = 0; i < names.length; i++) {
+            int node = builder.node(names[i], i == 0 ? DependencyGraph.KIND_PROJECT : DependencyGraph.KIND_MODULE);
+            builder.weight(node, new ArtifactWeight(1L << i, 0, 0));
+        }
+        builder.edge(0, 1);
+        builder.edge(0, 2);
+        builder.edge(1, 3);
+        builder.edge(2, 3);
+        builder.edge(2, 4);
+        DependencyGraph graph = builder.build();
+        Assertions.assertEquals(31, graph.getSubtreeSize(0));
+        Assertions.assertEquals(2, graph.getSubtreeSize(1));
+        Assertions.assertEquals(4 + 16, graph.getSubtreeSize(2));
+        Assertions.assertEquals(8, graph.getSubtreeSize(3));
+    }
+}
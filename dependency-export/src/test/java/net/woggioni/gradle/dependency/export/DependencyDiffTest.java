@@ -0,0 +1,53 @@
+package net.woggioni.gradle.dependency.export;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+public class DependencyDiffTest {
+
+    private static DependencyGraph graph(String[] names, int[][] edges, long[] sizes) {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(names.length);
+        for (int i = 0; i < names.length; i++) {
+            int node = builder.node(names[i], i == 0 ? DependencyGraph.KIND_PROJECT : DependencyGraph.KIND_MODULE);
+            builder.weight(node, new ArtifactWeight(sizes[i], 0, 0));
+        }
+        for (int[] edge : edges) {
+            builder.edge(edge[0], edge[1]);
+        }
+        return builder.build();
+    }
+
+    @Test
+    @SneakyThrows
+    public void diff() {
+        DependencyGraph baseline = graph(
+                new String[] {"project :a", "org:b:1.0", "org:c:1.0", "org:old:1.0"},
+                new int[][] {{0, 1}, {1, 2}, {0, 3}},
+                new long[] {0, 100, 200, 300});
+        DependencyGraph current = graph(
+                new String[] {"project :a", "org:b:2.0", "org:c:1.0", "org:new:1.0"},
+                new int[][] {{0, 1}, {1, 2}, {1, 3}},
+                new long[] {0, 150, 200, 1000});
+        DependencyDiff diff = DependencyDiff.compute(baseline, current);
+        DependencyGraph union = diff.getGraph();
+        Assertions.assertEquals(5, union.getNodeCount());
+        Assertions.assertEquals(DependencyDiff.UNCHANGED, diff.getNodeStatus(0));
+        Assertions.assertEquals(DependencyDiff.VERSION_CHANGED, diff.getNodeStatus(1));
+        Assertions.assertEquals("org:b:1.0", diff.getPreviousName(1));
+        Assertions.assertEquals(DependencyDiff.ADDED, diff.getNodeStatus(3));
+        Assertions.assertEquals(DependencyDiff.REMOVED, diff.getNodeStatus(4));
+
+        StringWriter report = new StringWriter();
+        diff.writeReport(report);
+        String text = report.toString();
+        Assertions.assertTrue(text.contains("Added components (1)\n    + org:new:1.0 (1000 B)\n"));
+        Assertions.assertTrue(text.contains("Removed components (1)\n    - org:old:1.0 (300 B)\n"));
+        Assertions.assertTrue(text.contains("Version changes (1)\n    ~ org:b 1.0 -> 2.0\n"));
+        Assertions.assertTrue(text.contains("New edges (1)\n    + org:b:2.0 -> org:new:1.0\n"));
+        Assertions.assertTrue(text.contains("Removed edges (1)\n    - project :a -> org:old:1.0\n"));
+        Assertions.assertTrue(text.contains("Total artifact size: 600 B -> 1.3 KiB (+750 B)\n"));
+    }
+}
@@ -1,20 +1,32 @@
 package net.woggioni.gradle.dependency.export;
 
 import lombok.SneakyThrows;
+import org.gradle.testkit.runner.BuildResult;
 import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
+import java.io.DataInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 public class DependencyExportPluginTest {
 
@@ -65,11 +77,15 @@ public class DependencyExportPluginTest {
         buildFile = testProjectDir.resolve("build.gradle.kts");
     }
 
-    public GradleRunner getStandardGradleRunnerFor(String taskName) {
+    public GradleRunner getStandardGradleRunnerFor(String taskName, String... taskArguments) {
+        List<String> arguments = new ArrayList<>();
+        arguments.add(taskName);
+        arguments.addAll(Arrays.asList(taskArguments));
+        arguments.addAll(Arrays.asList("-s", "--info", "-g", testGradleHomeDir.toString()));
         return GradleRunner.create()
                 .withDebug(true)
                 .withProjectDir(testProjectDir.toFile())
-                .withArguments(taskName, "-s", "--info", "-g", testGradleHomeDir.toString())
+                .withArguments(arguments)
                 .withPluginClasspath();
     }
 
@@ -90,4 +106,314 @@ public class DependencyExportPluginTest {
         GradleRunner runner = getStandardGradleRunnerFor("exportDependencies");
         runner.build();
     }
+
+    @SneakyThrows
+    @ParameterizedTest
+    @EnumSource(ExportFormat.class)
+    public void testExportFormat(ExportFormat format) {
+        installResource(getClass(),"build.gradle", testProjectDir);
+        installResource(getClass(),"settings.gradle.kts", testProjectDir);
+        installResource(getClass(),"gradle.properties", testProjectDir);
+        GradleRunner runner = getStandardGradleRunnerFor("exportDependencies",
+                "--format=" + format, "--showArtifacts", "--showWeights");
+        runner.build();
+        Path exportedFile = testProjectDir.resolve("build/docs/dependencies." + format.getFileExtension());
+        Assertions.assertTrue(Files.size(exportedFile) > 0);
+        if (format == ExportFormat.BINARY) {
+            try (DataInputStream inputStream = new DataInputStream(Files.newInputStream(exportedFile))) {
+                Assertions.assertEquals(BinaryGraphWriter.MAGIC, inputStream.readInt());
+                Assertions.assertEquals(BinaryGraphWriter.VERSION, inputStream.readInt());
+            }
+            Assertions.assertTrue(BinaryGraphReader.read(exportedFile).getNodeCount() > 0);
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void testProfileResolution() {
+        installResource(getClass(),"build.gradle", testProjectDir);
+        installResource(getClass(),"settings.gradle.kts", testProjectDir);
+        installResource(getClass(),"gradle.properties", testProjectDir);
+        GradleRunner runner = getStandardGradleRunnerFor("profileResolution",
+                "--configurations=runtimeClasspath", "--slowest=3");
+        runner.build();
+        String profile = new String(Files.readAllBytes(
+                testProjectDir.resolve("build/docs/dependencies-resolution-profile.json")), StandardCharsets.UTF_8);
+        Assertions.assertTrue(profile.contains("\"name\":\"runtimeClasspath\""));
+        Assertions.assertTrue(profile.contains("\"graphMillis\":"));
+        Assertions.assertTrue(profile.contains("\"slowestComponentLookups\":[\n{\"component\":"));
+
+        BuildResult result = getStandardGradleRunnerFor("profileResolution", "--slowest=-3").buildAndFail();
+        Assertions.assertTrue(result.getOutput().contains("Invalid value '-3' for option '--slowest'"));
+    }
+
+    @Test
+    public void testConfigurationCache() {
+        installResource(getClass(),"build.gradle", testProjectDir);
+        installResource(getClass(),"settings.gradle.kts", testProjectDir);
+        installResource(getClass(),"gradle.properties", testProjectDir);
+        GradleRunner runner = getStandardGradleRunnerFor("exportDependencies",
+                "--showArtifacts", "--showWeights", "--configuration-cache");
+        Assertions.assertTrue(runner.build().getOutput().contains("Configuration cache entry stored"));
+        Assertions.assertTrue(runner.build().getOutput().contains("Configuration cache entry reused"));
+    }
+
+    // a module in a local maven repository, with the given 'group:name:version' dependencies
+    @SneakyThrows
+    private static void mavenModule(Path repository, String name, String version, String... dependencies) {
+        Path directory = repository.resolve("org/example/" + name);
+        Files.createDirectories(directory.resolve(version));
+        StringBuilder pom = new StringBuilder("<project>\n<modelVersion>4.0.0</modelVersion>\n" +
+                "<groupId>org.example</groupId><artifactId>" + name + "</artifactId><version>" + version + "</version>\n" +
+                "<dependencies>\n");
+        for (String dependency : dependencies) {
+            String[] coordinates = dependency.split(":");
+            pom.append("<dependency><groupId>").append(coordinates[0]).append("</groupId><artifactId>")
+                    .append(coordinates[1]).append("</artifactId><version>").append(coordinates[2])
+                    .append("</version></dependency>\n");
+        }
+        pom.append("</dependencies>\n</project>\n");
+        Files.write(directory.resolve(version + "/" + name + "-" + version + ".pom"),
+                pom.toString().getBytes(StandardCharsets.UTF_8));
+        writeJar(directory.resolve(version + "/" + name + "-" + version + ".jar"), "org/example/A.class");
+        // the versions listed for the dynamic versions
+        StringBuilder metadata = new StringBuilder("<metadata><groupId>org.example</groupId><artifactId>")
+                .append(name).append("</artifactId><versioning><versions>");
+        try (Stream<Path> versions = Files.list(directory)) {
+            versions.filter(Files::isDirectory).map(it -> it.getFileName().toString()).sorted()
+                    .forEach(it -> metadata.append("<version>").append(it).append("</version>"));
+        }
+        metadata.append("</versions></versioning></metadata>\n");
+        Files.write(directory.resolve("maven-metadata.xml"), metadata.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testRequestedVersionChange() {
+        installResource(getClass(),"settings.gradle.kts", testProjectDir);
+        installResource(getClass(),"gradle.properties", testProjectDir);
+        Path repository = testProjectDir.resolve("repo");
+        mavenModule(repository, "lib", "1.0");
+        mavenModule(repository, "lib", "1.1");
+        mavenModule(repository, "lib", "2.0");
+        mavenModule(repository, "app", "1.0", "org.example:lib:2.0");
+        // conflict resolution selects the version required by app whatever the build script requests
+        String buildScript = "plugins {\n" +
+                "    id 'java-library'\n" +
+                "    id 'net.woggioni.gradle.dependency-export'\n" +
+                "}\n" +
+                "repositories {\n" +
+                "    maven { url = file('repo') }\n" +
+                "}\n" +
+                "dependencies {\n" +
+                "    implementation('org.example:app:1.0')\n" +
+                "    implementation('org.example:lib:%s')\n" +
+                "}\n";
+        Path buildGroovy = testProjectDir.resolve("build.gradle");
+        Path conflictReport = testProjectDir.resolve("build/docs/dependencies-conflicts.txt");
+        Files.write(buildGroovy, String.format(buildScript, "1.0").getBytes(StandardCharsets.UTF_8));
+        getStandardGradleRunnerFor("exportDependencies").build();
+        Assertions.assertTrue(new String(Files.readAllBytes(conflictReport), StandardCharsets.UTF_8)
+                .contains("1.0 (1)"));
+
+        Files.write(buildGroovy, String.format(buildScript, "1.1").getBytes(StandardCharsets.UTF_8));
+        BuildResult result = getStandardGradleRunnerFor("exportDependencies").build();
+        Assertions.assertEquals(TaskOutcome.SUCCESS, result.task(":exportDependencies").getOutcome());
+        Assertions.assertTrue(new String(Files.readAllBytes(conflictReport), StandardCharsets.UTF_8)
+                .contains("1.1 (1)"));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testDynamicVersionWithoutConflict() {
+        installResource(getClass(),"settings.gradle.kts", testProjectDir);
+        installResource(getClass(),"gradle.properties", testProjectDir);
+        Path repository = testProjectDir.resolve("repo");
+        mavenModule(repository, "lib", "1.0");
+        mavenModule(repository, "lib", "1.1");
+        String buildScript = "plugins {\n" +
+                "    id 'java-library'\n" +
+                "    id 'net.woggioni.gradle.dependency-export'\n" +
+                "}\n" +
+                "repositories {\n" +
+                "    maven { url = file('repo') }\n" +
+                "}\n" +
+                "dependencies {\n" +
+                "    implementation('org.example:lib:1.+')\n" +
+                "}\n";
+        Files.write(testProjectDir.resolve("build.gradle"), buildScript.getBytes(StandardCharsets.UTF_8));
+        String output = getStandardGradleRunnerFor("exportDependencies").build().getOutput();
+        Assertions.assertFalse(output.contains("Requested versions replaced by conflict resolution"));
+        // only the header
+        Assertions.assertEquals(1, Files.readAllLines(
+                testProjectDir.resolve("build/docs/dependencies-conflicts.txt")).size());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testDependencyGraphService() {
+        installResource(getClass(),"settings.gradle.kts", testProjectDir);
+        installResource(getClass(),"gradle.properties", testProjectDir);
+        String buildScript = "plugins {\n" +
+                "    id 'java-library'\n" +
+                "    id 'net.woggioni.gradle.dependency-export'\n" +
+                "}\n" +
+                "repositories {\n" +
+                "    mavenCentral()\n" +
+                "}\n" +
+                "dependencies {\n" +
+                "    implementation('org.jboss.logging:jboss-logging:3.3.2.Final')\n" +
+                "}\n" +
+                "def graphs = net.woggioni.gradle.dependency.export.DependencyGraphService.register(gradle)\n" +
+                "def projectPath = project.path\n" +
+                "tasks.register('countDependencies') {\n" +
+                "    dependsOn 'exportDependencies'\n" +
+                "    usesService(graphs)\n" +
+                "    doLast {\n" +
+                "        def graph = graphs.get().getGraph(projectPath, 'runtimeClasspath')\n" +
+                "        println \"components: ${graph.nodeCount}, weights: ${graph.hasWeights()}\"\n" +
+                "    }\n" +
+                "}\n";
+        Files.write(testProjectDir.resolve("build.gradle"), buildScript.getBytes(StandardCharsets.UTF_8));
+        String output = getStandardGradleRunnerFor("exportDependencies", "--showWeights", "countDependencies")
+                .build().getOutput();
+        Assertions.assertTrue(output.contains("components: 2, weights: true"));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testAggregateDependencies() {
+        installResource(getClass(),"gradle.properties", testProjectDir);
+        Files.write(testProjectDir.resolve("settings.gradle"),
+                "include 'a', 'b', 'docs'\n".getBytes(StandardCharsets.UTF_8));
+        String plugins = "plugins {\n" +
+                "    id 'java-library'\n" +
+                "    id 'net.woggioni.gradle.dependency-export'\n" +
+                "}\n" +
+                "repositories {\n" +
+                "    mavenCentral()\n" +
+                "}\n";
+        Files.write(testProjectDir.resolve("build.gradle"), (plugins +
+                "dependencies {\n" +
+                "    implementation project(':b')\n" +
+                "}\n").getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(testProjectDir.resolve("a"));
+        Files.write(testProjectDir.resolve("a/build.gradle"), (plugins +
+                "dependencies {\n" +
+                "    implementation('org.jboss.logging:jboss-logging:3.3.2.Final')\n" +
+                "}\n").getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(testProjectDir.resolve("b"));
+        Files.write(testProjectDir.resolve("b/build.gradle"), (plugins +
+                "dependencies {\n" +
+                "    implementation project(':a')\n" +
+                "}\n").getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(testProjectDir.resolve("docs"));
+        BuildResult result = getStandardGradleRunnerFor("aggregateDependencies", "analyzeProjectParallelism",
+                "-Dorg.gradle.unsafe.isolated-projects=true").build();
+        Assertions.assertEquals(TaskOutcome.SUCCESS, result.task(":aggregateDependencies").getOutcome());
+        String graph = new String(Files.readAllBytes(
+                testProjectDir.resolve("build/docs/aggregatedDependencies.dot")), StandardCharsets.UTF_8);
+        Assertions.assertTrue(graph.contains("org.jboss.logging:jboss-logging:3.3.2.Final"));
+        List<String> timings = Files.readAllLines(
+                testProjectDir.resolve("build/docs/aggregatedDependencies-timings.txt"));
+        // the header and one line for each project applying the java plugin
+        Assertions.assertEquals(4, timings.size());
+        String report = new String(Files.readAllBytes(
+                testProjectDir.resolve("build/docs/project-parallelism.txt")), StandardCharsets.UTF_8);
+        Assertions.assertTrue(report.contains(":a"));
+
+        // the timings of an earlier build are never reported again
+        result = getStandardGradleRunnerFor("aggregateDependencies",
+                "-Dorg.gradle.unsafe.isolated-projects=true").build();
+        Assertions.assertEquals(TaskOutcome.SUCCESS, result.task(":a:exportDependenciesForAggregation").getOutcome());
+        Assertions.assertEquals(TaskOutcome.SUCCESS, result.task(":aggregateDependencies").getOutcome());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testExportTaskGraph() {
+        installResource(getClass(),"settings.gradle.kts", testProjectDir);
+        installResource(getClass(),"gradle.properties", testProjectDir);
+        installResource(getClass(),"build.gradle.kts", testProjectDir);
+        Path taskGraph = testProjectDir.resolve("build/docs/task-graph.json");
+        // the executions are recorded when the cache entry is stored and when it is reused
+        for (String message : new String[] {"Configuration cache entry stored", "Configuration cache entry reused"}) {
+            Files.deleteIfExists(taskGraph);
+            BuildResult result = getStandardGradleRunnerFor("exportDependencies", "exportTaskGraph",
+                    "--format=JSON", "--configuration-cache").build();
+            Assertions.assertTrue(result.getOutput().contains(message));
+            String json = new String(Files.readAllBytes(taskGraph), StandardCharsets.UTF_8);
+            Assertions.assertTrue(json.contains("\":exportDependencies\""));
+        }
+        Files.deleteIfExists(taskGraph);
+        getStandardGradleRunnerFor("exportDependencies", "--configuration-cache").build();
+        Assertions.assertFalse(Files.exists(taskGraph));
+    }
+
+    @SneakyThrows
+    private static void writeJar(Path jar, String... entries) {
+        Files.createDirectories(jar.getParent());
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (String entry : entries) {
+                ZipEntry zipEntry = new ZipEntry(entry);
+                zipEntry.setTime(0);
+                zipOutputStream.putNextEntry(zipEntry);
+                zipOutputStream.closeEntry();
+            }
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void testRebuiltJar() {
+        installResource(getClass(),"settings.gradle.kts", testProjectDir);
+        installResource(getClass(),"gradle.properties", testProjectDir);
+        String buildScript = "plugins {\n" +
+                "    id 'java-library'\n" +
+                "    id 'net.woggioni.gradle.dependency-export'\n" +
+                "}\n" +
+                "repositories {\n" +
+                "    flatDir { dirs 'libs' }\n" +
+                "}\n" +
+                "dependencies {\n" +
+                "    implementation(':lib:1.0-SNAPSHOT')\n" +
+                "}\n";
+        Files.write(testProjectDir.resolve("build.gradle"), buildScript.getBytes(StandardCharsets.UTF_8));
+        Path jar = testProjectDir.resolve("libs/lib-1.0-SNAPSHOT.jar");
+        writeJar(jar, "lib/A.class", "lib/B.class");
+        long size = Files.size(jar);
+        Assertions.assertEquals(TaskOutcome.SUCCESS, getStandardGradleRunnerFor("exportDependencies", "--showWeights")
+                .build().task(":exportDependencies").getOutcome());
+        // the same name and size, with one class less
+        writeJar(jar, "lib/A.class", "lib/B.txtxx");
+        Assertions.assertEquals(size, Files.size(jar));
+        Assertions.assertEquals(TaskOutcome.SUCCESS, getStandardGradleRunnerFor("exportDependencies", "--showWeights")
+                .build().task(":exportDependencies").getOutcome());
+        Assertions.assertEquals(TaskOutcome.UP_TO_DATE, getStandardGradleRunnerFor("exportDependencies", "--showWeights")
+                .build().task(":exportDependencies").getOutcome());
+    }
+
+    @Test
+    public void testInvalidRenderOption() {
+        installResource(getClass(),"build.gradle", testProjectDir);
+        installResource(getClass(),"settings.gradle.kts", testProjectDir);
+        installResource(getClass(),"gradle.properties", testProjectDir);
+        BuildResult result = getStandardGradleRunnerFor("renderDependencies",
+                "--renderer=ADAPTIVE", "--maxDotNodes=0").buildAndFail();
+        Assertions.assertTrue(result.getOutput().contains("Invalid value '0' for option '--maxDotNodes'"));
+        result = getStandardGradleRunnerFor("renderDependencies",
+                "--renderer=ADAPTIVE", "--timeBudget=a minute").buildAndFail();
+        Assertions.assertTrue(result.getOutput().contains("Invalid value 'a minute' for option '--timeBudget'"));
+    }
+
+    @Test
+    public void testInvalidMaxDepth() {
+        installResource(getClass(),"build.gradle", testProjectDir);
+        installResource(getClass(),"settings.gradle.kts", testProjectDir);
+        installResource(getClass(),"gradle.properties", testProjectDir);
+        BuildResult result = getStandardGradleRunnerFor("exportDependencies", "--maxDepth=-1").buildAndFail();
+        Assertions.assertTrue(result.getOutput().contains("Invalid value '-1' for option '--maxDepth'"));
+        result = getStandardGradleRunnerFor("exportDependencies", "--maxDepth=two").buildAndFail();
+        Assertions.assertTrue(result.getOutput().contains("Invalid value 'two' for option '--maxDepth'"));
+    }
 }
@@ -0,0 +1,65 @@
+package net.woggioni.gradle.dependency.export;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+
+public class DependencyGraphTest {
+
+    @Test
+    public void internsArtifactsAndRequestedVersions() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(3);
+        int a = builder.node("project :a", DependencyGraph.KIND_PROJECT);
+        int b = builder.node("org:b:2.0", DependencyGraph.KIND_MODULE);
+        int c = builder.node("org:c:2.0", DependencyGraph.KIND_MODULE);
+        builder.artifacts(b, Collections.singletonList(new ArtifactInfo("jar", null, "jar")));
+        builder.artifacts(c, Collections.singletonList(new ArtifactInfo("jar", null, "jar")));
+        builder.edge(a, b, new String("1.0"));
+        builder.edge(a, c, new String("1.0"));
+        DependencyGraph graph = builder.build();
+        Assertions.assertSame(graph.getArtifacts(b), graph.getArtifacts(c));
+        Assertions.assertSame(graph.getRequestedVersion(0), graph.getRequestedVersion(1));
+        Assertions.assertEquals(1, graph.getArtifactCount(b));
+        Assertions.assertEquals("jar", graph.getArtifact(c, 0).getType());
+        Assertions.assertEquals(2, graph.getConflictCount());
+        Assertions.assertEquals(c, graph.findNode("org:c:2.0"));
+        Assertions.assertEquals(-1, graph.findNode("org:d:2.0"));
+        Assertions.assertEquals(2, graph.shortestPathsTo("org:b").getNodeCount());
+    }
+
+    // :a depends on :b, org:shared is used by both of them
+    @Test
+    public void clustersProjects() throws IOException {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(5);
+        int a = builder.node("project :a", DependencyGraph.KIND_PROJECT);
+        int b = builder.node("project :b", DependencyGraph.KIND_PROJECT);
+        int onlyA = builder.node("org:a-only:1.0", DependencyGraph.KIND_MODULE);
+        int onlyB = builder.node("org:b-only:1.0", DependencyGraph.KIND_MODULE);
+        int shared = builder.node("org:shared:1.0", DependencyGraph.KIND_MODULE);
+        builder.edge(a, b);
+        builder.edge(a, onlyA);
+        builder.edge(a, shared);
+        builder.edge(b, onlyB);
+        builder.edge(onlyB, shared);
+        StringWriter dot = new StringWriter();
+        try (DotWriter writer = new DotWriter(dot, true)) {
+            writer.write(builder.build());
+        }
+        String expected = "    subgraph cluster_" + a + " {\n" +
+                "        label=\":a\";\n" +
+                "        style=\"rounded,dashed\";\n" +
+                "        node_" + a + ";\n" +
+                "        node_" + onlyA + ";\n" +
+                "    }\n" +
+                "    subgraph cluster_" + b + " {\n" +
+                "        label=\":b\";\n" +
+                "        style=\"rounded,dashed\";\n" +
+                "        node_" + b + ";\n" +
+                "        node_" + onlyB + ";\n" +
+                "    }\n";
+        Assertions.assertTrue(dot.toString().contains(expected), dot.toString());
+    }
+}
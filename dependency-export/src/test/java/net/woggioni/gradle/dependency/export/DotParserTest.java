@@ -0,0 +1,58 @@
+package net.woggioni.gradle.dependency.export;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+public class DotParserTest {
+
+    private static final String SOURCE = "digraph G {\n" +
+            "    #rankdir=\"LR\";\n" +
+            "    // line comment\n" +
+            "    node [shape=box];\n" +
+            "    node_0 [label=\"project :a\", shape=\"box\", fillcolor=\"#88ff88\"];\n" +
+            "    node_1 [label=<<TABLE><TR><TD>org:b:1.0</TD></TR><TR><TD BGCOLOR=\"lightgrey\">type: jar</TD></TR></TABLE>>];\n" +
+            "    /* block\n comment */\n" +
+            "    node_0 -> node_1 -> node_2 [color=\"red\"];\n" +
+            "    node_2 -> node_0;\n" +
+            "}\n";
+
+    @Test
+    public void parse() {
+        DotGraph graph = DotParser.parse(SOURCE);
+        Assertions.assertEquals(3, graph.getNodeCount());
+        Assertions.assertEquals(3, graph.getEdgeCount());
+        Assertions.assertEquals("#88ff88", graph.getNodeAttribute(0, "fillcolor"));
+        Assertions.assertEquals(Arrays.asList("org:b:1.0", "type: jar"), graph.getLabelLines(1));
+        Assertions.assertEquals(Arrays.asList("node_2"), graph.getLabelLines(2));
+        Assertions.assertEquals("red", graph.getEdgeAttribute(1, "color"));
+        Assertions.assertNull(graph.getEdgeAttribute(2, "color"));
+    }
+
+    @Test
+    public void layoutBreaksCycles() {
+        DotGraph graph = DotParser.parse(SOURCE);
+        LayeredLayout layout = LayeredLayout.compute(graph);
+        Assertions.assertTrue(layout.getY()[0] < layout.getY()[1]);
+        Assertions.assertTrue(layout.getY()[1] < layout.getY()[2]);
+    }
+
+    @Test
+    public void truncateAndWrite() throws IOException {
+        // every node is part of the cycle, hence the visit starts from the first one
+        DotGraph truncated = DotParser.parse(SOURCE).truncate(2);
+        Assertions.assertEquals(2, truncated.getNodeCount());
+        Assertions.assertEquals(1, truncated.getEdgeCount());
+        StringWriter writer = new StringWriter();
+        truncated.write(writer);
+        DotGraph graph = DotParser.parse(writer.toString());
+        Assertions.assertEquals(2, graph.getNodeCount());
+        Assertions.assertEquals(1, graph.getEdgeCount());
+        Assertions.assertEquals("project :a", graph.getNodeAttribute(0, "label"));
+        Assertions.assertEquals(Arrays.asList("org:b:1.0", "type: jar"), graph.getLabelLines(1));
+        Assertions.assertEquals("red", graph.getEdgeAttribute(0, "color"));
+    }
+}
@@ -0,0 +1,151 @@
+package net.woggioni.gradle.dependency.export;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class GraphReductionTest {
+
+    // project :a -> org:b:1.0 -> org:c:1.0 -> net:d:1.0, with shortcuts from :a to every module
+    // and a cycle between net:d:1.0 and net:e:1.0
+    private static DependencyGraph sample() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(5);
+        int a = builder.node("project :a", DependencyGraph.KIND_PROJECT);
+        int b = builder.node("org:b:1.0", DependencyGraph.KIND_MODULE);
+        int c = builder.node("org:c:1.0", DependencyGraph.KIND_MODULE);
+        int d = builder.node("net:d:1.0", DependencyGraph.KIND_MODULE);
+        int e = builder.node("net:e:1.0", DependencyGraph.KIND_MODULE);
+        builder.edge(a, b);
+        builder.edge(a, c);
+        builder.edge(a, d);
+        builder.edge(b, c);
+        builder.edge(c, d);
+        builder.edge(d, e);
+        builder.edge(e, d);
+        return builder.build();
+    }
+
+    private static boolean hasEdge(DependencyGraph graph, String from, String to) {
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            if (!graph.getName(node).equals(from)) continue;
+            for (int edge = graph.getOffset(node); edge < graph.getOffset(node + 1); edge++) {
+                if (graph.getName(graph.getTarget(edge)).equals(to)) return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void transitiveReduction() {
+        DependencyGraph graph = GraphReduction.transitiveReduction(sample());
+        Assertions.assertEquals(5, graph.getNodeCount());
+        Assertions.assertEquals(5, graph.getEdgeCount());
+        Assertions.assertTrue(hasEdge(graph, "project :a", "org:b:1.0"));
+        Assertions.assertFalse(hasEdge(graph, "project :a", "org:c:1.0"));
+        Assertions.assertFalse(hasEdge(graph, "project :a", "net:d:1.0"));
+        Assertions.assertTrue(hasEdge(graph, "net:d:1.0", "net:e:1.0"));
+        Assertions.assertTrue(hasEdge(graph, "net:e:1.0", "net:d:1.0"));
+    }
+
+    @Test
+    public void maxDepth() {
+        DependencyGraph graph = new GraphReduction(null, null, null, 1, false).reduce(sample());
+        Assertions.assertEquals(4, graph.getNodeCount());
+        Assertions.assertEquals(5, graph.getEdgeCount());
+    }
+
+    @Test
+    public void excludeAndInclude() {
+        DependencyGraph excluded = new GraphReduction(null, Collections.singletonList("net:.*"), null, null, false)
+                .reduce(sample());
+        Assertions.assertEquals(3, excluded.getNodeCount());
+        DependencyGraph included = new GraphReduction(Collections.singletonList("org:c"), null, null, null, false)
+                .reduce(sample());
+        Assertions.assertEquals(3, included.getNodeCount());
+        Assertions.assertTrue(hasEdge(included, "org:b:1.0", "org:c:1.0"));
+    }
+
+    @Test
+    public void collapseGroups() {
+        DependencyGraph graph = new GraphReduction(null, null, Arrays.asList("org", "net"), null, false)
+                .reduce(sample());
+        Assertions.assertEquals(3, graph.getNodeCount());
+        Assertions.assertTrue(hasEdge(graph, "project :a", "org:*"));
+        Assertions.assertTrue(hasEdge(graph, "org:*", "net:*"));
+        Assertions.assertEquals("*", graph.getModule(1));
+    }
+
+    @Test
+    public void shortestPaths() {
+        DependencyGraph graph = GraphReduction.shortestPaths(sample(), "net:e");
+        Assertions.assertEquals(3, graph.getNodeCount());
+        Assertions.assertEquals(2, graph.getEdgeCount());
+        Assertions.assertTrue(hasEdge(graph, "project :a", "net:d:1.0"));
+        Assertions.assertTrue(hasEdge(graph, "net:d:1.0", "net:e:1.0"));
+        Assertions.assertNull(GraphReduction.shortestPaths(sample(), "net:f"));
+
+        // every shortest path is kept: project :a -> {org:b, org:c} -> net:d -> net:e, plus a longer one through net:d -> org:f
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(6);
+        int a = builder.node("project :a", DependencyGraph.KIND_PROJECT);
+        int b = builder.node("org:b:1.0", DependencyGraph.KIND_MODULE);
+        int c = builder.node("org:c:1.0", DependencyGraph.KIND_MODULE);
+        int d = builder.node("net:d:1.0", DependencyGraph.KIND_MODULE);
+        int e = builder.node("net:e:1.0", DependencyGraph.KIND_MODULE);
+        int f = builder.node("org:f:1.0", DependencyGraph.KIND_MODULE);
+        builder.edge(a, b);
+        builder.edge(a, c);
+        builder.edge(b, d);
+        builder.edge(c, d);
+        builder.edge(d, f);
+        builder.edge(f, e);
+        builder.edge(d, e);
+        DependencyGraph diamond = GraphReduction.shortestPaths(builder.build(), "net:e:1.0");
+        Assertions.assertEquals(5, diamond.getNodeCount());
+        Assertions.assertEquals(5, diamond.getEdgeCount());
+        Assertions.assertFalse(hasEdge(diamond, "net:d:1.0", "org:f:1.0"));
+    }
+
+    @Test
+    public void tags() throws IOException {
+        // project :a -> org:b:1.0 in both configurations, org:b:1.0 -> org:c:1.0 only in the second one
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(3);
+        builder.tags(new String[] { "compileClasspath", "runtimeClasspath" });
+        int a = builder.node("project :a", DependencyGraph.KIND_PROJECT);
+        int b = builder.node("org:b:1.0", DependencyGraph.KIND_MODULE);
+        int c = builder.node("org:c:1.0", DependencyGraph.KIND_MODULE);
+        builder.tag(a, 0b11);
+        builder.tag(b, 0b11);
+        builder.tag(c, 0b10);
+        Assertions.assertTrue(builder.edge(a, b, null, 0b01));
+        Assertions.assertTrue(builder.edge(b, c, null, 0b10));
+        Assertions.assertFalse(builder.edge(a, b, null, 0b10));
+        DependencyGraph graph = builder.build();
+        Assertions.assertEquals(2, graph.getEdgeCount());
+        Assertions.assertTrue(graph.hasAllTags(graph.getEdgeTags(graph.getOffset(a))));
+        Assertions.assertFalse(graph.hasAllTags(graph.getNodeTags(c)));
+        Assertions.assertEquals("runtimeClasspath", graph.describeTags(graph.getEdgeTags(graph.getOffset(b))));
+
+        DependencyGraph collapsed = new GraphReduction(null, null, Collections.singletonList("org"), null, false)
+                .reduce(graph);
+        Assertions.assertEquals(2, collapsed.getNodeCount());
+        Assertions.assertEquals(0b11, collapsed.getNodeTags(1));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (BinaryGraphWriter writer = new BinaryGraphWriter(bos)) {
+            writer.write(graph);
+        }
+        DependencyGraph read = BinaryGraphReader.read(ByteBuffer.wrap(bos.toByteArray()));
+        Assertions.assertArrayEquals(graph.getTags(), read.getTags());
+        for (int node = 0; node < graph.getNodeCount(); node++) {
+            Assertions.assertEquals(graph.getNodeTags(node), read.getNodeTags(node));
+        }
+        for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+            Assertions.assertEquals(graph.getEdgeTags(edge), read.getEdgeTags(edge));
+        }
+    }
+}
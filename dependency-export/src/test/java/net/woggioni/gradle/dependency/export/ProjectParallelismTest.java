@@ -0,0 +1,51 @@
+package net.woggioni.gradle.dependency.export;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class ProjectParallelismTest {
+
+    // :app -> {:service, :web} -> :core, :app -> :x <-> :y and an isolated :tools,
+    // the module dependency of :core is ignored
+    private static DependencyGraph sample() {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(8);
+        int app = builder.node("project :app", DependencyGraph.KIND_PROJECT);
+        int service = builder.node("project :service", DependencyGraph.KIND_PROJECT);
+        int web = builder.node("project :web", DependencyGraph.KIND_PROJECT);
+        int core = builder.node("project :core", DependencyGraph.KIND_PROJECT);
+        builder.node("project :tools", DependencyGraph.KIND_PROJECT);
+        int x = builder.node("project :x", DependencyGraph.KIND_PROJECT);
+        int y = builder.node("project :y", DependencyGraph.KIND_PROJECT);
+        int module = builder.node("org:m:1.0", DependencyGraph.KIND_MODULE);
+        builder.edge(app, service);
+        builder.edge(app, web);
+        builder.edge(service, core);
+        builder.edge(web, core);
+        builder.edge(core, module);
+        builder.edge(app, x);
+        builder.edge(x, y);
+        builder.edge(y, x);
+        return builder.build();
+    }
+
+    @Test
+    public void analyze() throws IOException {
+        ProjectParallelism parallelism = ProjectParallelism.compute(sample());
+        Assertions.assertEquals(7, parallelism.getProjectCount());
+        Assertions.assertEquals(7, parallelism.getDependencyCount());
+        Assertions.assertEquals(3, parallelism.getCriticalPathLength());
+        // :service, :web, the :x and :y cycle and :tools
+        Assertions.assertEquals(4, parallelism.getWidth());
+
+        StringWriter writer = new StringWriter();
+        parallelism.writeReport(writer);
+        String report = writer.toString();
+        Assertions.assertTrue(report.contains("{project :x, project :y}"));
+        // :service and :web are parallel critical paths, removing either dependency does not shorten the build
+        Assertions.assertTrue(report.matches("(?s).*project :app -> project :service\\s+3 -> 3\n.*"));
+        Assertions.assertFalse(report.contains("project :tools ->"));
+    }
+}
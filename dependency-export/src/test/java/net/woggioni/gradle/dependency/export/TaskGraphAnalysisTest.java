@@ -0,0 +1,65 @@
+package net.woggioni.gradle.dependency.export;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TaskGraphAnalysisTest {
+
+    // with 2 workers: :compile (0-100) and :lint (0-30) run together, then :test (100-250) runs alone
+    // while :jar (100-120) depends on :compile as well, :test depends on :compile
+    @Test
+    public void analyze() throws IOException {
+        List<TaskExecution> executions = Arrays.asList(
+                new TaskExecution(":compile", 1000, 1100, "success"),
+                new TaskExecution(":lint", 1000, 1030, "up-to-date"),
+                new TaskExecution(":jar", 1100, 1120, "success"),
+                new TaskExecution(":test", 1100, 1250, "success"));
+        Map<String, List<String>> dependencies = new HashMap<>();
+        dependencies.put(":jar", Collections.singletonList(":compile"));
+        dependencies.put(":test", Arrays.asList(":compile", ":unknown"));
+        TaskGraphAnalysis analysis = TaskGraphAnalysis.compute(executions, dependencies, 2);
+        Assertions.assertEquals(4, analysis.getTaskCount());
+        Assertions.assertEquals(250, analysis.getWallClockTime());
+        Assertions.assertEquals(300, analysis.getBusyTime());
+        Assertions.assertEquals(Arrays.asList(":compile", ":test"), analysis.getCriticalPath());
+        Assertions.assertEquals(250, analysis.getCriticalPathTime());
+        // :compile alone from 30 to 100, :test alone from 120 to 250
+        Assertions.assertEquals(70 + 130, analysis.getSerialisedTime());
+        Assertions.assertEquals(2 * 250 - 300, analysis.getIdleSlotTime());
+
+        StringWriter json = new StringWriter();
+        analysis.writeJson(json);
+        Assertions.assertTrue(json.toString().contains(
+                "{\"path\":\":test\",\"outcome\":\"success\",\"start\":1100,\"end\":1250,\"durationMillis\":150," +
+                        "\"aloneMillis\":130,\"critical\":true,\"dependencies\":[\":compile\"]}"));
+        StringWriter dot = new StringWriter();
+        analysis.writeDot(dot);
+        Assertions.assertTrue(dot.toString().contains("penwidth=\"3\""));
+    }
+
+    // the serialised time is the sum of the time every task ran alone, the gap between :a and :b is not counted
+    @Test
+    public void serialisedTime() {
+        List<TaskExecution> executions = Arrays.asList(
+                new TaskExecution(":a", 1000, 1010, "success"),
+                new TaskExecution(":b", 1020, 1030, "success"));
+        TaskGraphAnalysis analysis = TaskGraphAnalysis.compute(executions, Collections.emptyMap(), 2);
+        Assertions.assertEquals(30, analysis.getWallClockTime());
+        Assertions.assertEquals(10 + 10, analysis.getSerialisedTime());
+    }
+
+    @Test
+    public void empty() {
+        TaskGraphAnalysis analysis = TaskGraphAnalysis.compute(Collections.emptyList(), Collections.emptyMap(), 4);
+        Assertions.assertEquals(0, analysis.getWallClockTime());
+        Assertions.assertTrue(analysis.getCriticalPath().isEmpty());
+    }
+}
@@ -0,0 +1,69 @@
+package net.woggioni.gradle.dependency.export;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+
+public class VersionConflictsTest {
+
+    @Test
+    public void compareVersions() {
+        Assertions.assertTrue(VersionConflicts.compareVersions("1.10", "1.9") > 0);
+        Assertions.assertTrue(VersionConflicts.compareVersions("33.0.0-jre", "32.1.3-jre") > 0);
+        Assertions.assertTrue(VersionConflicts.compareVersions("1.0.1", "1.0") > 0);
+        Assertions.assertTrue(VersionConflicts.compareVersions("1.0-beta", "1.0") < 0);
+        Assertions.assertTrue(VersionConflicts.compareVersions("1.0-rc1", "1.0-beta2") > 0);
+        Assertions.assertTrue(VersionConflicts.compareVersions("1.0.Final", "1.0-rc1") > 0);
+        Assertions.assertTrue(VersionConflicts.compareVersions("1.0-dev", "1.0-alpha") < 0);
+        Assertions.assertEquals(0, VersionConflicts.compareVersions("1.01", "1.1"));
+    }
+
+    @Test
+    public void classify() {
+        Assertions.assertEquals(VersionConflicts.NONE, VersionConflicts.classify("1.0", "1.0"));
+        Assertions.assertEquals(VersionConflicts.UPGRADE, VersionConflicts.classify("1.0", "1.2"));
+        Assertions.assertEquals(VersionConflicts.DOWNGRADE, VersionConflicts.classify("2.0", "1.2"));
+        Assertions.assertEquals(VersionConflicts.DYNAMIC, VersionConflicts.classify("[1.0,2.0)", "1.2"));
+        Assertions.assertEquals(VersionConflicts.DYNAMIC, VersionConflicts.classify("1.+", "1.2"));
+    }
+
+    @Test
+    public void report() throws Exception {
+        DependencyGraph.Builder builder = new DependencyGraph.Builder(4);
+        int a = builder.node("project :a", DependencyGraph.KIND_PROJECT);
+        int b = builder.node("org:b:1.0", DependencyGraph.KIND_MODULE);
+        int c = builder.node("org:c:2.0", DependencyGraph.KIND_MODULE);
+        int d = builder.node("org:d:1.0", DependencyGraph.KIND_MODULE);
+        builder.edge(a, b);
+        builder.edge(a, c, "1.5");
+        builder.edge(b, c, "3.0");
+        builder.edge(b, d, "1.1");
+        builder.edge(d, c, "1.5");
+        DependencyGraph graph = builder.build();
+        Assertions.assertEquals(4, VersionConflicts.count(graph));
+        Assertions.assertNull(graph.getRequestedVersion(0));
+
+        StringWriter writer = new StringWriter();
+        VersionConflicts.writeReport(graph, writer);
+        String[] lines = writer.toString().split("\n");
+        Assertions.assertEquals(3, lines.length);
+        Assertions.assertTrue(lines[1].startsWith("org:c "));
+        Assertions.assertTrue(lines[1].endsWith("1.5 (2), 3.0 (1)"));
+        Assertions.assertTrue(lines[2].startsWith("org:d "));
+
+        // the requested versions survive the reductions and the binary format
+        DependencyGraph reduced = GraphReduction.transitiveReduction(graph);
+        Assertions.assertEquals(2, VersionConflicts.count(reduced));
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (BinaryGraphWriter binaryWriter = new BinaryGraphWriter(bos)) {
+            binaryWriter.write(graph);
+        }
+        DependencyGraph read = BinaryGraphReader.read(ByteBuffer.wrap(bos.toByteArray()));
+        for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+            Assertions.assertEquals(graph.getRequestedVersion(edge), read.getRequestedVersion(edge));
+        }
+    }
+}
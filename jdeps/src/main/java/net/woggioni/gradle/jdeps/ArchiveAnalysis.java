@@ -0,0 +1,203 @@
+package net.woggioni.gradle.jdeps;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import org.gradle.api.GradleException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+// The package dependencies of a single archive as reported by 'jdeps -verbose:package' when the archive is analysed
+// on its own: they only depend on the archive content and on the JDK, so they can be cached by archive hash.
+// Dependencies on packages outside the JDK are left unresolved (jdeps reports them as 'not found'),
+// JdepsReport resolves them against the other archives of the classpath
+@Getter
+@RequiredArgsConstructor
+final class ArchiveAnalysis {
+
+    @Getter
+    @RequiredArgsConstructor
+    static final class PackageDependency {
+        private final String fromPackage;
+        private final String toPackage;
+        private final Target target;
+        // the JDK module providing the target package, null unless the target is a module
+        private final String module;
+        private final boolean jdkInternal;
+    }
+
+    enum Target {
+        // a package of the JDK
+        MODULE,
+        // another package of the same archive
+        ARCHIVE,
+        // a package jdeps could not find, usually provided by another archive of the classpath
+        NOT_FOUND
+    }
+
+    @FunctionalInterface
+    interface Runner {
+        int run(List<String> arguments, PrintWriter out, PrintWriter err) throws Exception;
+    }
+
+    private static final String NOT_FOUND = "not found";
+    private static final String JDK_INTERNAL_PREFIX = "JDK internal API (";
+    // 'from -> to module' since Java 9
+    private static final Pattern DEPENDENCY = Pattern.compile("^\\s+(\\S+)\\s+->\\s+(\\S+)\\s*(.*?)\\s*$");
+    // 'from (archive)' followed by '-> to module' lines on Java 8
+    private static final Pattern JDK8_SOURCE = Pattern.compile("^\\s+(\\S+)\\s+\\(.*\\)\\s*$");
+    private static final Pattern JDK8_DEPENDENCY = Pattern.compile("^\\s+->\\s+(\\S+)\\s*(.*?)\\s*$");
+    private static final String MODULE_INFO = "module-info.class";
+
+    private final List<PackageDependency> dependencies;
+
+    @SneakyThrows
+    static ArchiveAnalysis analyse(File archive, Integer release, Path temporaryDir, Runner runner) {
+        Path analysed = archive.toPath();
+        Path stripped = null;
+        // a modular jar analysed on its own fails to resolve the modules it requires,
+        // without its descriptor it is analysed as unnamed code, as if it were on the class path
+        if (archive.isFile() && isModular(archive)) {
+            stripped = Files.createTempFile(temporaryDir, "unnamed-", ".jar");
+            stripModuleDescriptors(archive.toPath(), stripped);
+            analysed = stripped;
+        }
+        try {
+            List<String> arguments = new ArrayList<>();
+            arguments.add("-verbose:package");
+            if (release != null) {
+                arguments.add("--multi-release");
+                arguments.add(release.toString());
+            }
+            arguments.add(analysed.toString());
+            StringWriter out = new StringWriter();
+            StringWriter err = new StringWriter();
+            int exitValue = runner.run(arguments, new PrintWriter(out), new PrintWriter(err));
+            if (exitValue != 0) {
+                throw new GradleException(String.format(
+                        "jdeps finished with non-zero exit value %d analysing '%s': %s%s", exitValue, archive, out, err));
+            }
+            return parse(out.toString(), analysed.getFileName().toString());
+        } finally {
+            if (stripped != null) Files.delete(stripped);
+        }
+    }
+
+    private static boolean isModular(File archive) throws IOException {
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                if (entries.nextElement().getName().endsWith(MODULE_INFO)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static void stripModuleDescriptors(Path source, Path destination) throws IOException {
+        try (ZipFile zipFile = new ZipFile(source.toFile());
+             ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(destination))) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            byte[] buffer = new byte[0x10000];
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.getName().endsWith(MODULE_INFO)) continue;
+                outputStream.putNextEntry(new ZipEntry(entry.getName()));
+                try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                    int read;
+                    while ((read = inputStream.read(buffer)) >= 0) {
+                        outputStream.write(buffer, 0, read);
+                    }
+                }
+                outputStream.closeEntry();
+            }
+        }
+    }
+
+    @SneakyThrows
+    static ArchiveAnalysis parse(String output, String archiveName) {
+        List<PackageDependency> dependencies = new ArrayList<>();
+        String jdk8Source = null;
+        try (BufferedReader reader = new BufferedReader(new StringReader(output))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = JDK8_DEPENDENCY.matcher(line);
+                if (jdk8Source != null && matcher.matches()) {
+                    dependencies.add(dependency(jdk8Source, matcher.group(1), matcher.group(2), archiveName));
+                    continue;
+                }
+                matcher = DEPENDENCY.matcher(line);
+                if (matcher.matches()) {
+                    dependencies.add(dependency(matcher.group(1), matcher.group(2), matcher.group(3), archiveName));
+                    continue;
+                }
+                matcher = JDK8_SOURCE.matcher(line);
+                jdk8Source = matcher.matches() ? matcher.group(1) : null;
+            }
+        }
+        return new ArchiveAnalysis(Collections.unmodifiableList(dependencies));
+    }
+
+    // on Java 8 the packages of the runtime have no module, they are attributed to 'java.base'
+    private static PackageDependency dependency(String from, String to, String target, String archiveName) {
+        if (NOT_FOUND.equals(target)) {
+            return new PackageDependency(from, to, Target.NOT_FOUND, null, false);
+        } else if (archiveName.equals(target)) {
+            return new PackageDependency(from, to, Target.ARCHIVE, null, false);
+        } else if (target.startsWith(JDK_INTERNAL_PREFIX) && target.endsWith(")")) {
+            String module = target.substring(JDK_INTERNAL_PREFIX.length(), target.length() - 1);
+            return new PackageDependency(from, to, Target.MODULE, module.endsWith(".jar") ? "java.base" : module, true);
+        } else {
+            return new PackageDependency(from, to, Target.MODULE, target.isEmpty() ? "java.base" : target, false);
+        }
+    }
+
+    // one tab separated line for each dependency: source package, target package, kind of target, module
+    // (empty unless the target is a module) and whether the target is a JDK internal API
+    @SneakyThrows
+    void write(Path destination) {
+        Files.createDirectories(destination.getParent());
+        // written next to the destination and then moved, so that concurrent builds never read a partial entry
+        Path temporary = Files.createTempFile(destination.getParent(), destination.getFileName().toString(), ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            for (PackageDependency dependency : dependencies) {
+                writer.write(dependency.getFromPackage() + '\t' + dependency.getToPackage() + '\t' +
+                        dependency.getTarget() + '\t' +
+                        (dependency.getModule() == null ? "" : dependency.getModule()) + '\t' +
+                        dependency.isJdkInternal() + '\n');
+            }
+        }
+        Files.move(temporary, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @SneakyThrows
+    static ArchiveAnalysis read(Path source) {
+        List<PackageDependency> dependencies = new ArrayList<>();
+        for (String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 5) continue;
+            dependencies.add(new PackageDependency(fields[0], fields[1], Target.valueOf(fields[2]),
+                    fields[3].isEmpty() ? null : fields[3], Boolean.parseBoolean(fields[4])));
+        }
+        return new ArchiveAnalysis(Collections.unmodifiableList(dependencies));
+    }
+}
@@ -0,0 +1,79 @@
+package net.woggioni.gradle.jdeps;
+
+import lombok.SneakyThrows;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Analyses archives one at a time and stores each result where JdepsTask expects it,
+// jdeps runs through its ToolProvider in the JVM of the worker unless an executable is given
+public abstract class ArchiveAnalysisAction implements WorkAction<ArchiveAnalysisAction.Parameters> {
+
+    public interface Parameters extends WorkParameters {
+        ListProperty<File> getArchives();
+
+        ListProperty<File> getDestinations();
+
+        Property<Integer> getJavaRelease();
+
+        DirectoryProperty getTemporaryDir();
+
+        RegularFileProperty getExecutable();
+    }
+
+    @Override
+    public void execute() {
+        Parameters parameters = getParameters();
+        List<File> archives = parameters.getArchives().get();
+        List<File> destinations = parameters.getDestinations().get();
+        Path temporaryDir = parameters.getTemporaryDir().get().getAsFile().toPath();
+        ArchiveAnalysis.Runner runner = parameters.getExecutable().isPresent() ?
+                (arguments, out, err) -> fork(parameters.getExecutable().get().getAsFile(), arguments, out, err) :
+                JdepsTool::run;
+        for (int i = 0; i < archives.size(); i++) {
+            ArchiveAnalysis.analyse(archives.get(i), parameters.getJavaRelease().getOrNull(), temporaryDir, runner)
+                    .write(destinations.get(i).toPath());
+        }
+    }
+
+    @SneakyThrows
+    private static int fork(File executable, List<String> arguments, PrintWriter out, PrintWriter err) {
+        List<String> command = new ArrayList<>();
+        command.add(executable.toString());
+        command.addAll(arguments);
+        Path errorFile = Files.createTempFile("jdeps", ".err");
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectError(errorFile.toFile())
+                    .start();
+            process.getOutputStream().close();
+            try (Reader reader = new InputStreamReader(process.getInputStream(), Charset.defaultCharset())) {
+                char[] buffer = new char[0x10000];
+                int read;
+                while ((read = reader.read(buffer)) >= 0) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            int exitValue = process.waitFor();
+            err.write(new String(Files.readAllBytes(errorFile), Charset.defaultCharset()));
+            return exitValue;
+        } finally {
+            out.flush();
+            err.flush();
+            Files.delete(errorFile);
+        }
+    }
+}
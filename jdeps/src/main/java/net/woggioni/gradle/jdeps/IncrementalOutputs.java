@@ -0,0 +1,140 @@
+package net.woggioni.gradle.jdeps;
+
+import lombok.SneakyThrows;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Records in a manifest kept in the output directory which archive every generated file belongs to, the digest
+// of its content and the size and modification time of the file that was written: a run only rewrites the files
+// whose content changed (or whose size or modification time differ from what was written, i.e. that were changed
+// since) and deletes those that were not generated again, i.e. the files of the archives that are no longer analysed
+final class IncrementalOutputs {
+
+    private static final Logger log = Logging.getLogger(IncrementalOutputs.class);
+
+    static final String MANIFEST_FILE_NAME = ".jdeps-outputs";
+    // the owner of the files that depend on every archive, like the summary
+    static final String SHARED = "";
+
+    private final Path outputDir;
+    // owner, digest, size and modification time of every file, by path relative to the output directory
+    private final Map<String, String[]> previous;
+    private final Map<String, String[]> current = new LinkedHashMap<>();
+
+    private IncrementalOutputs(Path outputDir, Map<String, String[]> previous) {
+        this.outputDir = outputDir;
+        this.previous = previous;
+    }
+
+    // without a manifest the content of the output directory is unknown (e.g. it was generated by a version of
+    // the task that did not keep one or by jdeps itself), so it is deleted
+    @SneakyThrows
+    static IncrementalOutputs load(Path outputDir) {
+        Map<String, String[]> previous = new LinkedHashMap<>();
+        Path manifest = outputDir.resolve(MANIFEST_FILE_NAME);
+        if (Files.exists(manifest)) {
+            for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length == 5) {
+                    previous.put(fields[4], new String[] {fields[0], fields[1], fields[2], fields[3]});
+                } else if (fields.length == 3) {
+                    // a manifest without the file attributes, its files are written again
+                    previous.put(fields[2], new String[] {fields[0], fields[1], "", ""});
+                }
+            }
+        } else {
+            delete(outputDir);
+        }
+        return new IncrementalOutputs(outputDir, previous);
+    }
+
+    static void delete(Path directory) {
+        if (!Files.exists(directory)) return;
+        try (Stream<Path> paths = walk(directory)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .forEach(new Consumer<Path>() {
+                        @Override
+                        @SneakyThrows
+                        public void accept(Path path) {
+                            Files.delete(path);
+                        }
+                    });
+        }
+    }
+
+    @SneakyThrows
+    private static Stream<Path> walk(Path directory) {
+        return Files.walk(directory);
+    }
+
+    @SneakyThrows
+    void write(String owner, Path file, CharSequence content) {
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        String digest = digest(bytes);
+        String key = outputDir.relativize(file.toAbsolutePath()).toString();
+        // the file on disk is not read again, its size and modification time tell whether it was changed
+        String[] entry = previous.get(key);
+        if (entry != null && entry[1].equals(digest) && Files.isRegularFile(file)
+                && Arrays.asList(entry[2], entry[3]).equals(attributes(file))) {
+            log.debug("{} is up to date", file);
+            current.put(key, new String[] {owner, digest, entry[2], entry[3]});
+            return;
+        }
+        log.info("Writing {}", file);
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes);
+        List<String> attributes = attributes(file);
+        current.put(key, new String[] {owner, digest, attributes.get(0), attributes.get(1)});
+    }
+
+    @SneakyThrows
+    private static List<String> attributes(Path file) {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return Arrays.asList(Long.toString(attributes.size()), Long.toString(attributes.lastModifiedTime().toMillis()));
+    }
+
+    // deletes the files that were not written again and saves the manifest
+    @SneakyThrows
+    void commit() {
+        for (Map.Entry<String, String[]> entry : previous.entrySet()) {
+            if (current.containsKey(entry.getKey())) continue;
+            String owner = entry.getValue()[0];
+            log.info("Deleting {}{}", entry.getKey(), SHARED.equals(owner) ? "" : " of the removed archive " + owner);
+            Files.deleteIfExists(outputDir.resolve(entry.getKey()));
+        }
+        Files.createDirectories(outputDir);
+        try (Writer writer = Files.newBufferedWriter(outputDir.resolve(MANIFEST_FILE_NAME), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String[]> entry : current.entrySet()) {
+                for (String field : entry.getValue()) {
+                    writer.write(field);
+                    writer.write('\t');
+                }
+                writer.write(entry.getKey());
+                writer.write('\n');
+            }
+        }
+    }
+
+    @SneakyThrows
+    private static String digest(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+}
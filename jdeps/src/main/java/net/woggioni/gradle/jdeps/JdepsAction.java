@@ -0,0 +1,31 @@
+package net.woggioni.gradle.jdeps;
+
+import lombok.SneakyThrows;
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import java.io.PrintWriter;
+
+// Runs jdeps with the given arguments through its ToolProvider in the JVM of the worker
+public abstract class JdepsAction implements WorkAction<JdepsAction.Parameters> {
+
+    public interface Parameters extends WorkParameters {
+        ListProperty<String> getArguments();
+
+        Property<Boolean> getIgnoreExitValue();
+    }
+
+    @Override
+    @SneakyThrows
+    public void execute() {
+        // the standard streams of the worker are forwarded to the build output, they must not be closed
+        int exitValue = JdepsTool.run(getParameters().getArguments().get(),
+                new PrintWriter(System.out), new PrintWriter(System.err));
+        if (exitValue != 0 && !getParameters().getIgnoreExitValue().get()) {
+            throw new GradleException(String.format("jdeps finished with non-zero exit value %d", exitValue));
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package net.woggioni.gradle.jdeps;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import org.gradle.api.logging.Logger;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// Merges the analyses of the single archives into archive and package dependency graphs: the packages jdeps
+// could not find are looked up in the other archives of the classpath, in classpath order
+final class JdepsReport {
+
+    enum Kind {
+        MODULE, ARCHIVE, NOT_FOUND
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static final class PackageEdge {
+        private final String fromPackage;
+        private final String toPackage;
+        private final Kind kind;
+        // the module or the archive providing the target package, null when it was not found
+        private final String target;
+        private final boolean jdkInternal;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    static final class Archive {
+        private final String name;
+        private final File file;
+        private final List<PackageEdge> packageEdges;
+        // the modules and the other archives this archive depends on
+        private final Set<String> dependencies;
+    }
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+    @Getter
+    private final List<Archive> archives;
+
+    private JdepsReport(List<Archive> archives) {
+        this.archives = archives;
+    }
+
+    // the analysed archives and the other files of the classpath are keyed by their name in the report
+    static JdepsReport create(Map<String, File> analysed, Map<String, ArchiveAnalysis> analyses,
+                              Map<String, File> classpath) {
+        Map<String, String> packageIndex = new HashMap<>();
+        Map<String, File> files = new LinkedHashMap<>(analysed);
+        files.putAll(classpath);
+        for (Map.Entry<String, File> entry : files.entrySet()) {
+            for (String packageName : packages(entry.getValue())) {
+                packageIndex.putIfAbsent(packageName, entry.getKey());
+            }
+        }
+        List<Archive> archives = new ArrayList<>();
+        for (Map.Entry<String, File> entry : analysed.entrySet()) {
+            String name = entry.getKey();
+            List<PackageEdge> edges = new ArrayList<>();
+            Set<String> dependencies = new LinkedHashSet<>();
+            for (ArchiveAnalysis.PackageDependency dependency : analyses.get(name).getDependencies()) {
+                PackageEdge edge;
+                switch (dependency.getTarget()) {
+                    case MODULE:
+                        edge = new PackageEdge(dependency.getFromPackage(), dependency.getToPackage(), Kind.MODULE,
+                                dependency.getModule(), dependency.isJdkInternal());
+                        break;
+                    case ARCHIVE:
+                        edge = new PackageEdge(dependency.getFromPackage(), dependency.getToPackage(), Kind.ARCHIVE,
+                                name, false);
+                        break;
+                    default:
+                        String provider = packageIndex.get(dependency.getToPackage());
+                        edge = new PackageEdge(dependency.getFromPackage(), dependency.getToPackage(),
+                                provider == null ? Kind.NOT_FOUND : Kind.ARCHIVE, provider, false);
+                        break;
+                }
+                edges.add(edge);
+                if (edge.getTarget() != null && !name.equals(edge.getTarget())) dependencies.add(edge.getTarget());
+            }
+            archives.add(new Archive(name, entry.getValue(), Collections.unmodifiableList(edges),
+                    Collections.unmodifiableSet(dependencies)));
+        }
+        return new JdepsReport(Collections.unmodifiableList(archives));
+    }
+
+    @SneakyThrows
+    private static Set<String> packages(File file) {
+        Set<String> result = new LinkedHashSet<>();
+        if (file.isDirectory()) {
+            Path root = file.toPath();
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.forEach(path ->
+                        addPackage(result, root.relativize(path).toString().replace(File.separatorChar, '/')));
+            }
+        } else if (file.isFile()) {
+            try (ZipFile zipFile = new ZipFile(file)) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    String entryName = entries.nextElement().getName();
+                    // classes of multi-release jars belong to the same package as the unversioned ones
+                    if (entryName.startsWith(VERSIONS_PREFIX)) {
+                        int slash = entryName.indexOf('/', VERSIONS_PREFIX.length());
+                        if (slash < 0) continue;
+                        entryName = entryName.substring(slash + 1);
+                    }
+                    addPackage(result, entryName);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void addPackage(Set<String> packages, String entryName) {
+        int slash = entryName.lastIndexOf('/');
+        if (!entryName.endsWith(CLASS_SUFFIX) || slash < 0 || entryName.startsWith("META-INF/")) return;
+        packages.add(entryName.substring(0, slash).replace('/', '.'));
+    }
+
+    void log(Logger logger) {
+        for (Archive archive : archives) {
+            logger.lifecycle("{} -> {}", archive.getName(),
+                    archive.getDependencies().isEmpty() ? "none" : String.join(", ", archive.getDependencies()));
+            for (PackageEdge edge : archive.getPackageEdges()) {
+                if (edge.getKind() == Kind.NOT_FOUND) {
+                    logger.info("   {} -> {} not found", edge.getFromPackage(), edge.getToPackage());
+                } else if (edge.isJdkInternal()) {
+                    logger.warn("   {} -> {} JDK internal API ({})",
+                            edge.getFromPackage(), edge.getToPackage(), edge.getTarget());
+                }
+            }
+        }
+    }
+
+    void writeJson(IncrementalOutputs outputs, Path destination) {
+        StringBuilder sb = new StringBuilder("{\"archives\":[");
+        for (int i = 0; i < archives.size(); i++) {
+            Archive archive = archives.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("\n{\"name\":");
+            appendString(sb, archive.getName());
+            sb.append(",\"path\":");
+            appendString(sb, archive.getFile().getPath());
+            sb.append(",\"dependencies\":[");
+            int j = 0;
+            for (String dependency : archive.getDependencies()) {
+                if (j++ > 0) sb.append(',');
+                appendString(sb, dependency);
+            }
+            sb.append("],\"packages\":[");
+            for (j = 0; j < archive.getPackageEdges().size(); j++) {
+                PackageEdge edge = archive.getPackageEdges().get(j);
+                if (j > 0) sb.append(',');
+                appendEdge(sb.append("\n"), edge);
+            }
+            sb.append("]}");
+        }
+        sb.append("],\"jdkInternals\":[");
+        int count = 0;
+        for (Archive archive : archives) {
+            for (PackageEdge edge : archive.getPackageEdges()) {
+                if (!edge.isJdkInternal()) continue;
+                if (count++ > 0) sb.append(',');
+                sb.append("\n{\"archive\":");
+                appendString(sb, archive.getName());
+                sb.append(",\"from\":");
+                appendString(sb, edge.getFromPackage());
+                sb.append(",\"to\":");
+                appendString(sb, edge.getToPackage());
+                sb.append(",\"module\":");
+                appendString(sb, edge.getTarget());
+                sb.append('}');
+            }
+        }
+        sb.append("]}\n");
+        outputs.write(IncrementalOutputs.SHARED, destination, sb);
+    }
+
+    private static void appendEdge(StringBuilder sb, PackageEdge edge) {
+        sb.append("{\"from\":");
+        appendString(sb, edge.getFromPackage());
+        sb.append(",\"to\":");
+        appendString(sb, edge.getToPackage());
+        sb.append(",\"kind\":");
+        appendString(sb, edge.getKind().name().toLowerCase(Locale.ROOT));
+        if (edge.getTarget() != null) {
+            sb.append(",\"target\":");
+            appendString(sb, edge.getTarget());
+        }
+        if (edge.isJdkInternal()) sb.append(",\"jdkInternal\":true");
+        sb.append('}');
+    }
+
+    // the same layout as 'jdeps -dotoutput': the archive graph in summary.dot
+    // and the package graph of every archive in <archive>.dot.
+    // Every <archive>.dot is generated again, even when its archive was not analysed again: the archive providing
+    // each package comes from the package index shared by the whole classpath, so adding or removing a jar can change
+    // the targets in the graph of an unchanged one. Only the files whose content changed are actually written
+    void writeDot(IncrementalOutputs outputs, Path directory) {
+        StringBuilder summary = new StringBuilder("digraph \"summary\" {\n");
+        for (Archive archive : archives) {
+            for (String dependency : archive.getDependencies()) {
+                summary.append("  ");
+                appendString(summary, archive.getName());
+                summary.append(" -> ");
+                appendString(summary, dependency);
+                summary.append(";\n");
+            }
+        }
+        summary.append("}\n");
+        outputs.write(IncrementalOutputs.SHARED, directory.resolve("summary.dot"), summary);
+        for (Archive archive : archives) {
+            StringBuilder sb = new StringBuilder("digraph ");
+            appendString(sb, archive.getName());
+            sb.append(" {\n");
+            for (PackageEdge edge : archive.getPackageEdges()) {
+                sb.append("    ");
+                appendString(sb, edge.getFromPackage());
+                sb.append(" -> ");
+                appendString(sb, edge.getToPackage() + " (" +
+                        (edge.getTarget() == null ? "not found" : edge.getTarget()) + ")");
+                sb.append(";\n");
+            }
+            sb.append("}\n");
+            outputs.write(archive.getName(), directory.resolve(archive.getName() + ".dot"), sb);
+        }
+    }
+
+    private static void appendString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
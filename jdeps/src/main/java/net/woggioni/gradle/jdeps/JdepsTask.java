@@ -2,6 +2,7 @@ package net.woggioni.gradle.jdeps;
 
 import lombok.SneakyThrows;
 import org.gradle.api.Action;
+import org.gradle.api.GradleException;
 import org.gradle.api.Project;
 import org.gradle.api.file.Directory;
 import org.gradle.api.file.DirectoryProperty;
@@ -20,6 +21,7 @@ import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Exec;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.PathSensitive;
@@ -29,17 +31,33 @@ import org.gradle.jvm.toolchain.JavaToolchainService;
 import org.gradle.jvm.toolchain.JavaToolchainSpec;
 import org.gradle.jvm.toolchain.internal.DefaultToolchainSpec;
 import org.gradle.process.CommandLineArgumentProvider;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import static java.util.Optional.ofNullable;
 import static net.woggioni.gradle.jdeps.Constants.JDEPS_TASK_GROUP;
@@ -92,8 +110,39 @@ public abstract class JdepsTask extends Exec {
     @Input
     public abstract Property<Boolean> getRecursive();
 
+    // runs jdeps through its ToolProvider in a worker instead of forking the jdeps executable
+    @Internal
+    public abstract Property<Boolean> getInProcess();
+
+    // runs the jdeps executable once on all the archives as configured on this Exec task (arguments, standard
+    // streams, working directory, ignoreExitValue), leaving its console output and -dotoutput files
+    // instead of the structured report
+    @Input
+    public abstract Property<Boolean> getRawOutput();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    // how many archives are analysed concurrently, defaults to the max workers of the build
+    @Internal
+    public abstract Property<Integer> getMaxParallelism();
+
+    // where the analyses of the archives are kept across builds and projects
+    @Internal
+    public abstract DirectoryProperty getCacheDir();
+
     private static final Logger log = Logging.getLogger(JdepsTask.class);
 
+    private final CommandLineArgumentProvider argumentProvider;
+
+    static final String REPORT_FILE_NAME = "jdeps.json";
+    // changes whenever the format of the cached analyses does
+    private static final String CACHE_VERSION = "1";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    // the major version in the release file of a JDK, e.g. JAVA_VERSION="17.0.9" or JAVA_VERSION="1.8.0_392"
+    private static final Pattern JAVA_VERSION = Pattern.compile("^JAVA_VERSION=\"(?:1\\.)?(\\d+).*\"\\s*$");
+    private static final long CACHE_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(30);
+
     public JdepsTask() {
         Project project = getProject();
         setGroup(JDEPS_TASK_GROUP);
@@ -108,7 +157,12 @@ public abstract class JdepsTask extends Exec {
         }
         getClasspath().convention(project.files());
         getRecursive().convention(true);
+        getInProcess().convention(true);
+        getRawOutput().convention(false);
+        getMaxParallelism().convention(project.getGradle().getStartParameter().getMaxWorkerCount());
         ProjectLayout layout = project.getLayout();
+        File cacheDir = new File(project.getGradle().getGradleUserHomeDir(), "caches/jdeps");
+        getCacheDir().convention(layout.dir(project.provider(() -> cacheDir)));
         toolchain = getObjectFactory().newInstance(DefaultToolchainSpec.class);
         JavaToolchainService javaToolchainService = ext.findByType(JavaToolchainService.class);
         Provider<Directory> graalHomeDirectoryProvider = javaToolchainService.launcherFor(it -> {
@@ -138,7 +192,7 @@ public abstract class JdepsTask extends Exec {
             }
         };
         executable(executableProvider);
-        CommandLineArgumentProvider argumentProvider = new CommandLineArgumentProvider() {
+        argumentProvider = new CommandLineArgumentProvider() {
             @Override
             @SneakyThrows
             public Iterable<String> asArguments() {
@@ -199,15 +253,251 @@ public abstract class JdepsTask extends Exec {
     @Override
     @SneakyThrows
     protected void exec() {
-        Files.walk(getOutputDir().get().getAsFile().toPath())
-                .sorted(Comparator.reverseOrder())
-                .forEach(new Consumer<Path>() {
-                    @Override
-                    @SneakyThrows
-                    public void accept(Path path) {
-                        Files.delete(path);
-                    }
+        if (getRawOutput().get()) {
+            // a plain Exec task, all of its options apply
+            IncrementalOutputs.delete(getOutputDir().get().getAsFile().toPath());
+            super.exec();
+            return;
+        }
+        checkRawOptions();
+        // the modules to analyse are only known to jdeps once it resolves the module graph,
+        // in that case jdeps is run once on everything
+        if (getMainModule().isPresent() || !getAdditionalModules().get().isEmpty()) {
+            IncrementalOutputs.delete(getOutputDir().get().getAsFile().toPath());
+            runJdeps();
+        } else {
+            analyseArchives();
+        }
+    }
+
+    private void runJdeps() {
+        WorkQueue workQueue = getInProcess().get() ? workQueue() : null;
+        if (workQueue == null) {
+            super.exec();
+        } else {
+            List<String> commandLine = getCommandLine();
+            workQueue.submit(JdepsAction.class, parameters -> {
+                parameters.getArguments().set(commandLine.subList(1, commandLine.size()));
+                parameters.getIgnoreExitValue().set(false);
+            });
+        }
+    }
+
+    // every archive is analysed on its own and the results are merged by JdepsReport, the analyses of archive
+    // files are cached by content in the cache directory, so that only the archives that changed are analysed
+    @SneakyThrows
+    private void analyseArchives() {
+        Map<String, File> analysed = new LinkedHashMap<>();
+        Map<String, File> classpath = new LinkedHashMap<>();
+        Set<String> names = new HashSet<>();
+        for (File archive : getArchives().get()) {
+            if (archive.exists()) analysed.put(uniqueName(names, archive), archive);
+        }
+        for (File entry : getClasspath().get()) {
+            if (!entry.exists() || analysed.containsValue(entry)) continue;
+            (getRecursive().get() ? analysed : classpath).put(uniqueName(names, entry), entry);
+        }
+
+        Path cacheDir = getCacheDir().get().getAsFile().toPath();
+        Path temporaryDir = getTemporaryDir().toPath();
+        Integer release = multiReleaseVersion();
+        byte[] jdkDigest = jdkDigest(release);
+        Map<String, Path> results = new LinkedHashMap<>();
+        List<File> misses = new ArrayList<>();
+        List<File> destinations = new ArrayList<>();
+        for (Map.Entry<String, File> entry : analysed.entrySet()) {
+            File archive = entry.getValue();
+            Path result;
+            if (archive.isFile()) {
+                result = cacheDir.resolve(cacheKey(archive, jdkDigest) + ".txt");
+                if (Files.exists(result)) {
+                    Files.setLastModifiedTime(result, FileTime.fromMillis(System.currentTimeMillis()));
+                    log.debug("Found the analysis of '{}' in {}", archive, result);
+                    results.put(entry.getKey(), result);
+                    continue;
+                }
+            } else {
+                result = temporaryDir.resolve(entry.getKey() + ".txt");
+            }
+            misses.add(archive);
+            destinations.add(result.toFile());
+            results.put(entry.getKey(), result);
+        }
+        log.info("Analysing {} of {} archives with jdeps", misses.size(), analysed.size());
+        if (!misses.isEmpty()) {
+            WorkQueue inProcessQueue = getInProcess().get() ? workQueue() : null;
+            // without a ToolProvider the worker forks the jdeps executable of the toolchain
+            boolean fork = inProcessQueue == null;
+            WorkQueue workQueue = fork ? getWorkerExecutor().noIsolation() : inProcessQueue;
+            File executable = getJavaHome().get().file("bin/jdeps").getAsFile();
+            for (List<Integer> batch : batches(misses, getMaxParallelism().get())) {
+                List<File> archives = new ArrayList<>();
+                List<File> batchDestinations = new ArrayList<>();
+                for (int index : batch) {
+                    archives.add(misses.get(index));
+                    batchDestinations.add(destinations.get(index));
+                }
+                workQueue.submit(ArchiveAnalysisAction.class, parameters -> {
+                    parameters.getArchives().set(archives);
+                    parameters.getDestinations().set(batchDestinations);
+                    parameters.getJavaRelease().set(release);
+                    parameters.getTemporaryDir().set(temporaryDir.toFile());
+                    if (fork) parameters.getExecutable().set(executable);
                 });
-        super.exec();
+            }
+            workQueue.await();
+            pruneCache(cacheDir);
+        }
+
+        Map<String, ArchiveAnalysis> analyses = new HashMap<>();
+        for (Map.Entry<String, Path> entry : results.entrySet()) {
+            analyses.put(entry.getKey(), ArchiveAnalysis.read(entry.getValue()));
+        }
+        JdepsReport report = JdepsReport.create(analysed, analyses, classpath);
+        report.log(log);
+        Path outputDir = getOutputDir().get().getAsFile().toPath();
+        IncrementalOutputs outputs = IncrementalOutputs.load(outputDir);
+        report.writeJson(outputs, outputDir.resolve(REPORT_FILE_NAME));
+        if (getDotOutput().isPresent()) {
+            report.writeDot(outputs, getDotOutput().get().getAsFile().toPath());
+        }
+        outputs.commit();
+    }
+    // jdeps runs in the daemon itself when the toolchain is the JVM running Gradle, otherwise in a worker process
+    // started from the toolchain, that Gradle keeps alive and reuses for the jdeps tasks of every project;
+    // a Java 8 toolchain has no ToolProvider, so its jdeps executable is forked instead
+    @SneakyThrows
+    private WorkQueue workQueue() {
+        Path javaHome = getJavaHome().get().getAsFile().toPath().toRealPath();
+        if (javaHome.equals(Paths.get(System.getProperty("java.home")).toRealPath())) {
+            if (!JdepsTool.isAvailable()) return null;
+            log.info("Running jdeps in process");
+            return getWorkerExecutor().classLoaderIsolation();
+        }
+        if (!Files.exists(javaHome.resolve("lib").resolve("modules"))) return null;
+        log.info("Running jdeps in a worker process started from {}", javaHome);
+        return getWorkerExecutor().processIsolation(spec ->
+                spec.getForkOptions().setExecutable(javaHome.resolve("bin").resolve("java").toFile()));
+    }
+
+    // unless rawOutput is set jdeps runs in a worker with the arguments computed by this task, possibly once for
+    // each archive, so the Exec options that would be ignored are rejected; the standard streams and the working
+    // directory of the task are not used either
+    private void checkRawOptions() {
+        List<String> options = new ArrayList<>();
+        if (getArgs() != null && !getArgs().isEmpty()) options.add("args " + getArgs());
+        if (getArgumentProviders().size() > 1 || !getArgumentProviders().contains(argumentProvider)) {
+            options.add("argumentProviders");
+        }
+        if (isIgnoreExitValue()) options.add("ignoreExitValue");
+        if (!options.isEmpty()) {
+            throw new GradleException(String.format("%s of task '%s' only apply when jdeps runs once on all " +
+                    "the archives, set rawOutput to true to use them", String.join(", ", options), getPath()));
+        }
+    }
+
+    // the archives are split in at most maxParallelism work items that Gradle runs concurrently, within its
+    // max workers limit; the largest archives are assigned first, each to the batch with the fewest bytes so far
+    static List<List<Integer>> batches(List<File> archives, int maxParallelism) {
+        int count = Math.max(1, Math.min(maxParallelism, archives.size()));
+        List<List<Integer>> batches = new ArrayList<>(count);
+        long[] sizes = new long[count];
+        for (int i = 0; i < count; i++) {
+            batches.add(new ArrayList<>());
+        }
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < archives.size(); i++) {
+            indexes.add(i);
+        }
+        indexes.sort(Comparator.comparingLong((Integer index) -> size(archives.get(index))).reversed());
+        for (int index : indexes) {
+            int lightest = 0;
+            for (int i = 1; i < count; i++) {
+                if (sizes[i] < sizes[lightest]) lightest = i;
+            }
+            batches.get(lightest).add(index);
+            sizes[lightest] += size(archives.get(index));
+        }
+        return batches;
+    }
+
+    @SneakyThrows
+    private static long size(File archive) {
+        if (archive.isFile()) return archive.length();
+        try (Stream<Path> paths = Files.walk(archive.toPath())) {
+            return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    private static String uniqueName(Set<String> names, File file) {
+        String name = file.getName();
+        for (int i = 2; !names.add(name); i++) {
+            name = file.getName() + "-" + i;
+        }
+        return name;
+    }
+
+    // jdeps refuses to analyse a multi-release jar on its own unless a version is given, by default the classes
+    // are those the JDK running jdeps would load; Java 8 has no multi-release jars
+    @SneakyThrows
+    private Integer multiReleaseVersion() {
+        if (getJavaRelease().isPresent()) return getJavaRelease().get();
+        Path releaseFile = getJavaHome().get().getAsFile().toPath().resolve("release");
+        if (!Files.exists(releaseFile)) return null;
+        for (String line : Files.readAllLines(releaseFile, StandardCharsets.UTF_8)) {
+            Matcher matcher = JAVA_VERSION.matcher(line);
+            if (matcher.matches()) {
+                int version = Integer.parseInt(matcher.group(1));
+                return version > 8 ? version : null;
+            }
+        }
+        return null;
+    }
+
+    // the analysis of an archive depends on the JDK running jdeps and on the release of multi-release jars
+    @SneakyThrows
+    private byte[] jdkDigest(Integer release) {
+        MessageDigest md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        md.update(CACHE_VERSION.getBytes(StandardCharsets.UTF_8));
+        Path javaHome = getJavaHome().get().getAsFile().toPath();
+        Path releaseFile = javaHome.resolve("release");
+        md.update(Files.exists(releaseFile) ?
+                Files.readAllBytes(releaseFile) : javaHome.toString().getBytes(StandardCharsets.UTF_8));
+        md.update(String.valueOf(release).getBytes(StandardCharsets.UTF_8));
+        return md.digest();
+    }
+
+    @SneakyThrows
+    private static String cacheKey(File archive, byte[] jdkDigest) {
+        MessageDigest md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        md.update(jdkDigest);
+        try (InputStream inputStream = Files.newInputStream(archive.toPath())) {
+            byte[] buffer = new byte[0x10000];
+            int read;
+            while ((read = inputStream.read(buffer)) >= 0) {
+                md.update(buffer, 0, read);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+
+    // the entries are touched whenever they are used, those of archives that are no longer used by any build
+    // (e.g. the previous versions of the archives of the project) are eventually removed
+    @SneakyThrows
+    private static void pruneCache(Path cacheDir) {
+        long threshold = System.currentTimeMillis() - CACHE_RETENTION_MILLIS;
+        try (Stream<Path> entries = Files.list(cacheDir)) {
+            entries.forEach(new Consumer<Path>() {
+                @Override
+                @SneakyThrows
+                public void accept(Path entry) {
+                    if (Files.getLastModifiedTime(entry).toMillis() < threshold) Files.deleteIfExists(entry);
+                }
+            });
+        }
     }
 }
@@ -0,0 +1,51 @@
+package net.woggioni.gradle.jdeps;
+
+import org.gradle.api.GradleException;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.Optional;
+
+// Runs jdeps through java.util.spi.ToolProvider in the current JVM,
+// looked up reflectively since this plugin is compiled for Java 8
+final class JdepsTool {
+
+    private static final String TOOL_NAME = "jdeps";
+
+    private JdepsTool() {
+    }
+
+    static boolean isAvailable() {
+        try {
+            return findTool().isPresent();
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    private static Class<?> toolProviderClass() throws ClassNotFoundException {
+        return Class.forName("java.util.spi.ToolProvider");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Optional<Object> findTool() throws ReflectiveOperationException {
+        return (Optional<Object>) toolProviderClass().getMethod("findFirst", String.class).invoke(null, TOOL_NAME);
+    }
+
+    static int run(List<String> arguments, PrintWriter out, PrintWriter err) throws ReflectiveOperationException {
+        Object tool = findTool().orElseThrow(() ->
+                new GradleException("jdeps is not available in the JVM at " + System.getProperty("java.home")));
+        try {
+            // the implementation class is not exported by its module, the method is called through the interface
+            return (Integer) toolProviderClass().getMethod("run", PrintWriter.class, PrintWriter.class, String[].class)
+                    .invoke(tool, out, err, arguments.toArray(new String[0]));
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        } finally {
+            out.flush();
+            err.flush();
+        }
+    }
+}
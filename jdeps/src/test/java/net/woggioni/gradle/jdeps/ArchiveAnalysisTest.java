@@ -0,0 +1,133 @@
+package net.woggioni.gradle.jdeps;
+
+import lombok.SneakyThrows;
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+public class ArchiveAnalysisTest {
+
+    @TempDir
+    public Path testDir;
+
+    @SneakyThrows
+    static File jar(Path destination, String... entries) {
+        try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(destination))) {
+            for (String entry : entries) {
+                outputStream.putNextEntry(new ZipEntry(entry));
+                outputStream.closeEntry();
+            }
+        }
+        return destination.toFile();
+    }
+
+    private static String describe(ArchiveAnalysis.PackageDependency dependency) {
+        return dependency.getFromPackage() + " -> " + dependency.getToPackage() + " " + dependency.getTarget() +
+                (dependency.getModule() == null ? "" : " " + dependency.getModule()) +
+                (dependency.isJdkInternal() ? " internal" : "");
+    }
+
+    private static List<String> describe(ArchiveAnalysis analysis) {
+        List<String> result = new ArrayList<>();
+        for (ArchiveAnalysis.PackageDependency dependency : analysis.getDependencies()) {
+            result.add(describe(dependency));
+        }
+        return result;
+    }
+
+    @Test
+    public void parse() {
+        String output = "lib.jar -> java.base\n" +
+                "lib.jar -> jdk.unsupported\n" +
+                "lib.jar -> not found\n" +
+                "   com.example.a                                      -> com.example.b                                      lib.jar\n" +
+                "   com.example.a                                      -> java.lang                                          java.base\n" +
+                "   com.example.a                                      -> org.slf4j                                          not found\n" +
+                "   com.example.b                                      -> sun.misc                                           JDK internal API (jdk.unsupported)\n";
+        Assertions.assertEquals(Arrays.asList(
+                "com.example.a -> com.example.b ARCHIVE",
+                "com.example.a -> java.lang MODULE java.base",
+                "com.example.a -> org.slf4j NOT_FOUND",
+                "com.example.b -> sun.misc MODULE jdk.unsupported internal"
+        ), describe(ArchiveAnalysis.parse(output, "lib.jar")));
+    }
+
+    @Test
+    public void parseJava8() {
+        String output = "lib.jar -> /usr/lib/jvm/java-8/jre/lib/rt.jar\n" +
+                "lib.jar -> not found\n" +
+                "   com.example.a (lib.jar)\n" +
+                "      -> com.example.b                                      lib.jar\n" +
+                "      -> java.lang                                          \n" +
+                "      -> org.slf4j                                          not found\n" +
+                "   com.example.b (lib.jar)\n" +
+                "      -> sun.misc                                           JDK internal API (rt.jar)\n";
+        Assertions.assertEquals(Arrays.asList(
+                "com.example.a -> com.example.b ARCHIVE",
+                "com.example.a -> java.lang MODULE java.base",
+                "com.example.a -> org.slf4j NOT_FOUND",
+                "com.example.b -> sun.misc MODULE java.base internal"
+        ), describe(ArchiveAnalysis.parse(output, "lib.jar")));
+    }
+
+    @Test
+    public void writeAndRead() {
+        ArchiveAnalysis analysis = ArchiveAnalysis.parse(
+                "   a -> b   lib.jar\n" +
+                "   a -> c   not found\n" +
+                "   a -> sun.misc   JDK internal API (jdk.unsupported)\n", "lib.jar");
+        Path entry = testDir.resolve("cache").resolve("entry.txt");
+        analysis.write(entry);
+        Assertions.assertEquals(describe(analysis), describe(ArchiveAnalysis.read(entry)));
+    }
+
+    @Test
+    @SneakyThrows
+    public void analyseStripsModuleDescriptors() {
+        File archive = jar(testDir.resolve("modular.jar"), "module-info.class", "com/example/A.class",
+                "META-INF/versions/11/module-info.class");
+        List<String> entries = new ArrayList<>();
+        List<List<String>> invocations = new ArrayList<>();
+        ArchiveAnalysis analysis = ArchiveAnalysis.analyse(archive, 11, testDir, (arguments, out, err) -> {
+            invocations.add(arguments);
+            Path analysed = Paths.get(arguments.get(arguments.size() - 1));
+            try (ZipFile zipFile = new ZipFile(analysed.toFile())) {
+                zipFile.stream().forEach(entry -> entries.add(entry.getName()));
+            }
+            out.println("   com.example -> java.lang   " + analysed.getFileName());
+            return 0;
+        });
+        Assertions.assertEquals(Collections.singletonList("com/example/A.class"), entries);
+        Assertions.assertEquals(Arrays.asList("-verbose:package", "--multi-release", "11"),
+                invocations.get(0).subList(0, 3));
+        // the stripped copy is analysed in place of the archive and then deleted
+        Assertions.assertEquals(Collections.singletonList("com.example -> java.lang ARCHIVE"), describe(analysis));
+        try (Stream<Path> files = Files.list(testDir)) {
+            Assertions.assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void analyseFailure() {
+        File archive = jar(testDir.resolve("lib.jar"), "com/example/A.class");
+        Assertions.assertThrows(GradleException.class, () ->
+                ArchiveAnalysis.analyse(archive, null, testDir, (arguments, out, err) -> {
+                    err.println("boom");
+                    return 2;
+                }));
+    }
+}
@@ -0,0 +1,63 @@
+package net.woggioni.gradle.jdeps;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+public class IncrementalOutputsTest {
+
+    @TempDir
+    public Path outputDir;
+
+    private static String read(Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @SneakyThrows
+    public void rewritesOnlyChangedFiles() {
+        Path a = outputDir.resolve("graphviz/a.jar.dot");
+        Path b = outputDir.resolve("graphviz/b.jar.dot");
+        Path c = outputDir.resolve("graphviz/c.jar.dot");
+        IncrementalOutputs outputs = IncrementalOutputs.load(outputDir);
+        outputs.write("a.jar", a, "a");
+        outputs.write("b.jar", b, "b");
+        outputs.write("c.jar", c, "c");
+        outputs.commit();
+        // the outputs on disk are not read again: an edit that keeps the size and modification time goes unnoticed
+        FileTime written = Files.getLastModifiedTime(a);
+        Files.write(a, "A".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(a, written);
+        // while an output whose modification time changed since it was written is written again
+        Files.write(b, "B".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(b, FileTime.fromMillis(0));
+
+        outputs = IncrementalOutputs.load(outputDir);
+        outputs.write("a.jar", a, "a");
+        outputs.write("b.jar", b, "b");
+        outputs.commit();
+        Assertions.assertEquals("A", read(a));
+        Assertions.assertEquals("b", read(b));
+        Assertions.assertFalse(Files.exists(c));
+        Assertions.assertTrue(read(outputDir.resolve(IncrementalOutputs.MANIFEST_FILE_NAME)).contains("a.jar\t"));
+    }
+
+    @Test
+    @SneakyThrows
+    public void deletesUnknownContent() {
+        Path stale = outputDir.resolve("graphviz/stale.dot");
+        Files.createDirectories(stale.getParent());
+        Files.write(stale, new byte[0]);
+        IncrementalOutputs outputs = IncrementalOutputs.load(outputDir);
+        Assertions.assertFalse(Files.exists(stale));
+        outputs.write(IncrementalOutputs.SHARED, outputDir.resolve("jdeps.json"), "{}");
+        outputs.commit();
+        Assertions.assertEquals("{}", read(outputDir.resolve("jdeps.json")));
+    }
+}
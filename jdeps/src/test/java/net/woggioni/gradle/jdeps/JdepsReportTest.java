@@ -0,0 +1,67 @@
+package net.woggioni.gradle.jdeps;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static net.woggioni.gradle.jdeps.ArchiveAnalysisTest.jar;
+
+public class JdepsReportTest {
+
+    @TempDir
+    public Path testDir;
+
+    @Test
+    @SneakyThrows
+    public void resolvesMissingPackages() {
+        File app = jar(testDir.resolve("app.jar"), "com/example/app/Main.class");
+        File first = jar(testDir.resolve("first.jar"), "org/lib/Lib.class");
+        // a package split between archives is attributed to the first one on the classpath
+        File second = jar(testDir.resolve("second.jar"), "org/lib/Other.class",
+                "META-INF/versions/11/org/lib/other/Versioned.class");
+        Map<String, File> analysed = new LinkedHashMap<>();
+        analysed.put("app.jar", app);
+        analysed.put("first.jar", first);
+        Map<String, File> classpath = new LinkedHashMap<>();
+        classpath.put("second.jar", second);
+        Map<String, ArchiveAnalysis> analyses = new HashMap<>();
+        analyses.put("app.jar", ArchiveAnalysis.parse(
+                "   com.example.app -> org.lib   not found\n" +
+                "   com.example.app -> org.lib.other   not found\n" +
+                "   com.example.app -> org.missing   not found\n" +
+                "   com.example.app -> sun.misc   JDK internal API (jdk.unsupported)\n", "app.jar"));
+        analyses.put("first.jar", ArchiveAnalysis.parse("   org.lib -> java.lang   java.base\n", "first.jar"));
+
+        JdepsReport report = JdepsReport.create(analysed, analyses, classpath);
+        JdepsReport.Archive archive = report.getArchives().get(0);
+        Assertions.assertEquals(Arrays.asList("first.jar", "second.jar", "jdk.unsupported"),
+                Arrays.asList(archive.getDependencies().toArray()));
+        Assertions.assertEquals(JdepsReport.Kind.NOT_FOUND, archive.getPackageEdges().get(2).getKind());
+        Assertions.assertNull(archive.getPackageEdges().get(2).getTarget());
+        Assertions.assertTrue(archive.getPackageEdges().get(3).isJdkInternal());
+
+        Path outputDir = testDir.resolve("output");
+        IncrementalOutputs outputs = IncrementalOutputs.load(outputDir);
+        report.writeJson(outputs, outputDir.resolve("jdeps.json"));
+        report.writeDot(outputs, outputDir.resolve("graphviz"));
+        outputs.commit();
+        String summary = new String(Files.readAllBytes(outputDir.resolve("graphviz/summary.dot")),
+                StandardCharsets.UTF_8);
+        Assertions.assertTrue(summary.contains("\"app.jar\" -> \"second.jar\";"));
+        String dot = new String(Files.readAllBytes(outputDir.resolve("graphviz/app.jar.dot")), StandardCharsets.UTF_8);
+        Assertions.assertTrue(dot.contains("\"com.example.app\" -> \"org.missing (not found)\";"));
+        String json = new String(Files.readAllBytes(outputDir.resolve("jdeps.json")), StandardCharsets.UTF_8);
+        Assertions.assertTrue(json.contains("{\"archive\":\"app.jar\",\"from\":\"com.example.app\"," +
+                "\"to\":\"sun.misc\",\"module\":\"jdk.unsupported\"}"));
+    }
+}
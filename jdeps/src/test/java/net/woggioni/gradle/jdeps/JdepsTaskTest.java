@@ -0,0 +1,39 @@
+package net.woggioni.gradle.jdeps;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class JdepsTaskTest {
+
+    @TempDir
+    public Path testDir;
+
+    private File file(String name, int size) throws Exception {
+        Path path = testDir.resolve(name);
+        Files.write(path, new byte[size]);
+        return path.toFile();
+    }
+
+    @Test
+    public void batches() throws Exception {
+        List<File> archives = Arrays.asList(file("a", 10), file("b", 60), file("c", 30), file("d", 50));
+        // the largest archives first, each to the lightest batch
+        Assertions.assertEquals(Arrays.asList(Arrays.asList(1, 0), Arrays.asList(3, 2)),
+                JdepsTask.batches(archives, 2));
+        Assertions.assertEquals(Collections.singletonList(Arrays.asList(1, 3, 2, 0)),
+                JdepsTask.batches(archives, 1));
+        // never more batches than archives
+        Assertions.assertEquals(4, JdepsTask.batches(archives, 16).size());
+        Assertions.assertEquals(Collections.singletonList(new ArrayList<Integer>()),
+                JdepsTask.batches(Collections.emptyList(), 4));
+    }
+}